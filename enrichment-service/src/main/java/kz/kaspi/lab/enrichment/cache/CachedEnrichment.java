@@ -0,0 +1,30 @@
+package kz.kaspi.lab.enrichment.cache;
+
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+
+// Значение в кэше обогащения: либо исходный объект, либо упакованные примитивы
+public sealed interface CachedEnrichment permits PlainEnrichment, CompactEnrichment {
+
+    // Оценка накладных расходов Caffeine на узел (ключ, ссылки, таймстемпы expire/refresh)
+    int NODE_OVERHEAD_BYTES = 96;
+
+    EnrichmentData toData(String clientId);
+
+    // Оценка занимаемой значением кучи в байтах (без ключа и узла кэша)
+    int estimatedBytes();
+
+    static CachedEnrichment of(EnrichmentData data, boolean compact) {
+        if (compact) {
+            CompactEnrichment packed = CompactEnrichment.pack(data);
+            if (packed != null) {
+                return packed;
+            }
+        }
+        return new PlainEnrichment(data);
+    }
+
+    static int weigh(String clientId, CachedEnrichment value) {
+        // String: 24 байта объект + 16 заголовок массива + символы (Latin-1 — по байту)
+        return NODE_OVERHEAD_BYTES + 40 + clientId.length() + value.estimatedBytes();
+    }
+}
@@ -0,0 +1,64 @@
+package kz.kaspi.lab.enrichment.cache;
+
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+
+// 32 байта на запись вместо ~100: fraudScore и supportRating — фиксированная точка (6 знаков),
+// жалобы, VIP и категория риска — в одном int
+public record CompactEnrichment(long scores, int flags, long lastInteractionTimestamp) implements CachedEnrichment {
+
+    private static final String[] RISK_CATEGORIES = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+    private static final int VIP_BIT = 1 << 7;
+    private static final int RISK_MASK = 0x7;
+    private static final int COMPLAINTS_SHIFT = 8;
+    private static final int MAX_COMPLAINTS = (1 << 23) - 1;
+    private static final double SCALE = 1_000_000.0;
+    private static final double MAX_SCORE = Integer.MAX_VALUE / SCALE;
+
+    private static final int ESTIMATED_BYTES = 32;
+
+    // null, если данные не укладываются в упакованный формат — тогда хранится исходный объект
+    static CompactEnrichment pack(EnrichmentData data) {
+        if (data.getFraudScore() == null || data.getSupportRating() == null || data.getIsVIP() == null
+                || data.getPreviousComplaints() == null || data.getLastInteractionTimestamp() == null) {
+            return null;
+        }
+        int risk = riskOrdinal(data.getRiskCategory());
+        int complaints = data.getPreviousComplaints();
+        double fraudScore = data.getFraudScore();
+        double supportRating = data.getSupportRating();
+        if (risk < 0 || complaints < 0 || complaints > MAX_COMPLAINTS
+                || Math.abs(fraudScore) >= MAX_SCORE || Math.abs(supportRating) >= MAX_SCORE) {
+            return null;
+        }
+        long scores = (Math.round(fraudScore * SCALE) << 32) | (Math.round(supportRating * SCALE) & 0xFFFFFFFFL);
+        int flags = (complaints << COMPLAINTS_SHIFT) | (data.getIsVIP() ? VIP_BIT : 0) | risk;
+        return new CompactEnrichment(scores, flags, data.getLastInteractionTimestamp());
+    }
+
+    @Override
+    public EnrichmentData toData(String clientId) {
+        return EnrichmentData.builder()
+                .clientId(clientId)
+                .fraudScore((int) (scores >> 32) / SCALE)
+                .supportRating((int) scores / SCALE)
+                .isVIP((flags & VIP_BIT) != 0)
+                .previousComplaints(flags >>> COMPLAINTS_SHIFT)
+                .riskCategory(RISK_CATEGORIES[flags & RISK_MASK])
+                .lastInteractionTimestamp(lastInteractionTimestamp)
+                .build();
+    }
+
+    @Override
+    public int estimatedBytes() {
+        return ESTIMATED_BYTES;
+    }
+
+    private static int riskOrdinal(String riskCategory) {
+        for (int i = 0; i < RISK_CATEGORIES.length; i++) {
+            if (RISK_CATEGORIES[i].equals(riskCategory)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,19 @@
+package kz.kaspi.lab.enrichment.cache;
+
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+
+public record PlainEnrichment(EnrichmentData data) implements CachedEnrichment {
+
+    // Обёртка 16 + EnrichmentData 40 + Double x2 + Long по 16 (Boolean/малые Integer/категория — общие)
+    private static final int ESTIMATED_BYTES = 16 + 40 + 16 * 3;
+
+    @Override
+    public EnrichmentData toData(String clientId) {
+        return data;
+    }
+
+    @Override
+    public int estimatedBytes() {
+        return ESTIMATED_BYTES;
+    }
+}
@@ -1,25 +1,106 @@
 package kz.kaspi.lab.enrichment.config;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import kz.kaspi.lab.enrichment.cache.CachedEnrichment;
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import kz.kaspi.lab.enrichment.service.EnrichmentBackend;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
-@EnableCaching
 public class CacheConfig {
 
+    @Value("${enrichment.cache.max-memory:512MB}")
+    private DataSize maxMemory;
+
+    @Value("${enrichment.cache.representation:compact}")
+    private String representation;
+
+    @Value("${enrichment.cache.expire-after-write:5m}")
+    private Duration expireAfterWrite;
+
+    @Value("${enrichment.cache.refresh-after-write:1m}")
+    private Duration refreshAfterWrite;
+
+    @Value("${enrichment.cache.loader-threads:32}")
+    private int loaderThreads;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Загрузки блокируются на бэкенде, поэтому у них свой пул, а не commonPool.
+    // С виртуальными потоками пул не нужен: поток на загрузку, число одновременных загрузок не ограничено
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService enrichmentLoaderExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("enrichment-loader-", 1).factory());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(loaderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "enrichment-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("clientEnrichment");
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(1000)
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .recordStats());
-        return cacheManager;
+    public AsyncLoadingCache<String, CachedEnrichment> clientEnrichmentCache(EnrichmentBackend backend,
+                                                                              ExecutorService enrichmentLoaderExecutor,
+                                                                              MeterRegistry meterRegistry) {
+        boolean compact = switch (representation) {
+            case "compact" -> true;
+            case "object" -> false;
+            default -> throw new IllegalArgumentException("Unknown enrichment.cache.representation: " + representation);
+        };
+
+        AsyncLoadingCache<String, CachedEnrichment> cache = Caffeine.newBuilder()
+                // Граница по оценке занимаемой памяти, а не по числу записей
+                .maximumWeight(maxMemory.toBytes())
+                .weigher(CachedEnrichment::weigh)
+                .expireAfterWrite(expireAfterWrite)
+                // stale-while-revalidate: после refreshAfterWrite старое значение отдаётся, пока идёт перезагрузка
+                .refreshAfterWrite(refreshAfterWrite)
+                .executor(enrichmentLoaderExecutor)
+                .recordStats()
+                .buildAsync(new CacheLoader<String, CachedEnrichment>() {
+                    @Override
+                    public CachedEnrichment load(String clientId) {
+                        return CachedEnrichment.of(backend.load(clientId), compact);
+                    }
+
+                    @Override
+                    public Map<String, CachedEnrichment> loadAll(Set<? extends String> clientIds) {
+                        Map<String, EnrichmentData> loaded = backend.loadAll(clientIds);
+                        Map<String, CachedEnrichment> result = new HashMap<>(loaded.size() * 2);
+                        loaded.forEach((clientId, data) -> result.put(clientId, CachedEnrichment.of(data, compact)));
+                        return result;
+                    }
+                });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "clientEnrichment");
+        Gauge.builder("enrichment.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .description("Hit ratio of the client enrichment cache since start")
+                .register(meterRegistry);
+        Gauge.builder("enrichment.cache.estimated.bytes", cache,
+                        c -> c.synchronous().policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Estimated heap footprint of the client enrichment cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return cache;
     }
-}
\ No newline at end of file
+}
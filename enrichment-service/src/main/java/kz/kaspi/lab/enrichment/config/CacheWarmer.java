@@ -0,0 +1,67 @@
+package kz.kaspi.lab.enrichment.config;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import kz.kaspi.lab.enrichment.cache.CachedEnrichment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Прогрев кэша после рестарта, чтобы горячие ключи не промахивались одновременно
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheWarmer implements ApplicationRunner {
+
+    private final AsyncLoadingCache<String, CachedEnrichment> clientEnrichmentCache;
+
+    @Value("${enrichment.cache.warmup.keys:}")
+    private List<String> keys;
+
+    @Value("${enrichment.cache.warmup.file:}")
+    private String keysFile;
+
+    @Value("${enrichment.cache.warmup.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Set<String> warmupKeys = new LinkedHashSet<>();
+        keys.stream().filter(key -> !key.isBlank()).forEach(warmupKeys::add);
+        if (!keysFile.isBlank()) {
+            try (var lines = Files.lines(Path.of(keysFile))) {
+                lines.map(String::trim).filter(line -> !line.isEmpty()).forEach(warmupKeys::add);
+            }
+        }
+        if (warmupKeys.isEmpty()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<String> all = new ArrayList<>(warmupKeys);
+        List<CompletableFuture<?>> batches = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += batchSize) {
+            batches.add(clientEnrichmentCache.getAll(all.subList(from, Math.min(from + batchSize, all.size()))));
+        }
+        // Не блокируем старт: трафик обслуживается параллельно, одинаковые ключи объединяются кэшем
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("Cache warm-up failed: {}", error.getMessage(), error);
+            } else {
+                log.info("Cache warm-up loaded {} clients in {} ms",
+                        all.size(), (System.nanoTime() - started) / 1_000_000);
+            }
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package kz.kaspi.lab.enrichment.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import kz.kaspi.lab.enrichment.snapshot.EnrichmentSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class SnapshotConfig {
+
+    @Value("${enrichment.snapshot.source:}")
+    private String source;
+
+    @Value("${enrichment.snapshot.directory:enrichment-snapshot}")
+    private String directory;
+
+    @Value("${enrichment.snapshot.check-interval:30s}")
+    private Duration checkInterval;
+
+    // Без источника снимок пуст и все запросы идут через кэш, как раньше.
+    // Первая загрузка синхронная: трафик не начинается, пока снимок не поднят
+    @Bean(destroyMethod = "close")
+    public EnrichmentSnapshot enrichmentSnapshot(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        EnrichmentSnapshot snapshot = new EnrichmentSnapshot(source.isBlank() ? null : Path.of(source),
+                Path.of(directory), objectMapper.readerFor(EnrichmentData.class), meterRegistry);
+        if (!source.isBlank()) {
+            snapshot.reload();
+            snapshot.watch(checkInterval);
+        }
+        return snapshot;
+    }
+}
@@ -1,6 +1,8 @@
 package kz.kaspi.lab.enrichment.controller;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import kz.kaspi.lab.enrichment.model.EnrichmentData;
 import kz.kaspi.lab.enrichment.service.EnrichmentService;
 import lombok.RequiredArgsConstructor;
@@ -9,9 +11,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/clients")
@@ -24,13 +30,24 @@ public class EnrichmentController {
     @GetMapping("/{clientId}/enrichment")
     public ResponseEntity<EnrichmentData> getEnrichment(@PathVariable @NotBlank String clientId) {
 
-        log.info("Received enrichment request for clientId: {}", clientId);
+        log.debug("Received enrichment request for clientId: {}", clientId);
 
         EnrichmentData data = enrichmentService.enrichClient(clientId);
 
         return ResponseEntity.ok(data);
     }
 
+    @PostMapping("/enrichment:batch")
+    public ResponseEntity<List<EnrichmentData>> getEnrichmentBatch(
+            @RequestBody @NotEmpty @Size(max = 1000) List<@NotBlank String> clientIds) {
+
+        log.debug("Received batch enrichment request for {} clients", clientIds.size());
+
+        List<EnrichmentData> data = enrichmentService.enrichClients(clientIds);
+
+        return ResponseEntity.ok(data);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Enrichment Service is UP");
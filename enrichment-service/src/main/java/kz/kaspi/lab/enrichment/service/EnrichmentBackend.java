@@ -0,0 +1,95 @@
+package kz.kaspi.lab.enrichment.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Медленный путь: обращение к БД / внешнему API. Вызывается только кэшем при промахе или refresh
+@Slf4j
+@Component
+public class EnrichmentBackend implements CacheLoader<String, EnrichmentData> {
+
+    private final Random random = new Random();
+
+    @Override
+    public EnrichmentData load(String clientId) {
+        log.debug("Enriching data for clientId: {}", clientId);
+
+        // Имитация обращения к БД / внешнему API
+        simulateLatency();
+
+        return buildEnrichment(clientId);
+    }
+
+    // Пакетный вариант: одна задержка бэкенда на все промахи
+    @Override
+    public Map<String, EnrichmentData> loadAll(Set<? extends String> clientIds) {
+        log.debug("Enriching batch of {} clients", clientIds.size());
+
+        simulateLatency();
+
+        Map<String, EnrichmentData> result = new HashMap<>(clientIds.size() * 2);
+        for (String clientId : clientIds) {
+            result.put(clientId, buildEnrichment(clientId));
+        }
+        return result;
+    }
+
+    private EnrichmentData buildEnrichment(String clientId) {
+        // Генерация данных на основе clientId для предсказуемости
+        int hashCode = Math.abs(clientId.hashCode());
+
+        double fraudScore = (hashCode % 100) / 100.0;
+        double supportRating = 1.0 + (hashCode % 40) / 10.0;
+        boolean isVIP = hashCode % 10 == 0;
+        int previousComplaints = hashCode % 5;
+
+        String riskCategory = calculateRiskCategory(fraudScore, previousComplaints);
+
+        EnrichmentData data = EnrichmentData.builder()
+                .clientId(clientId)
+                .fraudScore(fraudScore)
+                .supportRating(supportRating)
+                .isVIP(isVIP)
+                .previousComplaints(previousComplaints)
+                .riskCategory(riskCategory)
+                .lastInteractionTimestamp(Instant.now().toEpochMilli())
+                .build();
+
+        // Вызывается на каждый промах кэша; guard — чтобы не упаковывать примитивы при выключенном DEBUG
+        if (log.isDebugEnabled()) {
+            log.debug("Enrichment completed for clientId={}: fraudScore={}, rating={}, VIP={}, risk={}",
+                    clientId, fraudScore, supportRating, isVIP, riskCategory);
+        }
+
+        return data;
+    }
+
+    private String calculateRiskCategory(double fraudScore, int complaints) {
+        if (fraudScore > 0.8 || complaints > 3) {
+            return "CRITICAL";
+        } else if (fraudScore > 0.6 || complaints > 2) {
+            return "HIGH";
+        } else if (fraudScore > 0.4 || complaints > 1) {
+            return "MEDIUM";
+        } else {
+            return "LOW";
+        }
+    }
+
+    private void simulateLatency() {
+        try {
+            // Имитация сетевой задержки 50-150ms
+            Thread.sleep(50 + random.nextInt(100));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,70 +1,76 @@
 package kz.kaspi.lab.enrichment.service;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kz.kaspi.lab.enrichment.cache.CachedEnrichment;
 import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import kz.kaspi.lab.enrichment.snapshot.EnrichmentSnapshot;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 public class EnrichmentService {
 
-    private final Random random = new Random();
+    // Сначала снимок; в кэше только то, чего в нём нет.
+    // Промахи по одному ключу объединяются в одну загрузку, устаревшие значения
+    // отдаются сразу и обновляются в фоне (refreshAfterWrite)
+    private final EnrichmentSnapshot snapshot;
+    private final AsyncLoadingCache<String, CachedEnrichment> clientEnrichmentCache;
+    private final Timer lookupTimer;
+    private final Timer batchLookupTimer;
 
-    @Cacheable(value = "clientEnrichment", key = "#clientId")
-    public EnrichmentData enrichClient(String clientId) {
-        log.debug("Enriching data for clientId: {}", clientId);
-
-        // Имитация обращения к БД / внешнему API
-        simulateLatency();
-
-        // Генерация данных на основе clientId для предсказуемости
-        int hashCode = Math.abs(clientId.hashCode());
-
-        double fraudScore = (hashCode % 100) / 100.0;
-        double supportRating = 1.0 + (hashCode % 40) / 10.0;
-        boolean isVIP = hashCode % 10 == 0;
-        int previousComplaints = hashCode % 5;
-
-        String riskCategory = calculateRiskCategory(fraudScore, previousComplaints);
-
-        EnrichmentData data = EnrichmentData.builder()
-                .clientId(clientId)
-                .fraudScore(fraudScore)
-                .supportRating(supportRating)
-                .isVIP(isVIP)
-                .previousComplaints(previousComplaints)
-                .riskCategory(riskCategory)
-                .lastInteractionTimestamp(Instant.now().toEpochMilli())
-                .build();
-
-        log.info("Enrichment completed for clientId={}: fraudScore={}, rating={}, VIP={}, risk={}",
-                clientId, fraudScore, supportRating, isVIP, riskCategory);
+    public EnrichmentService(EnrichmentSnapshot snapshot,
+                             AsyncLoadingCache<String, CachedEnrichment> clientEnrichmentCache,
+                             MeterRegistry meterRegistry) {
+        this.snapshot = snapshot;
+        this.clientEnrichmentCache = clientEnrichmentCache;
+        this.lookupTimer = lookupTimer(meterRegistry, "single");
+        this.batchLookupTimer = lookupTimer(meterRegistry, "batch");
+    }
 
-        return data;
+    public EnrichmentData enrichClient(String clientId) {
+        return lookupTimer.record(() -> {
+            EnrichmentData snapshotted = snapshot.lookup(clientId);
+            return snapshotted != null ? snapshotted : clientEnrichmentCache.get(clientId).join().toData(clientId);
+        });
     }
 
-    private String calculateRiskCategory(double fraudScore, int complaints) {
-        if (fraudScore > 0.8 || complaints > 3) {
-            return "CRITICAL";
-        } else if (fraudScore > 0.6 || complaints > 2) {
-            return "HIGH";
-        } else if (fraudScore > 0.4 || complaints > 1) {
-            return "MEDIUM";
-        } else {
-            return "LOW";
-        }
+    // Пакетный вариант: промахи снимка и кэша добираются одним обращением к бэкенду
+    public List<EnrichmentData> enrichClients(List<String> clientIds) {
+        return batchLookupTimer.record(() -> {
+            EnrichmentData[] result = new EnrichmentData[clientIds.size()];
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < result.length; i++) {
+                result[i] = snapshot.lookup(clientIds.get(i));
+                if (result[i] == null) {
+                    missing.add(clientIds.get(i));
+                }
+            }
+            if (!missing.isEmpty()) {
+                Map<String, CachedEnrichment> resolved = clientEnrichmentCache.getAll(missing).join();
+                for (int i = 0; i < result.length; i++) {
+                    if (result[i] == null) {
+                        result[i] = resolved.get(clientIds.get(i)).toData(clientIds.get(i));
+                    }
+                }
+            }
+            return Arrays.asList(result);
+        });
     }
 
-    private void simulateLatency() {
-        try {
-            // Имитация сетевой задержки 50-150ms
-            Thread.sleep(50 + random.nextInt(100));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String type) {
+        return Timer.builder("enrichment.lookup")
+                .description("Client enrichment lookup latency, cache included")
+                .tag("type", type)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package kz.kaspi.lab.enrichment.snapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Быстрый путь перед кэшем: профили из заранее выгруженного снимка, отображённого в память.
+// Источник — выгрузка (.csv, .json, .jsonl), из которой собирается бинарный снимок, или готовый .snap.
+// Новую выгрузку нужно класть атомарным переименованием: изменение замечается по mtime и размеру,
+// снимок пересобирается рядом и подменяется одной записью в AtomicReference — чтения не блокируются,
+// начатые дочитывают старое отображение. Чего нет в снимке (новые клиенты, промахи), идёт в кэш и бэкенд
+@Slf4j
+public class EnrichmentSnapshot implements AutoCloseable {
+
+    private static final String BUILT_PREFIX = "enrichment-";
+    private static final String BUILT_SUFFIX = ".snap";
+
+    private final Path source;
+    private final Path directory;
+    private final ObjectReader jsonReader;
+    private final AtomicReference<MappedSnapshot> current = new AtomicReference<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    private long sourceModified = -1;
+    private long sourceSize = -1;
+    private volatile long loadedModified;
+    private ScheduledExecutorService watcher;
+
+    public EnrichmentSnapshot(Path source, Path directory, ObjectReader jsonReader, MeterRegistry meterRegistry) {
+        this.source = source;
+        this.directory = directory;
+        this.jsonReader = jsonReader;
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        Gauge.builder("enrichment.snapshot.clients", current, c -> c.get() != null ? c.get().size() : 0)
+                .description("Clients in the loaded enrichment snapshot")
+                .register(meterRegistry);
+        Gauge.builder("enrichment.snapshot.age", this,
+                        s -> s.current.get() != null ? (System.currentTimeMillis() - s.loadedModified) / 1000.0 : 0)
+                .description("Age of the dump behind the loaded enrichment snapshot")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // null — клиента в снимке нет (или снимок не загружен)
+    public EnrichmentData lookup(String clientId) {
+        MappedSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            return null;
+        }
+        EnrichmentData data = snapshot.get(clientId);
+        (data != null ? hits : misses).increment();
+        return data;
+    }
+
+    public int size() {
+        MappedSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot.size() : 0;
+    }
+
+    // true — подменили снимок. Битая выгрузка не роняет сервис: остаётся прежний снимок
+    public synchronized boolean reload() {
+        long modified;
+        long size;
+        try {
+            modified = Files.getLastModifiedTime(source).toMillis();
+            size = Files.size(source);
+        } catch (NoSuchFileException e) {
+            if (sourceModified != 0) {
+                log.warn("Enrichment dump {} not found, serving without snapshot until it appears", source);
+                sourceModified = 0;
+            }
+            return false;
+        } catch (IOException e) {
+            log.error("Failed to stat enrichment dump {}", source, e);
+            return false;
+        }
+        if (modified == sourceModified && size == sourceSize) {
+            return false;
+        }
+        // Запоминаем до сборки, чтобы одну и ту же битую выгрузку не пересобирать на каждой проверке
+        sourceModified = modified;
+        sourceSize = size;
+
+        long started = System.nanoTime();
+        try {
+            Path target = source;
+            if (!source.getFileName().toString().endsWith(BUILT_SUFFIX)) {
+                Files.createDirectories(directory);
+                target = directory.resolve(BUILT_PREFIX + System.currentTimeMillis() + BUILT_SUFFIX);
+                new SnapshotWriter(jsonReader).write(source, target);
+            }
+            MappedSnapshot next = MappedSnapshot.open(target);
+            current.set(next);
+            loadedModified = modified;
+            deleteStale(target);
+            log.info("Loaded enrichment snapshot of {} clients from {} in {} ms",
+                    next.size(), source, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to load enrichment snapshot from {}, keeping the previous one", source, e);
+            return false;
+        }
+    }
+
+    public void watch(Duration interval) {
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "enrichment-snapshot-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        watcher.scheduleWithFixedDelay(this::reload, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    // Старые собранные снимки удаляем сразу: на Linux отображение живёт и после unlink,
+    // место освободится, когда GC соберёт прежний буфер
+    private void deleteStale(Path keep) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> built = Files.newDirectoryStream(directory, BUILT_PREFIX + "*" + BUILT_SUFFIX)) {
+            for (Path path : built) {
+                if (!path.equals(keep)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up old enrichment snapshots in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("enrichment.snapshot.lookups")
+                .description("Lookups served from the enrichment snapshot")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
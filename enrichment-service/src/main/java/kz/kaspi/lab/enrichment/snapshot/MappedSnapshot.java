@@ -0,0 +1,140 @@
+package kz.kaspi.lab.enrichment.snapshot;
+
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Снимок профилей, отображённый в память. Формат (big-endian):
+//   заголовок [magic:4][version:4][count:4][slotCount:4][createdAt:8][recordsOffset:8]
+//   слоты     slotCount × [fingerprint:8][offset записи:8] — открытая адресация, fingerprint 0 — пусто
+//   записи    [длина clientId в char:2][clientId UTF-16][fraudScore:8][supportRating:8]
+//             [lastInteractionTimestamp:8][previousComplaints:4][flags:1][riskCategory:1]
+// Чтение — только абсолютными get'ами, поэтому буфер безопасно делить между потоками.
+// Отображение освобождает GC, когда на снимок не останется ссылок (после hot swap)
+final class MappedSnapshot {
+
+    static final int MAGIC = 0x454E5253;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int SLOT_BYTES = 16;
+    static final int PAYLOAD_BYTES = 30;
+
+    static final int FRAUD_SCORE = 1;
+    static final int SUPPORT_RATING = 1 << 1;
+    static final int VIP_PRESENT = 1 << 2;
+    static final int VIP = 1 << 3;
+    static final int COMPLAINTS = 1 << 4;
+    static final int TIMESTAMP = 1 << 5;
+
+    // 0 — категории нет
+    static final String[] RISK_CATEGORIES = {null, "LOW", "MEDIUM", "HIGH", "CRITICAL"};
+
+    private static final long EMPTY = 0L;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int mask;
+    private final long createdAt;
+
+    private MappedSnapshot(Path path, MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an enrichment snapshot: " + path);
+        }
+        this.count = buffer.getInt(8);
+        int slotCount = buffer.getInt(12);
+        if (Integer.bitCount(slotCount) != 1 || HEADER_BYTES + (long) slotCount * SLOT_BYTES > buffer.capacity()) {
+            throw new IllegalArgumentException("Corrupt enrichment snapshot header: " + path);
+        }
+        this.mask = slotCount - 1;
+        this.createdAt = buffer.getLong(16);
+    }
+
+    static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Enrichment snapshot over 2 GB is not supported: " + path);
+            }
+            // Отображение остаётся действительным и после закрытия канала
+            return new MappedSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // null — клиента в снимке нет. Аллоцируется только ответ: ключ сравнивается прямо с байтами файла
+    EnrichmentData get(String clientId) {
+        long fingerprint = fingerprint(clientId);
+        int slot = spread(fingerprint) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            long current = buffer.getLong(position);
+            if (current == EMPTY) {
+                return null;
+            }
+            if (current == fingerprint) {
+                int record = (int) buffer.getLong(position + 8);
+                if (keyEquals(record, clientId)) {
+                    return read(record + 2 + clientId.length() * 2, clientId);
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    private boolean keyEquals(int record, String clientId) {
+        int length = buffer.getShort(record) & 0xFFFF;
+        if (length != clientId.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.getChar(record + 2 + i * 2) != clientId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private EnrichmentData read(int payload, String clientId) {
+        int flags = buffer.get(payload + 28);
+        return EnrichmentData.builder()
+                .clientId(clientId)
+                .fraudScore((flags & FRAUD_SCORE) != 0 ? buffer.getDouble(payload) : null)
+                .supportRating((flags & SUPPORT_RATING) != 0 ? buffer.getDouble(payload + 8) : null)
+                .lastInteractionTimestamp((flags & TIMESTAMP) != 0 ? buffer.getLong(payload + 16) : null)
+                .previousComplaints((flags & COMPLAINTS) != 0 ? buffer.getInt(payload + 24) : null)
+                .isVIP((flags & VIP_PRESENT) != 0 ? (flags & VIP) != 0 : null)
+                .riskCategory(RISK_CATEGORIES[buffer.get(payload + 29)])
+                .build();
+    }
+
+    // FNV-1a по символам + финализатор murmur3, без промежуточных byte[]
+    static long fingerprint(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+
+    static int spread(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+}
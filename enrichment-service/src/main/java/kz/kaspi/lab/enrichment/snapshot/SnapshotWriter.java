@@ -0,0 +1,255 @@
+package kz.kaspi.lab.enrichment.snapshot;
+
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.COMPLAINTS;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.FRAUD_SCORE;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.HEADER_BYTES;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.MAGIC;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.PAYLOAD_BYTES;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.RISK_CATEGORIES;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.SLOT_BYTES;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.SUPPORT_RATING;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.TIMESTAMP;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.VERSION;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.VIP;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.VIP_PRESENT;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.fingerprint;
+import static kz.kaspi.lab.enrichment.snapshot.MappedSnapshot.spread;
+
+// Сборка снимка из выгрузки: CSV с заголовком (имена колонок — поля EnrichmentData, пустое значение — null)
+// или JSON — массив либо объект на строку. Записи сначала пишутся во временный файл, в памяти держатся
+// только пары [fingerprint, offset]; затем по ним строится таблица слотов. Повтор clientId — побеждает последний.
+// Экземпляр одноразовый: на каждую выгрузку новый
+@Slf4j
+final class SnapshotWriter {
+
+    private final ObjectReader jsonReader;
+
+    private long[] fingerprints = new long[1024];
+    private long[] offsets = new long[1024];
+    private int entries;
+    private int distinct;
+    private long recordsBytes;
+    private int skipped;
+
+    SnapshotWriter(ObjectReader jsonReader) {
+        this.jsonReader = jsonReader;
+    }
+
+    // Возвращает число клиентов в снимке; target заменяется атомарно
+    int write(Path dump, Path target) throws IOException {
+        Path records = target.resolveSibling(target.getFileName() + ".records.tmp");
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(records), 1 << 16))) {
+                read(dump, data -> append(data, out));
+            }
+            long[] slots = slots();
+            long recordsOffset = HEADER_BYTES + (long) slots.length * 8;
+            if (recordsOffset + recordsBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Enrichment snapshot over 2 GB is not supported: " + dump);
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 FileChannel recordsChannel = FileChannel.open(records, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putInt(distinct)
+                        .putInt(slots.length / 2)
+                        .putLong(System.currentTimeMillis())
+                        .putLong(recordsOffset)
+                        .flip();
+                writeFully(channel, header);
+                ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+                for (int i = 0; i < slots.length; i += 2) {
+                    if (chunk.remaining() < SLOT_BYTES) {
+                        writeFully(channel, chunk.flip());
+                        chunk.clear();
+                    }
+                    chunk.putLong(slots[i]).putLong(slots[i] != 0 ? recordsOffset + slots[i + 1] : 0);
+                }
+                writeFully(channel, chunk.flip());
+                long transferred = 0;
+                while (transferred < recordsBytes) {
+                    transferred += recordsChannel.transferTo(transferred, recordsBytes - transferred, channel);
+                }
+                channel.force(false);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (skipped > 0) {
+                log.warn("Skipped {} invalid rows in enrichment dump {}", skipped, dump);
+            }
+            return distinct;
+        } finally {
+            Files.deleteIfExists(records);
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void read(Path dump, Consumer<EnrichmentData> sink) throws IOException {
+        String name = dump.getFileName().toString();
+        if (name.endsWith(".csv")) {
+            readCsv(dump, sink);
+        } else if (name.endsWith(".json") || name.endsWith(".jsonl")) {
+            try (InputStream in = Files.newInputStream(dump);
+                 MappingIterator<EnrichmentData> values = jsonReader.readValues(in)) {
+                while (values.hasNextValue()) {
+                    sink.accept(values.nextValue());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown enrichment dump format (expected .csv, .json or .jsonl): " + dump);
+        }
+    }
+
+    private void readCsv(Path dump, Consumer<EnrichmentData> sink) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(dump, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return;
+            }
+            String[] header = headerLine.split(",", -1);
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                columns.put(header[i].trim(), i);
+            }
+            if (!columns.containsKey("clientId")) {
+                throw new IllegalArgumentException("Enrichment dump " + dump + " has no clientId column");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] values = line.split(",", -1);
+                try {
+                    sink.accept(EnrichmentData.builder()
+                            .clientId(column(values, columns, "clientId"))
+                            .fraudScore(map(column(values, columns, "fraudScore"), Double::valueOf))
+                            .supportRating(map(column(values, columns, "supportRating"), Double::valueOf))
+                            .isVIP(map(column(values, columns, "isVIP"), Boolean::valueOf))
+                            .previousComplaints(map(column(values, columns, "previousComplaints"), Integer::valueOf))
+                            .riskCategory(column(values, columns, "riskCategory"))
+                            .lastInteractionTimestamp(map(column(values, columns, "lastInteractionTimestamp"), Long::valueOf))
+                            .build());
+                } catch (NumberFormatException e) {
+                    skipped++;
+                }
+            }
+        }
+    }
+
+    private void append(EnrichmentData data, DataOutputStream out) {
+        String clientId = data.getClientId();
+        int risk = riskOrdinal(data.getRiskCategory());
+        if (clientId == null || clientId.isEmpty() || clientId.length() > 0xFFFF || risk < 0) {
+            skipped++;
+            return;
+        }
+        int flags = 0;
+        flags |= data.getFraudScore() != null ? FRAUD_SCORE : 0;
+        flags |= data.getSupportRating() != null ? SUPPORT_RATING : 0;
+        flags |= data.getIsVIP() != null ? VIP_PRESENT | (data.getIsVIP() ? VIP : 0) : 0;
+        flags |= data.getPreviousComplaints() != null ? COMPLAINTS : 0;
+        flags |= data.getLastInteractionTimestamp() != null ? TIMESTAMP : 0;
+        try {
+            out.writeShort(clientId.length());
+            out.writeChars(clientId);
+            out.writeDouble(data.getFraudScore() != null ? data.getFraudScore() : 0);
+            out.writeDouble(data.getSupportRating() != null ? data.getSupportRating() : 0);
+            out.writeLong(data.getLastInteractionTimestamp() != null ? data.getLastInteractionTimestamp() : 0);
+            out.writeInt(data.getPreviousComplaints() != null ? data.getPreviousComplaints() : 0);
+            out.writeByte(flags);
+            out.writeByte(risk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (entries == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, entries * 2);
+            offsets = Arrays.copyOf(offsets, entries * 2);
+        }
+        fingerprints[entries] = fingerprint(clientId);
+        offsets[entries] = recordsBytes;
+        entries++;
+        recordsBytes += 2 + clientId.length() * 2L + PAYLOAD_BYTES;
+    }
+
+    // Пары [fingerprint, offset от начала записей]; заполнение не выше половины, чтобы пробы были короткими
+    private long[] slots() {
+        int slotCount = Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1;
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("Too many clients for one enrichment snapshot: " + entries);
+        }
+        long[] slots = new long[slotCount * 2];
+        int mask = slotCount - 1;
+        for (int i = 0; i < entries; i++) {
+            int slot = spread(fingerprints[i]) & mask;
+            // Совпадение fingerprint'ов у разных clientId (~2^-64) даст промах при сверке ключа, а не чужие данные
+            while (slots[slot * 2] != 0 && slots[slot * 2] != fingerprints[i]) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot * 2] == 0) {
+                distinct++;
+            }
+            slots[slot * 2] = fingerprints[i];
+            slots[slot * 2 + 1] = offsets[i];
+        }
+        return slots;
+    }
+
+    private static String column(String[] values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.length) {
+            return null;
+        }
+        String value = values[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static <T> T map(String value, Function<String, T> parser) {
+        return value != null ? parser.apply(value) : null;
+    }
+
+    private static int riskOrdinal(String riskCategory) {
+        if (riskCategory == null) {
+            return 0;
+        }
+        for (int i = 1; i < RISK_CATEGORIES.length; i++) {
+            if (RISK_CATEGORIES[i].equals(riskCategory)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package kz.kaspi.lab.enrichment;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Нагрузочный прогон: одна и та же волна одновременных запросов с промахом кэша при
+// spring.threads.virtual.enabled=false и true. Запуск:
+// mvn test -Dtest=VirtualThreadsLoadTest -Dloadtest=true [-Dloadtest.requests=2000]
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class VirtualThreadsLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 2000);
+
+    @Test
+    void compareThreadModes() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        for (Result result : List.of(platform, virtual)) {
+            log.info("{} threads: {} requests in {} ms ({} req/s), peak in-flight {}, platform threads {}, "
+                            + "heap per in-flight request {} KB",
+                    result.mode(), REQUESTS, result.wallMillis(), REQUESTS * 1000 / Math.max(1, result.wallMillis()),
+                    result.peakInFlight(), result.peakPlatformThreads(),
+                    result.peakHeapDelta() / 1024 / Math.max(1, result.peakInFlight()));
+        }
+
+        // Запросы ждут бэкенд, а не CPU: виртуальные потоки держат больше запросов разом на меньшем числе
+        // платформенных потоков. Время волны на одном ядре шумное, его только логируем
+        assertTrue(virtual.peakInFlight() > platform.peakInFlight(),
+                () -> "peak in-flight " + virtual.peakInFlight() + " vs " + platform.peakInFlight());
+        assertTrue(virtual.peakPlatformThreads() < platform.peakPlatformThreads(),
+                () -> "platform threads " + virtual.peakPlatformThreads() + " vs " + platform.peakPlatformThreads());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EnrichmentServiceApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--logging.level.root=WARN",
+                        "--logging.level.kz.kaspi=WARN",
+                        // Уровни логирования общие на JVM: итоговые строки теста не глушим
+                        "--logging.level.kz.kaspi.lab.enrichment.VirtualThreadsLoadTest=INFO")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            // Прогрев: JIT, пул соединений Tomcat, ленивые бины
+            sendAll(client, port, "warmup-" + virtualThreads + "-", 50);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+
+            AtomicLong peakInFlight = new AtomicLong();
+            AtomicLong peakThreads = new AtomicLong();
+            AtomicLong peakHeap = new AtomicLong();
+            Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    LongTaskTimer active = meterRegistry.find("http.server.requests.active").longTaskTimer();
+                    if (active != null) {
+                        peakInFlight.accumulateAndGet(active.activeTasks(), Math::max);
+                    }
+                    peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+                    peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            long start = System.nanoTime();
+            // Уникальные clientId: каждый запрос — промах кэша и 50-150 мс ожидания бэкенда
+            int ok = sendAll(client, port, "load-" + virtualThreads + "-", REQUESTS);
+            long wallMillis = (System.nanoTime() - start) / 1_000_000;
+            sampler.interrupt();
+            sampler.join();
+
+            assertEquals(REQUESTS, ok);
+            return new Result(virtualThreads ? "virtual" : "platform", wallMillis, peakInFlight.get(),
+                    peakThreads.get(), Math.max(0, peakHeap.get() - baselineHeap));
+        }
+    }
+
+    private static int sendAll(HttpClient client, int port, String prefix, int count) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/api/v1/clients/" + prefix + i + "/enrichment")).build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        return (int) responses.stream().map(CompletableFuture::join).filter(r -> r.statusCode() == 200).count();
+    }
+
+    private record Result(String mode, long wallMillis, long peakInFlight, long peakPlatformThreads,
+                          long peakHeapDelta) {
+    }
+}
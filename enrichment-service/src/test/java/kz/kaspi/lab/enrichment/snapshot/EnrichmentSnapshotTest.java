@@ -0,0 +1,104 @@
+package kz.kaspi.lab.enrichment.snapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.enrichment.model.EnrichmentData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnrichmentSnapshotTest {
+
+    private static final String HEADER =
+            "clientId,fraudScore,supportRating,isVIP,previousComplaints,riskCategory,lastInteractionTimestamp";
+
+    private final ObjectReader jsonReader = JsonMapper.builder().build().readerFor(EnrichmentData.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void servesProfilesFromCsvDump() throws Exception {
+        Path dump = directory.resolve("dump.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(dump)) {
+            out.write(HEADER + "\n");
+            out.write("c1,0.25,4.5,true,3,HIGH,1700000000000\n");
+            out.write("c2,,,,,,\n");
+            out.write("c3,0.1,1.0,false,0,UNKNOWN,0\n");
+            out.write("c4,not-a-number,1.0,false,0,LOW,0\n");
+            for (int i = 0; i < 10_000; i++) {
+                out.write("client-" + i + "," + i / 10_000.0 + ",5.0,false," + i + ",LOW," + i + "\n");
+            }
+            // Повтор: побеждает последняя строка
+            out.write("client-7,0.99,1.0,true,1,CRITICAL,7\n");
+        }
+
+        try (EnrichmentSnapshot snapshot = open(dump)) {
+            assertTrue(snapshot.reload());
+            assertEquals(10_002, snapshot.size());
+
+            assertEquals(new EnrichmentData("c1", 0.25, 4.5, true, 3, "HIGH", 1_700_000_000_000L),
+                    snapshot.lookup("c1"));
+            assertEquals(new EnrichmentData("c2", null, null, null, null, null, null), snapshot.lookup("c2"));
+            assertEquals(new EnrichmentData("client-42", 0.0042, 5.0, false, 42, "LOW", 42L),
+                    snapshot.lookup("client-42"));
+            assertEquals(new EnrichmentData("client-7", 0.99, 1.0, true, 1, "CRITICAL", 7L),
+                    snapshot.lookup("client-7"));
+            // Строки с неизвестной категорией и нечисловыми полями пропущены
+            assertNull(snapshot.lookup("c3"));
+            assertNull(snapshot.lookup("c4"));
+            assertNull(snapshot.lookup("client-10000"));
+        }
+    }
+
+    @Test
+    void hotSwapsWhenDumpChanges() throws Exception {
+        Path dump = directory.resolve("dump.jsonl");
+        Files.writeString(dump, """
+                {"clientId":"c1","fraudScore":0.1,"riskCategory":"LOW"}
+                """);
+        try (EnrichmentSnapshot snapshot = open(dump)) {
+            assertTrue(snapshot.reload());
+            assertFalse(snapshot.reload());
+            assertEquals(0.1, snapshot.lookup("c1").getFraudScore());
+
+            Path next = directory.resolve("next.jsonl");
+            Files.writeString(next, """
+                    {"clientId":"c1","fraudScore":0.8,"riskCategory":"HIGH"}
+                    {"clientId":"c2","isVIP":true}
+                    """);
+            Files.setLastModifiedTime(next, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+            Files.move(next, dump, StandardCopyOption.ATOMIC_MOVE);
+
+            assertTrue(snapshot.reload());
+            assertEquals(2, snapshot.size());
+            assertEquals("HIGH", snapshot.lookup("c1").getRiskCategory());
+            assertTrue(snapshot.lookup("c2").getIsVIP());
+            // Прежний собранный снимок удалён, остался только текущий
+            try (var built = Files.list(directory.resolve("built"))) {
+                assertEquals(1, built.count());
+            }
+
+            // Битая выгрузка не заменяет рабочий снимок
+            Files.writeString(dump, "{not json");
+            Files.setLastModifiedTime(dump, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+            assertFalse(snapshot.reload());
+            assertEquals(2, snapshot.size());
+        }
+    }
+
+    private EnrichmentSnapshot open(Path dump) {
+        return new EnrichmentSnapshot(dump, directory.resolve("built"), jsonReader, new SimpleMeterRegistry());
+    }
+}
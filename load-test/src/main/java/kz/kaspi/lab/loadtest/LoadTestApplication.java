@@ -0,0 +1,13 @@
+package kz.kaspi.lab.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        // Прогон — одна задача: по её окончании процесс завершается с кодом из LoadTestRunner
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+    }
+}
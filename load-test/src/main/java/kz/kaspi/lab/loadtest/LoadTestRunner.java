@@ -0,0 +1,432 @@
+package kz.kaspi.lab.loadtest;
+
+import kz.kaspi.lab.loadtest.generator.AppealGenerator;
+import kz.kaspi.lab.loadtest.generator.LoadGenerator;
+import kz.kaspi.lab.loadtest.generator.WeightedMix;
+import kz.kaspi.lab.loadtest.generator.ZipfSampler;
+import kz.kaspi.lab.loadtest.metrics.GcProbe;
+import kz.kaspi.lab.loadtest.metrics.LagSampler;
+import kz.kaspi.lab.loadtest.metrics.ResultCollector;
+import kz.kaspi.lab.loadtest.report.LoadTestReport;
+import kz.kaspi.lab.loadtest.stub.LatencyDistribution;
+import kz.kaspi.lab.loadtest.stub.StubEnrichmentServer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.GroupIdNotFoundException;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Прогон: брокер и заглушка enrichment-service, ожидание подключения moderation-service, прогрев,
+// замерная фаза с постоянной скоростью, добор результатов и отчёт. Код выхода 1 — не все обращения
+// замерной фазы получили результат за drain-timeout (сервис не выдерживает заданную скорость)
+@Slf4j
+@Component
+public class LoadTestRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${loadtest.run-id:}")
+    private String runId;
+
+    @Value("${loadtest.seed:42}")
+    private long seed;
+
+    @Value("${loadtest.rate:1000}")
+    private double rate;
+
+    @Value("${loadtest.warmup:30s}")
+    private Duration warmup;
+
+    @Value("${loadtest.duration:2m}")
+    private Duration duration;
+
+    @Value("${loadtest.drain-timeout:1m}")
+    private Duration drainTimeout;
+
+    @Value("${loadtest.appeals.clients:100000}")
+    private int clients;
+
+    @Value("${loadtest.appeals.skew:0.9}")
+    private double skew;
+
+    @Value("${loadtest.appeals.priorities:URGENT:2,HIGH:10,NORMAL:70,LOW:18}")
+    private String priorities;
+
+    @Value("${loadtest.appeals.categories:COMPLAINT:20,QUESTION:60,FEEDBACK:20}")
+    private String categories;
+
+    @Value("${loadtest.appeals.message-length:40-400}")
+    private String messageLength;
+
+    @Value("${loadtest.kafka.bootstrap-servers:}")
+    private String bootstrapServers;
+
+    @Value("${loadtest.kafka.partitions:6}")
+    private int partitions;
+
+    @Value("${loadtest.kafka.topics.appeals:appeals-topic}")
+    private String appealsTopic;
+
+    @Value("${loadtest.kafka.topics.approved:approved-topic}")
+    private String approvedTopic;
+
+    @Value("${loadtest.kafka.topics.review:review-topic}")
+    private String reviewTopic;
+
+    @Value("${loadtest.kafka.topics.dead-letter:appeals-topic-dlt}")
+    private String deadLetterTopic;
+
+    @Value("${loadtest.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${loadtest.producer.compression:lz4}")
+    private String compression;
+
+    @Value("${loadtest.stub.enabled:true}")
+    private boolean stubEnabled;
+
+    @Value("${loadtest.stub.port:8081}")
+    private int stubPort;
+
+    @Value("${loadtest.stub.latency:lognormal:20ms,150ms}")
+    private String stubLatency;
+
+    @Value("${loadtest.stub.error-rate:0.0}")
+    private double stubErrorRate;
+
+    @Value("${loadtest.target.group:moderation-service-group}")
+    private String targetGroup;
+
+    @Value("${loadtest.target.actuator-url:http://localhost:8080/actuator}")
+    private String actuatorUrl;
+
+    @Value("${loadtest.target.wait-timeout:10m}")
+    private Duration targetWaitTimeout;
+
+    @Value("${loadtest.target.jar:}")
+    private String targetJar;
+
+    @Value("${loadtest.target.jvm-args:}")
+    private String targetJvmArgs;
+
+    @Value("${loadtest.target.args:}")
+    private String targetArgs;
+
+    @Value("${loadtest.report.directory:load-test-reports}")
+    private String reportDirectory;
+
+    @Value("${loadtest.report.interval:5s}")
+    private Duration reportInterval;
+
+    @Value("${loadtest.report.baseline:}")
+    private String baseline;
+
+    private int exitCode;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String run = runId.isBlank() ? RUN_ID.format(LocalDateTime.now()) : runId;
+        long warmupCount = (long) (rate * warmup.toNanos() / 1e9);
+        long total = warmupCount + (long) (rate * duration.toNanos() / 1e9);
+        if (rate <= 0 || total - warmupCount <= 0 || total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("rate * (warmup + duration) must be between 1 and 2^31 appeals");
+        }
+
+        EmbeddedKafkaKraftBroker broker = null;
+        StubEnrichmentServer stub = null;
+        Process target = null;
+        try {
+            String bootstrap = bootstrapServers;
+            if (bootstrap.isBlank()) {
+                // Порт встроенного брокера случайный: сервису он передаётся в --spring.kafka.bootstrap-servers
+                broker = new EmbeddedKafkaKraftBroker(1, partitions);
+                broker.afterPropertiesSet();
+                bootstrap = broker.getBrokersAsString();
+                log.info("Embedded Kafka broker started at {}", bootstrap);
+            }
+            if (stubEnabled) {
+                stub = new StubEnrichmentServer(stubPort, LatencyDistribution.parse(stubLatency), stubErrorRate);
+            }
+            try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap))) {
+                createTopics(admin);
+                if (!targetJar.isBlank()) {
+                    target = launchTarget(bootstrap, run);
+                }
+                if (!awaitTarget(admin, bootstrap)) {
+                    exitCode = 2;
+                    return;
+                }
+                execute(admin, bootstrap, run, warmupCount, total, stub);
+            }
+        } finally {
+            if (target != null) {
+                target.destroy();
+                target.waitFor(30, TimeUnit.SECONDS);
+            }
+            if (stub != null) {
+                stub.close();
+            }
+            if (broker != null) {
+                broker.destroy();
+            }
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private void execute(Admin admin, String bootstrap, String run, long warmupCount, long total,
+                         StubEnrichmentServer stub) throws Exception {
+        int appealPartitions = admin.describeTopics(List.of(appealsTopic)).allTopicNames().get()
+                .get(appealsTopic).partitions().size();
+        String[] lengths = messageLength.split("-");
+        AppealGenerator appeals = new AppealGenerator(seed, run, new ZipfSampler(clients, skew),
+                WeightedMix.parse(priorities), WeightedMix.parse(categories),
+                Integer.parseInt(lengths[0].trim()), Integer.parseInt(lengths[lengths.length - 1].trim()));
+        GcProbe gc = new GcProbe(actuatorUrl);
+
+        try (LagSampler lag = new LagSampler(admin, targetGroup, appealsTopic, appealPartitions);
+             KafkaProducer<String, byte[]> producer = new KafkaProducer<>(producerConfig(bootstrap),
+                     new StringSerializer(), new ByteArraySerializer())) {
+            LoadGenerator[] generator = new LoadGenerator[1];
+            ResultCollector collector = new ResultCollector(consumerConfig(bootstrap),
+                    List.of(approvedTopic, reviewTopic), deadLetterTopic, AppealGenerator.appealIdPrefix(run),
+                    warmupCount, total, reportInterval, () -> generator[0].sent(), lag::current);
+            collector.assignAtEnd();
+
+            LoadGenerator.Schedule schedule = new LoadGenerator.Schedule(System.nanoTime() + 100_000_000L, rate);
+            generator[0] = new LoadGenerator(producer, appealsTopic, appeals, schedule, total);
+            collector.schedule(schedule);
+            lag.start(Duration.ofSeconds(1));
+            Thread collectorThread = start("result-collector", collector);
+            Thread generatorThread = start("load-generator", generator[0]);
+            log.info("Run {}: {} warm-up appeals, then {} measured at {}/s", run, warmupCount,
+                    total - warmupCount, rate);
+
+            long measuredStart = schedule.intendedNanos(warmupCount);
+            parkUntil(measuredStart);
+            GcProbe.Snapshot targetGcStart = gc.target();
+            GcProbe.Snapshot localGcStart = GcProbe.local();
+            lag.record(true);
+
+            generatorThread.join();
+            long sendEnd = System.nanoTime();
+            long lagAtSendEnd = lag.current();
+            long drainDeadline = sendEnd + drainTimeout.toNanos();
+            while (!collector.complete() && System.nanoTime() < drainDeadline) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            lag.record(false);
+            collector.stop();
+            collectorThread.join();
+
+            GcProbe.Snapshot targetGcEnd = gc.target();
+            GcProbe.Snapshot localGc = GcProbe.local().minus(localGcStart);
+            double measuredSeconds = Math.max(1, collector.lastMeasuredNanos() - measuredStart) / 1e9;
+            long measured = total - warmupCount;
+
+            LoadTestReport report = new LoadTestReport()
+                    .config("run", run)
+                    .config("rate", rate)
+                    .config("warmup", warmup)
+                    .config("duration", duration)
+                    .config("clients", clients)
+                    .config("skew", skew)
+                    .config("priorities", priorities)
+                    .config("categories", categories)
+                    .config("message-length", messageLength)
+                    .config("partitions", appealPartitions)
+                    .config("kafka", bootstrapServers.isBlank() ? "embedded" : bootstrapServers)
+                    .config("stub", stub != null ? stubLatency + ", errors " + stubErrorRate : "off");
+
+            report.metric("appeals.measured", measured)
+                    .metric("appeals.send.failed", generator[0].failed())
+                    .metric("results.received", collector.measuredReceived())
+                    .metric("results.missing", measured - collector.measuredReceived())
+                    .metric("results.duplicates", collector.duplicates());
+            collector.perTopic().forEach((topic, count) -> report.metric("results.topic." + topic, count));
+            report.metric("throughput.sent.per.sec",
+                            round(measured * 1e9 / Math.max(1, sendEnd - measuredStart)))
+                    .metric("throughput.results.per.sec", round(collector.measuredReceived() / measuredSeconds));
+
+            Histogram latency = collector.latency();
+            report.metric("latency.mean.ms", round(latency.getMean() / 1000))
+                    .metric("latency.p50.ms", millis(latency.getValueAtPercentile(50)))
+                    .metric("latency.p90.ms", millis(latency.getValueAtPercentile(90)))
+                    .metric("latency.p99.ms", millis(latency.getValueAtPercentile(99)))
+                    .metric("latency.p99.9.ms", millis(latency.getValueAtPercentile(99.9)))
+                    .metric("latency.max.ms", millis(latency.getMaxValue()))
+                    .metric("generator.max.behind.ms", round(generator[0].maxBehindNanos() / 1e6));
+
+            List<Long> lagSamples = new ArrayList<>(lag.samples());
+            lagSamples.sort(null);
+            if (!lagSamples.isEmpty()) {
+                report.metric("lag.mean", round(lagSamples.stream().mapToLong(Long::longValue).average().orElse(0)))
+                        .metric("lag.p99", lagSamples.get((int) Math.min(lagSamples.size() - 1,
+                                Math.ceil(lagSamples.size() * 0.99) - 1)))
+                        .metric("lag.max", lagSamples.getLast())
+                        .metric("lag.at.send.end", lagAtSendEnd);
+            }
+
+            if (targetGcStart != null && targetGcEnd != null) {
+                GcProbe.Snapshot targetGc = targetGcEnd.minus(targetGcStart);
+                double wallSeconds = (System.nanoTime() - measuredStart) / 1e9;
+                report.metric("gc.service.pauses", targetGc.pauses())
+                        .metric("gc.service.pause.ms", round(targetGc.pauseSeconds() * 1000))
+                        .metric("gc.service.pause.percent", round(targetGc.pauseSeconds() / wallSeconds * 100))
+                        .metric("gc.service.max.pause.ms", round(targetGc.maxPauseSeconds() * 1000))
+                        .metric("gc.service.allocated.mb.per.sec",
+                                round(targetGc.allocatedBytes() / wallSeconds / (1 << 20)));
+            }
+            report.metric("gc.loadtest.pauses", localGc.pauses())
+                    .metric("gc.loadtest.pause.ms", round(localGc.pauseSeconds() * 1000));
+
+            if (stub != null) {
+                report.metric("stub.requests.single", stub.singleRequests())
+                        .metric("stub.requests.batch", stub.batchRequests())
+                        .metric("stub.batch.clients", stub.batchedClients())
+                        .metric("stub.errors", stub.errors());
+            }
+
+            Path file = report.write(Path.of(reportDirectory), run);
+            log.info("Load test report ({}):{}", file, report.format());
+            if (!baseline.isBlank()) {
+                log.info("Compared with {}:{}", baseline, report.compareWith(Path.of(baseline)));
+            }
+            exitCode = collector.complete() ? 0 : 1;
+        }
+    }
+
+    private void createTopics(Admin admin) throws Exception {
+        for (String topic : List.of(appealsTopic, approvedTopic, reviewTopic, deadLetterTopic)) {
+            try {
+                admin.createTopics(List.of(new NewTopic(topic, partitions, (short) 1))).all().get();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof TopicExistsException)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Нагрузка без подключённого сервиса измеряла бы только брокер: ждём участников группы
+    private boolean awaitTarget(Admin admin, String bootstrap) throws Exception {
+        if (targetWaitTimeout.isZero()) {
+            return true;
+        }
+        if (targetJar.isBlank()) {
+            log.info("Waiting up to {} for consumer group {}. Start moderation-service with "
+                            + "--spring.kafka.bootstrap-servers={}{}", targetWaitTimeout, targetGroup, bootstrap,
+                    stubEnabled ? " --enrichment.service.url=http://localhost:" + stubPort : "");
+        }
+        long deadline = System.nanoTime() + targetWaitTimeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (!admin.describeConsumerGroups(List.of(targetGroup)).all().get()
+                        .get(targetGroup).members().isEmpty()) {
+                    return true;
+                }
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof GroupIdNotFoundException)) {
+                    throw e;
+                }
+            }
+            TimeUnit.SECONDS.sleep(1);
+        }
+        log.error("Consumer group {} did not join within {}", targetGroup, targetWaitTimeout);
+        return false;
+    }
+
+    // Сервис в отдельном процессе, уже направленный на брокер и заглушку стенда; его вывод — рядом с отчётом
+    private Process launchTarget(String bootstrap, String run) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(split(targetJvmArgs));
+        command.add("-jar");
+        command.add(targetJar);
+        command.add("--spring.kafka.bootstrap-servers=" + bootstrap);
+        if (stubEnabled) {
+            command.add("--enrichment.service.url=http://localhost:" + stubPort);
+        }
+        command.addAll(split(targetArgs));
+        Path directory = Path.of(reportDirectory);
+        Files.createDirectories(directory);
+        Path output = directory.resolve("service-" + run + ".log");
+        log.info("Starting {} (output in {})", String.join(" ", command), output);
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output.toFile()).start();
+    }
+
+    private static List<String> split(String args) {
+        return args.isBlank() ? List.of() : List.of(args.trim().split("\\s+"));
+    }
+
+    private Map<String, Object> producerConfig(String bootstrap) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        return config;
+    }
+
+    private static Map<String, Object> consumerConfig(String bootstrap) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Результат транзакционного producer'а виден только после коммита — это и есть его задержка
+        config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 20);
+        return config;
+    }
+
+    private static Thread start(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void parkUntil(long nanos) {
+        long wait;
+        while ((wait = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
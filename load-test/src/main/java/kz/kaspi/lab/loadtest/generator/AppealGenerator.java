@@ -0,0 +1,104 @@
+package kz.kaspi.lab.loadtest.generator;
+
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+// Поток обращений в формате AppealEvent moderation-service. Детерминирован при одном seed:
+// прогоны с разными настройками сервиса получают один и тот же поток
+public final class AppealGenerator {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private static final String[] WORDS = {
+            "перевод", "карта", "счёт", "платёж", "кредит", "депозит", "приложение", "кэшбэк", "лимит",
+            "комиссия", "вчера", "сегодня", "пожалуйста", "почему", "когда", "сумма", "тенге", "статус",
+            "transfer", "card", "payment", "account", "please", "status", "аударым", "төлем", "шот"
+    };
+    // Из complaint-keywords.txt moderation-service: у COMPLAINT детектор жалоб должен срабатывать
+    private static final String[] COMPLAINT_WORDS = {
+            "не работает", "ошибка", "жалоба", "проблема", "problem", "issue", "қате", "шағым"
+    };
+
+    public record Appeal(String appealId, String clientId, String message, String timestamp,
+                         String category, String priority) {
+    }
+
+    private final ObjectWriter writer = JsonMapper.builder().build().writerFor(Appeal.class);
+    private final SplittableRandom random;
+    private final String idPrefix;
+    private final ZipfSampler clients;
+    private final WeightedMix priorities;
+    private final WeightedMix categories;
+    private final int minLength;
+    private final int maxLength;
+    private final StringBuilder message = new StringBuilder();
+
+    private long timestampSecond = -1;
+    private String timestamp;
+
+    public AppealGenerator(long seed, String runId, ZipfSampler clients, WeightedMix priorities,
+                           WeightedMix categories, int minLength, int maxLength) {
+        if (minLength <= 0 || maxLength < minLength) {
+            throw new IllegalArgumentException("Invalid message length range " + minLength + ".." + maxLength);
+        }
+        this.random = new SplittableRandom(seed);
+        this.idPrefix = appealIdPrefix(runId);
+        this.clients = clients;
+        this.priorities = priorities;
+        this.categories = categories;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    public static String appealIdPrefix(String runId) {
+        return "lt-" + runId + "-";
+    }
+
+    // Номер обращения в прогоне по его appealId, -1 — чужое обращение
+    public static long sequenceOf(String appealId, String prefix) {
+        if (appealId == null || !appealId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(appealId, prefix.length(), appealId.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public Appeal next(long sequence) {
+        String category = categories.next(random);
+        return new Appeal(idPrefix + sequence, "client-" + clients.next(random), message(category), timestamp(),
+                category, priorities.next(random));
+    }
+
+    public byte[] serialize(Appeal appeal) {
+        return writer.writeValueAsBytes(appeal);
+    }
+
+    private String message(String category) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        message.setLength(0);
+        if ("COMPLAINT".equals(category)) {
+            message.append(COMPLAINT_WORDS[random.nextInt(COMPLAINT_WORDS.length)]).append(' ');
+        }
+        while (message.length() < length) {
+            message.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        message.setLength(length);
+        return message.toString();
+    }
+
+    private String timestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != timestampSecond) {
+            timestampSecond = second;
+            timestamp = TIMESTAMP.format(LocalDateTime.now());
+        }
+        return timestamp;
+    }
+}
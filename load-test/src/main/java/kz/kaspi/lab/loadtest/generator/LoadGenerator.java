@@ -0,0 +1,92 @@
+package kz.kaspi.lab.loadtest.generator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Открытая модель нагрузки: обращение n уходит в момент start + n / rate независимо от того, успевает ли
+// сервис. Задержка считается от этого запланированного момента, поэтому отставание самого генератора
+// (заполненный буфер producer'а, паузы GC) попадает в задержку, а не прячется (coordinated omission)
+@Slf4j
+public final class LoadGenerator implements Runnable {
+
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    private final Producer<String, byte[]> producer;
+    private final String topic;
+    private final AppealGenerator appeals;
+    private final Schedule schedule;
+    private final long total;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long maxBehindNanos;
+    private volatile boolean stopped;
+
+    // Расписание отправок; его же использует сборщик результатов, чтобы не хранить время каждой отправки
+    public record Schedule(long startNanos, double rate) {
+
+        public long intendedNanos(long sequence) {
+            return startNanos + (long) (sequence * 1_000_000_000.0 / rate);
+        }
+    }
+
+    public LoadGenerator(Producer<String, byte[]> producer, String topic, AppealGenerator appeals,
+                         Schedule schedule, long total) {
+        this.producer = producer;
+        this.topic = topic;
+        this.appeals = appeals;
+        this.schedule = schedule;
+        this.total = total;
+    }
+
+    @Override
+    public void run() {
+        for (long sequence = 0; sequence < total && !stopped; sequence++) {
+            long intended = schedule.intendedNanos(sequence);
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                if (wait > SPIN_THRESHOLD_NANOS) {
+                    LockSupport.parkNanos(wait - SPIN_THRESHOLD_NANOS);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+            long behind = -wait;
+            if (behind > maxBehindNanos) {
+                maxBehindNanos = behind;
+            }
+            AppealGenerator.Appeal appeal = appeals.next(sequence);
+            producer.send(new ProducerRecord<>(topic, appeal.clientId(), appeals.serialize(appeal)), (metadata, e) -> {
+                if (e != null) {
+                    if (failed.getAndIncrement() == 0) {
+                        log.error("Failed to send appeal {}: {}", appeal.appealId(), e.getMessage());
+                    }
+                } else {
+                    sent.incrementAndGet();
+                }
+            });
+        }
+        producer.flush();
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public long sent() {
+        return sent.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    // Насколько генератор отставал от расписания: если это сравнимо с задержкой сервиса, узким местом был стенд
+    public long maxBehindNanos() {
+        return maxBehindNanos;
+    }
+}
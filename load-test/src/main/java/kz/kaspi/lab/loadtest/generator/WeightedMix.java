@@ -0,0 +1,51 @@
+package kz.kaspi.lab.loadtest.generator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Доли значений из строки вида "URGENT:2,HIGH:10,NORMAL:70,LOW:18"; веса не обязаны давать в сумме 100
+public final class WeightedMix {
+
+    private final String[] values;
+    private final double[] cumulative;
+
+    private WeightedMix(String[] values, double[] cumulative) {
+        this.values = values;
+        this.cumulative = cumulative;
+    }
+
+    public static WeightedMix parse(String spec) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected VALUE:WEIGHT in mix, got '" + part + "'");
+            }
+            double weight = Double.parseDouble(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + part);
+            }
+            weights.merge(pair[0].trim(), weight, Double::sum);
+        }
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Mix has no positive weights: " + spec);
+        }
+        String[] values = weights.keySet().toArray(String[]::new);
+        double[] cumulative = new double[values.length];
+        double running = 0;
+        for (int i = 0; i < values.length; i++) {
+            running += weights.get(values[i]) / total;
+            cumulative[i] = running;
+        }
+        cumulative[values.length - 1] = 1.0;
+        return new WeightedMix(values, cumulative);
+    }
+
+    public String next(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return values[index >= 0 ? index : -index - 1];
+    }
+}
@@ -0,0 +1,35 @@
+package kz.kaspi.lab.loadtest.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Номер клиента 0..n-1 с вероятностью ~ 1 / (rank + 1)^skew: при skew 0 — равномерно,
+// при skew ~1 горстка клиентов даёт заметную долю обращений (горячие ключи и партиции)
+public final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    public ZipfSampler(int clients, double skew) {
+        if (clients <= 0) {
+            throw new IllegalArgumentException("clients must be positive: " + clients);
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("skew must not be negative: " + skew);
+        }
+        cumulative = new double[clients];
+        double running = 0;
+        for (int rank = 0; rank < clients; rank++) {
+            running += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = running;
+        }
+        for (int rank = 0; rank < clients; rank++) {
+            cumulative[rank] /= running;
+        }
+        cumulative[clients - 1] = 1.0;
+    }
+
+    public int next(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,80 @@
+package kz.kaspi.lab.loadtest.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// GC сервиса под нагрузкой — из его actuator (jvm.gc.pause, jvm.gc.memory.allocated), накопительные
+// значения на начало и конец замерной фазы. GC самого стенда — из MXBean'ов: если он заметен,
+// встроенный брокер и заглушка мешают замеру и их стоит вынести в отдельный процесс
+@Slf4j
+public class GcProbe {
+
+    public record Snapshot(long pauses, double pauseSeconds, double maxPauseSeconds, double allocatedBytes) {
+
+        public Snapshot minus(Snapshot start) {
+            return new Snapshot(pauses - start.pauses, pauseSeconds - start.pauseSeconds, maxPauseSeconds,
+                    allocatedBytes - start.allocatedBytes);
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final ObjectMapper mapper = JsonMapper.builder().build();
+    private final String actuatorUrl;
+
+    public GcProbe(String actuatorUrl) {
+        this.actuatorUrl = actuatorUrl.endsWith("/") ? actuatorUrl.substring(0, actuatorUrl.length() - 1) : actuatorUrl;
+    }
+
+    // null — actuator недоступен (сервис без actuator или на другом адресе)
+    public Snapshot target() {
+        try {
+            JsonNode pause = metric("jvm.gc.pause");
+            JsonNode allocated = metric("jvm.gc.memory.allocated");
+            return new Snapshot((long) statistic(pause, "COUNT"), statistic(pause, "TOTAL_TIME"),
+                    statistic(pause, "MAX"), statistic(allocated, "COUNT"));
+        } catch (Exception e) {
+            log.warn("GC metrics of the service are unavailable at {}: {}", actuatorUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    public static Snapshot local() {
+        long pauses = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            pauses += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new Snapshot(pauses, millis / 1000.0, Double.NaN, Double.NaN);
+    }
+
+    private JsonNode metric(String name) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(actuatorUrl + "/metrics/" + name))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(name + " returned HTTP " + response.statusCode());
+        }
+        return mapper.readTree(response.body());
+    }
+
+    private static double statistic(JsonNode metric, String statistic) {
+        for (JsonNode measurement : metric.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asString())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+}
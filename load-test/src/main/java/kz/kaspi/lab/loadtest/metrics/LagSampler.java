@@ -0,0 +1,101 @@
+package kz.kaspi.lab.loadtest.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Отставание группы moderation-service по входному топику: сумма (конец партиции - закоммиченный offset).
+// Снимается раз в interval через Admin; статистика — по снимкам замерной фазы
+@Slf4j
+public class LagSampler implements AutoCloseable {
+
+    private final Admin admin;
+    private final String group;
+    private final List<TopicPartition> partitions = new ArrayList<>();
+    private final Map<TopicPartition, Long> startOffsets = new HashMap<>();
+    private final List<Long> samples = new ArrayList<>();
+    private final ScheduledExecutorService sampler;
+
+    private volatile long current;
+    private boolean recording;
+
+    public LagSampler(Admin admin, String group, String topic, int partitionCount) throws Exception {
+        this.admin = admin;
+        this.group = group;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitions.add(new TopicPartition(topic, partition));
+        }
+        // До первого коммита группы отставание считается от конца партиции на момент старта прогона
+        startOffsets.putAll(endOffsets());
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lag-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start(Duration interval) {
+        long millis = interval.toMillis();
+        sampler.scheduleWithFixedDelay(this::sample, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public long current() {
+        return current;
+    }
+
+    public synchronized void record(boolean enabled) {
+        recording = enabled;
+    }
+
+    public synchronized List<Long> samples() {
+        return List.copyOf(samples);
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    private void sample() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(group)
+                    .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS);
+            long lag = 0;
+            for (Map.Entry<TopicPartition, Long> end : endOffsets().entrySet()) {
+                OffsetAndMetadata offset = committed.get(end.getKey());
+                long position = offset != null ? offset.offset() : startOffsets.getOrDefault(end.getKey(), 0L);
+                lag += Math.max(0, end.getValue() - position);
+            }
+            current = lag;
+            synchronized (this) {
+                if (recording) {
+                    samples.add(lag);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Failed to sample consumer lag: {}", e.getMessage());
+        }
+    }
+
+    private Map<TopicPartition, Long> endOffsets() throws Exception {
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        partitions.forEach(partition -> request.put(partition, OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> result =
+                admin.listOffsets(request).all().get(5, TimeUnit.SECONDS);
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        result.forEach((partition, info) -> offsets.put(partition, info.offset()));
+        return offsets;
+    }
+}
@@ -0,0 +1,192 @@
+package kz.kaspi.lab.loadtest.metrics;
+
+import kz.kaspi.lab.loadtest.generator.AppealGenerator;
+import kz.kaspi.lab.loadtest.generator.LoadGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Читает выходные топики без группы (assign с конца) и сопоставляет результаты с отправленными обращениями
+// по appealId: ключ результата — appealId, в DLT лежит исходное обращение. Задержка — от запланированного
+// момента отправки до получения здесь; обращения прогрева в гистограмму не попадают
+@Slf4j
+public class ResultCollector implements Runnable {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final List<String> resultTopics;
+    private final String deadLetterTopic;
+    private final String idPrefix;
+    private final long warmup;
+    private final long total;
+    private final Duration progressInterval;
+    private final LongSupplier sentCount;
+    private final LongSupplier lag;
+    private final ObjectReader appealIdReader = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build()
+            .readerFor(AppealId.class);
+
+    private final Histogram latency = new Histogram(MAX_LATENCY_MICROS, 3);
+    private final Histogram intervalLatency = new Histogram(MAX_LATENCY_MICROS, 3);
+    private final BitSet received = new BitSet();
+    private final Map<String, Long> perTopic = new LinkedHashMap<>();
+
+    private LoadGenerator.Schedule schedule;
+    private volatile boolean stopped;
+    private volatile long measuredReceived;
+    private long duplicates;
+    private long lastMeasuredNanos;
+
+    private record AppealId(String appealId) {
+    }
+
+    public ResultCollector(Map<String, Object> consumerConfig, List<String> resultTopics, String deadLetterTopic,
+                           String idPrefix, long warmup, long total,
+                           Duration progressInterval, LongSupplier sentCount, LongSupplier lag) {
+        this.consumer = new KafkaConsumer<>(consumerConfig, new StringDeserializer(), new ByteArrayDeserializer());
+        this.resultTopics = resultTopics;
+        this.deadLetterTopic = deadLetterTopic;
+        this.idPrefix = idPrefix;
+        this.warmup = warmup;
+        this.total = total;
+        this.progressInterval = progressInterval;
+        this.sentCount = sentCount;
+        this.lag = lag;
+        List<String> topics = new ArrayList<>(resultTopics);
+        topics.add(deadLetterTopic);
+        topics.forEach(topic -> perTopic.put(topic, 0L));
+    }
+
+    // До старта генератора: позиции фиксируются на конце, старые результаты не читаются
+    public void assignAtEnd() {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (String topic : perTopic.keySet()) {
+            for (PartitionInfo info : consumer.partitionsFor(topic)) {
+                partitions.add(new TopicPartition(topic, info.partition()));
+            }
+        }
+        consumer.assign(partitions);
+        consumer.seekToEnd(partitions);
+        partitions.forEach(consumer::position);
+    }
+
+    // Расписание известно после assignAtEnd и задаётся до запуска потока сборщика
+    public void schedule(LoadGenerator.Schedule schedule) {
+        this.schedule = schedule;
+    }
+
+    @Override
+    public void run() {
+        long nextProgress = System.nanoTime() + progressInterval.toNanos();
+        long receivedAtLastProgress = 0;
+        try {
+            while (!stopped) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(100));
+                long now = System.nanoTime();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    accept(record, now);
+                }
+                if (now >= nextProgress) {
+                    long receivedNow = received.cardinality();
+                    double seconds = progressInterval.toNanos() / 1e9;
+                    log.info("sent={} results={} ({}/s) p50={}ms p99={}ms lag={}",
+                            sentCount.getAsLong(), receivedNow, Math.round((receivedNow - receivedAtLastProgress) / seconds),
+                            millis(intervalLatency.getValueAtPercentile(50)),
+                            millis(intervalLatency.getValueAtPercentile(99)), lag.getAsLong());
+                    intervalLatency.reset();
+                    receivedAtLastProgress = receivedNow;
+                    nextProgress = now + progressInterval.toNanos();
+                }
+            }
+        } finally {
+            consumer.close();
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    // Все ли обращения замерной фазы получили результат
+    public boolean complete() {
+        return measuredReceived >= total - warmup;
+    }
+
+    public long measuredReceived() {
+        return measuredReceived;
+    }
+
+    // Дальше — только после остановки потока сборщика
+    public Histogram latency() {
+        return latency;
+    }
+
+    public long duplicates() {
+        return duplicates;
+    }
+
+    public long lastMeasuredNanos() {
+        return lastMeasuredNanos;
+    }
+
+    public Map<String, Long> perTopic() {
+        return perTopic;
+    }
+
+    private void accept(ConsumerRecord<String, byte[]> record, long now) {
+        String appealId = record.topic().equals(deadLetterTopic) ? appealIdOf(record.value()) : record.key();
+        long sequence = AppealGenerator.sequenceOf(appealId, idPrefix);
+        if (sequence < 0 || sequence >= total) {
+            return;
+        }
+        // Повтор результата (at-least-once, retry-топики) не должен давать вторую точку задержки
+        if (received.get((int) sequence)) {
+            duplicates++;
+            return;
+        }
+        received.set((int) sequence);
+        long micros = Math.min(MAX_LATENCY_MICROS,
+                Math.max(1, TimeUnit.NANOSECONDS.toMicros(now - schedule.intendedNanos(sequence))));
+        intervalLatency.recordValue(micros);
+        if (sequence < warmup) {
+            return;
+        }
+        perTopic.merge(record.topic(), 1L, Long::sum);
+        latency.recordValue(micros);
+        lastMeasuredNanos = now;
+        measuredReceived++;
+    }
+
+    private String appealIdOf(byte[] value) {
+        try {
+            return value != null ? appealIdReader.<AppealId>readValue(value).appealId() : null;
+        } catch (JacksonException e) {
+            return null;
+        }
+    }
+
+    static double millis(long micros) {
+        return Math.round(micros / 100.0) / 10.0;
+    }
+}
@@ -0,0 +1,76 @@
+package kz.kaspi.lab.loadtest.report;
+
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Итог прогона: настройки и плоский набор метрик ("latency.p99.ms" и т.п.). Пишется в JSON, чтобы прогоны
+// до и после изменения настроек сравнивались по одним и тем же ключам (loadtest.report.baseline)
+@Slf4j
+public class LoadTestReport {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .build();
+
+    private final Map<String, Object> config = new LinkedHashMap<>();
+    private final Map<String, Object> metrics = new LinkedHashMap<>();
+
+    public LoadTestReport config(String key, Object value) {
+        config.put(key, value);
+        return this;
+    }
+
+    public LoadTestReport metric(String key, Object value) {
+        if (value instanceof Double d && (d.isNaN() || d.isInfinite())) {
+            return this;
+        }
+        metrics.put(key, value);
+        return this;
+    }
+
+    public Map<String, Object> metrics() {
+        return metrics;
+    }
+
+    public Path write(Path directory, String runId) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("report-" + runId + ".json");
+        MAPPER.writeValue(file.toFile(), Map.of("config", config, "metrics", metrics));
+        return file;
+    }
+
+    public String format() {
+        StringBuilder text = new StringBuilder("\n");
+        config.forEach((key, value) -> text.append(String.format("  %-32s %s%n", key, value)));
+        text.append('\n');
+        metrics.forEach((key, value) -> text.append(String.format("  %-32s %s%n", key, value)));
+        return text.toString();
+    }
+
+    // Изменение каждой числовой метрики относительно прошлого отчёта
+    public String compareWith(Path baseline) throws IOException {
+        Map<String, Map<String, Object>> previous = MAPPER.readValue(baseline.toFile(),
+                new TypeReference<Map<String, Map<String, Object>>>() { });
+        Map<String, Object> before = previous.getOrDefault("metrics", Map.of());
+        StringBuilder text = new StringBuilder("\n");
+        text.append(String.format("  %-32s %14s %14s %9s%n", "metric", "baseline", "current", "change"));
+        metrics.forEach((key, value) -> {
+            if (value instanceof Number now && before.get(key) instanceof Number then) {
+                double delta = then.doubleValue() == 0 ? Double.NaN
+                        : (now.doubleValue() - then.doubleValue()) / then.doubleValue() * 100;
+                text.append(String.format("  %-32s %14s %14s %9s%n", key, then, now,
+                        Double.isNaN(delta) ? "-" : String.format("%+.1f%%", delta)));
+            }
+        });
+        return text.toString();
+    }
+}
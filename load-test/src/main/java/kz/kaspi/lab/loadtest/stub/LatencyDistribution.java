@@ -0,0 +1,85 @@
+package kz.kaspi.lab.loadtest.stub;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Задержка ответа заглушки: "fixed:20ms", "uniform:10ms-50ms" или "lognormal:20ms,150ms" (медиана и p99) —
+// у реальных бэкендов хвост тяжёлый, и на нём видна разница между настройками клиента
+public sealed interface LatencyDistribution {
+
+    // z-оценка 99-го перцентиля стандартного нормального распределения
+    double Z_99 = 2.3263;
+
+    long sampleNanos();
+
+    static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected TYPE:PARAMS in latency spec, got '" + spec + "'");
+        }
+        String type = spec.substring(0, colon).trim();
+        String params = spec.substring(colon + 1).trim();
+        return switch (type) {
+            case "fixed" -> new Fixed(nanos(params));
+            case "uniform" -> {
+                String[] range = params.split("-");
+                yield new Uniform(nanos(range[0]), nanos(range[range.length - 1]));
+            }
+            case "lognormal" -> {
+                String[] pair = params.split(",");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("lognormal expects MEDIAN,P99, got '" + params + "'");
+                }
+                yield LogNormal.of(nanos(pair[0]), nanos(pair[1]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + type);
+        };
+    }
+
+    private static long nanos(String value) {
+        Duration duration = DurationStyle.detectAndParse(value.trim());
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Negative latency: " + value);
+        }
+        return duration.toNanos();
+    }
+
+    record Fixed(long nanos) implements LatencyDistribution {
+
+        @Override
+        public long sampleNanos() {
+            return nanos;
+        }
+    }
+
+    record Uniform(long minNanos, long maxNanos) implements LatencyDistribution {
+
+        public Uniform {
+            if (maxNanos < minNanos) {
+                throw new IllegalArgumentException("uniform max is below min");
+            }
+        }
+
+        @Override
+        public long sampleNanos() {
+            return minNanos == maxNanos ? minNanos : ThreadLocalRandom.current().nextLong(minNanos, maxNanos + 1);
+        }
+    }
+
+    record LogNormal(double mu, double sigma) implements LatencyDistribution {
+
+        static LogNormal of(long medianNanos, long p99Nanos) {
+            if (medianNanos <= 0 || p99Nanos < medianNanos) {
+                throw new IllegalArgumentException("lognormal expects 0 < median <= p99");
+            }
+            return new LogNormal(Math.log(medianNanos), Math.log((double) p99Nanos / medianNanos) / Z_99);
+        }
+
+        @Override
+        public long sampleNanos() {
+            return (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package kz.kaspi.lab.loadtest.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Заглушка enrichment-service с тем же API (GET /{clientId}/enrichment и POST /enrichment:batch)
+// и настраиваемой задержкой. Профиль клиента детерминирован по clientId, доли решений правил
+// примерно как на живом трафике: ~7% fraudScore > 0.8, 5% VIP, 10% HIGH/CRITICAL
+@Slf4j
+public class StubEnrichmentServer implements AutoCloseable {
+
+    private static final String PREFIX = "/api/v1/clients/";
+    private static final String[] RISK = {"LOW", "LOW", "LOW", "LOW", "LOW", "LOW", "LOW",
+            "MEDIUM", "MEDIUM", "HIGH"};
+    private static final long MONTH_MILLIS = Duration.ofDays(30).toMillis();
+
+    public record Profile(String clientId, double fraudScore, double supportRating, boolean isVIP,
+                          int previousComplaints, String riskCategory, long lastInteractionTimestamp) {
+    }
+
+    private final ObjectMapper mapper = JsonMapper.builder().build();
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong singleRequests = new AtomicLong();
+    private final AtomicLong batchRequests = new AtomicLong();
+    private final AtomicLong batchedClients = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public StubEnrichmentServer(int port, LatencyDistribution latency, double errorRate) throws IOException {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(port), 4096);
+        this.server.createContext(PREFIX, this::handle);
+        // Поток на запрос: задержка — это sleep, и одновременных запросов может быть тысячи
+        this.server.setExecutor(executor);
+        this.server.start();
+        log.info("Stub enrichment server listening on :{} with latency {}", port, latency);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public long singleRequests() {
+        return singleRequests.get();
+    }
+
+    public long batchRequests() {
+        return batchRequests.get();
+    }
+
+    public long batchedClients() {
+        return batchedClients.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+            Object body;
+            if ("POST".equals(exchange.getRequestMethod()) && path.equals("enrichment:batch")) {
+                List<String> clientIds;
+                try (InputStream in = exchange.getRequestBody()) {
+                    clientIds = mapper.readValue(in, new TypeReference<List<String>>() { });
+                }
+                batchRequests.incrementAndGet();
+                batchedClients.addAndGet(clientIds.size());
+                List<Profile> profiles = new ArrayList<>(clientIds.size());
+                clientIds.forEach(clientId -> profiles.add(profile(clientId)));
+                body = profiles;
+            } else if ("GET".equals(exchange.getRequestMethod()) && path.endsWith("/enrichment")) {
+                singleRequests.incrementAndGet();
+                body = profile(path.substring(0, path.length() - "/enrichment".length()));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            TimeUnit.NANOSECONDS.sleep(latency.sampleNanos());
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] response = mapper.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Profile profile(String clientId) {
+        long h = mix(clientId.hashCode());
+        double fraud = unit(h);
+        return new Profile(clientId,
+                Math.round(fraud * fraud * fraud * 1000) / 1000.0,
+                1.0 + Math.round(unit(h >>> 10) * 40) / 10.0,
+                unit(h >>> 20) < 0.05,
+                (int) (unit(h >>> 30) * 5),
+                unit(h >>> 40) < 0.02 ? "CRITICAL" : RISK[(int) (unit(h >>> 50) * RISK.length)],
+                System.currentTimeMillis() - (long) (unit(mix(h)) * MONTH_MILLIS));
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Доля [0, 1) из младших 10 бит
+    private static double unit(long bits) {
+        return (bits & 0x3FF) / 1024.0;
+    }
+}
@@ -0,0 +1,72 @@
+package kz.kaspi.lab.loadtest.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppealGeneratorTest {
+
+    @Test
+    void sameSeedGivesSameStream() {
+        AppealGenerator first = generator(7);
+        AppealGenerator second = generator(7);
+        for (long i = 0; i < 1000; i++) {
+            AppealGenerator.Appeal a = first.next(i);
+            AppealGenerator.Appeal b = second.next(i);
+            assertEquals(a.clientId(), b.clientId());
+            assertEquals(a.message(), b.message());
+            assertEquals(a.priority(), b.priority());
+            assertEquals(i, AppealGenerator.sequenceOf(a.appealId(), AppealGenerator.appealIdPrefix("run")));
+            assertTrue(a.message().length() >= 20 && a.message().length() <= 60, a.message());
+        }
+        assertEquals(-1, AppealGenerator.sequenceOf("lt-other-5", AppealGenerator.appealIdPrefix("run")));
+        assertEquals(-1, AppealGenerator.sequenceOf("user-appeal", AppealGenerator.appealIdPrefix("run")));
+    }
+
+    @Test
+    void serializesAsAppealEvent() {
+        AppealGenerator generator = generator(1);
+        String json = new String(generator.serialize(generator.next(3)));
+        assertTrue(json.startsWith("{\"appealId\":\"lt-run-3\",\"clientId\":\"client-"), json);
+        assertTrue(json.matches(".*\"timestamp\":\"\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\".*"), json);
+    }
+
+    @Test
+    void mixFollowsWeights() {
+        WeightedMix mix = WeightedMix.parse("URGENT:2,HIGH:10,NORMAL:70,LOW:18");
+        SplittableRandom random = new SplittableRandom(1);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            counts.merge(mix.next(random), 1, Integer::sum);
+        }
+        assertEquals(0.70, counts.get("NORMAL") / 100_000.0, 0.01);
+        assertEquals(0.02, counts.get("URGENT") / 100_000.0, 0.005);
+    }
+
+    @Test
+    void skewConcentratesTrafficOnHotClients() {
+        SplittableRandom random = new SplittableRandom(1);
+        ZipfSampler uniform = new ZipfSampler(10_000, 0);
+        ZipfSampler skewed = new ZipfSampler(10_000, 1.0);
+        int uniformHot = 0;
+        int skewedHot = 0;
+        for (int i = 0; i < 100_000; i++) {
+            uniformHot += uniform.next(random) < 100 ? 1 : 0;
+            skewedHot += skewed.next(random) < 100 ? 1 : 0;
+        }
+        // Верхний 1% клиентов: при skew 0 — ~1% обращений, при skew 1 — больше половины (H(100) / H(10000))
+        assertEquals(0.01, uniformHot / 100_000.0, 0.003);
+        assertEquals(0.53, skewedHot / 100_000.0, 0.02);
+    }
+
+    private static AppealGenerator generator(long seed) {
+        return new AppealGenerator(seed, "run", new ZipfSampler(1000, 0.9),
+                WeightedMix.parse("URGENT:2,HIGH:10,NORMAL:70,LOW:18"),
+                WeightedMix.parse("COMPLAINT:20,QUESTION:60,FEEDBACK:20"), 20, 60);
+    }
+}
@@ -0,0 +1,60 @@
+package kz.kaspi.lab.loadtest.stub;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StubEnrichmentServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void servesEnrichmentApi() throws Exception {
+        try (StubEnrichmentServer server = new StubEnrichmentServer(0, LatencyDistribution.parse("fixed:1ms"), 0)) {
+            String base = "http://localhost:" + server.port() + "/api/v1/clients/";
+
+            HttpResponse<String> single = client.send(HttpRequest.newBuilder(URI.create(base + "c1/enrichment")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, single.statusCode());
+            assertTrue(single.body().contains("\"clientId\":\"c1\""), single.body());
+            assertTrue(single.body().contains("\"isVIP\":"), single.body());
+
+            HttpResponse<String> batch = client.send(HttpRequest.newBuilder(URI.create(base + "enrichment:batch"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("[\"c1\",\"c2\"]"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, batch.statusCode());
+            assertTrue(batch.body().startsWith("[{\"clientId\":\"c1\""), batch.body());
+
+            assertEquals(1, server.singleRequests());
+            assertEquals(1, server.batchRequests());
+            assertEquals(2, server.batchedClients());
+        }
+    }
+
+    @Test
+    void lognormalMatchesMedianAndP99() {
+        LatencyDistribution latency = LatencyDistribution.parse("lognormal:20ms,150ms");
+        long[] samples = new long[100_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = latency.sampleNanos();
+        }
+        Arrays.sort(samples);
+        assertEquals(20e6, samples[samples.length / 2], 1e6);
+        assertEquals(150e6, samples[(int) (samples.length * 0.99)], 15e6);
+    }
+
+    @Test
+    void profilesAreStablePerClient() {
+        assertEquals(StubEnrichmentServer.profile("c42").fraudScore(), StubEnrichmentServer.profile("c42").fraudScore());
+        assertEquals(StubEnrichmentServer.profile("c42").riskCategory(), StubEnrichmentServer.profile("c42").riskCategory());
+    }
+}
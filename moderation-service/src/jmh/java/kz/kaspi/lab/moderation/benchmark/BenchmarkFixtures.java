@@ -0,0 +1,78 @@
+package kz.kaspi.lab.moderation.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.client.AdaptiveConcurrencyLimiter;
+import kz.kaspi.lab.moderation.client.CircuitBreaker;
+import kz.kaspi.lab.moderation.client.EnrichmentClient;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import kz.kaspi.lab.moderation.rules.ComplaintDetector;
+import kz.kaspi.lab.moderation.rules.RuleEngine;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Общие тестовые данные и заглушки для бенчмарков
+final class BenchmarkFixtures {
+
+    static final String APPEAL_JSON = """
+            {"appealId":"appeal-42","clientId":"client-7","message":"Перевод не работает уже второй день, \
+            деньги списались, а получатель ничего не получил","timestamp":"2026-02-08T15:00:00",\
+            "category":"COMPLAINT","priority":"NORMAL"}""";
+
+    private BenchmarkFixtures() {
+    }
+
+    static AppealEvent appeal() {
+        return AppealEvent.builder()
+                .appealId("appeal-42")
+                .clientId("client-7")
+                .message("Перевод не работает уже второй день, деньги списались, а получатель ничего не получил")
+                .timestamp(LocalDateTime.of(2026, 2, 8, 15, 0))
+                .category("COMPLAINT")
+                .priority("NORMAL")
+                .build();
+    }
+
+    static EnrichmentData enrichment(double fraudScore, double rating, int complaints, String risk) {
+        return EnrichmentData.builder()
+                .clientId("client-7")
+                .fraudScore(fraudScore)
+                .supportRating(rating)
+                .isVIP(false)
+                .previousComplaints(complaints)
+                .riskCategory(risk)
+                .lastInteractionTimestamp(1_770_000_000_000L)
+                .build();
+    }
+
+    static RuleEngine ruleEngine() {
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        return new RuleEngine(resourceLoader,
+                new ComplaintDetector(resourceLoader, "classpath:complaint-keywords.txt"),
+                "classpath:moderation-rules.yaml");
+    }
+
+    // EnrichmentClient без сети: всегда отдаёт заранее подготовленный профиль
+    static EnrichmentClient stubEnrichmentClient(EnrichmentData data) {
+        return new EnrichmentClient(WebClient.builder(), new SimpleMeterRegistry(),
+                new AdaptiveConcurrencyLimiter(1, 1, 1, Duration.ofSeconds(1), 0.9),
+                new CircuitBreaker(0.5, 1, 1, Duration.ofSeconds(1), 1), Retry.backoff(0, Duration.ZERO),
+                "http://localhost:0", 1000,
+                false, 1, Duration.ofMillis(1), false, 1, Duration.ofMinutes(1), Duration.ofMinutes(1)) {
+            @Override
+            public EnrichmentData getEnrichment(String clientId) {
+                return data;
+            }
+
+            @Override
+            public Mono<EnrichmentData> getEnrichmentAsync(String clientId) {
+                return Mono.just(data);
+            }
+        };
+    }
+}
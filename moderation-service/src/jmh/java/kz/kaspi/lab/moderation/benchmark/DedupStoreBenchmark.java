@@ -0,0 +1,74 @@
+package kz.kaspi.lab.moderation.benchmark;
+
+import kz.kaspi.lab.moderation.idempotency.GlobalDedupStore;
+import kz.kaspi.lab.moderation.idempotency.FileDedupStore;
+import kz.kaspi.lab.moderation.idempotency.SegmentedDedupStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пропускная способность хранилища идемпотентности при конкурентном доступе (4 потока)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class DedupStoreBenchmark {
+
+    private static final int PRELOADED = 100_000;
+
+    @Param({"file", "segmented"})
+    public String store;
+
+    private Path directory;
+    private GlobalDedupStore dedupStore;
+    private String[] existing;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("dedup-bench");
+        dedupStore = switch (store) {
+            case "file" -> new FileDedupStore(directory.resolve("processed_appeals.txt"));
+            default -> new SegmentedDedupStore(directory, Duration.ofDays(7), 16L << 20, Duration.ofHours(1),
+                    48, Duration.ofMinutes(1), false, true);
+        };
+        existing = new String[PRELOADED];
+        for (int i = 0; i < PRELOADED; i++) {
+            existing[i] = "preloaded-" + i;
+            dedupStore.markAsProcessed(existing[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dedupStore.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public boolean isProcessed() {
+        return dedupStore.isProcessed(existing[ThreadLocalRandom.current().nextInt(PRELOADED)]);
+    }
+
+    @Benchmark
+    public void markAsProcessed() {
+        dedupStore.markAsProcessed("new-" + sequence.incrementAndGet());
+    }
+}
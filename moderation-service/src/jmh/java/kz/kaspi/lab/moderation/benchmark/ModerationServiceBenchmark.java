@@ -0,0 +1,47 @@
+package kz.kaspi.lab.moderation.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.activity.ClientActivityStore;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.service.ModerationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// moderateAppeal целиком (правила, причина, сборка результата) с заглушкой вместо enrichment-service
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModerationServiceBenchmark {
+
+    @Param({"REJECTED", "REVIEW_REQUIRED", "APPROVED"})
+    public String outcome;
+
+    private ModerationService moderationService;
+    private AppealEvent appeal;
+
+    @Setup
+    public void setUp() {
+        appeal = BenchmarkFixtures.appeal();
+        var enrichment = switch (outcome) {
+            case "REJECTED" -> BenchmarkFixtures.enrichment(0.95, 4.0, 0, "CRITICAL");
+            case "REVIEW_REQUIRED" -> BenchmarkFixtures.enrichment(0.3, 2.0, 0, "LOW");
+            default -> BenchmarkFixtures.enrichment(0.1, 4.5, 0, "LOW");
+        };
+        moderationService = new ModerationService(BenchmarkFixtures.stubEnrichmentClient(enrichment),
+                BenchmarkFixtures.ruleEngine(), ClientActivityStore.NONE, new SimpleMeterRegistry(), 1.0);
+    }
+
+    @Benchmark
+    public ModerationResult moderateAppeal() {
+        return moderationService.moderateAppeal(appeal).result();
+    }
+}
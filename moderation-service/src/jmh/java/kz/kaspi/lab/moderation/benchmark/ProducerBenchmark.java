@@ -0,0 +1,115 @@
+package kz.kaspi.lab.moderation.benchmark;
+
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.config.ProducerProfile;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import kz.kaspi.lab.moderation.serde.ModerationResultSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Отправка результатов во встроенный брокер Kafka с разными профилями батчинга.
+// idempotent — как в обычном режиме (send без ожидания), transactional — транзакция на запись,
+// как в kafka.producer.transactional с consumer.mode=single
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProducerBenchmark {
+
+    private static final String TOPIC = "review-topic";
+
+    @Param({"latency", "balanced", "throughput"})
+    public String profile;
+
+    @Param({"idempotent", "transactional"})
+    public String mode;
+
+    @Param({"lz4"})
+    public String compression;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private DefaultKafkaProducerFactory<String, ModerationResult> producerFactory;
+    private KafkaTemplate<String, ModerationResult> template;
+    private ModerationResult result;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 4, TOPIC);
+        // Один брокер: лог транзакций по умолчанию требует replication factor 3
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        ProducerProfile.of(profile).applyTo(config);
+        producerFactory = new DefaultKafkaProducerFactory<>(config, new StringSerializer(),
+                new ModerationResultSerializer(new KafkaConfig().objectMapper(), PayloadFormat.JSON));
+        if ("transactional".equals(mode)) {
+            producerFactory.setTransactionIdPrefix("bench-tx-");
+        }
+        template = new KafkaTemplate<>(producerFactory);
+
+        AppealEvent appeal = BenchmarkFixtures.appeal();
+        result = ModerationResult.builder()
+                .appealId(appeal.getAppealId())
+                .clientId(appeal.getClientId())
+                .decision(ModerationDecision.REVIEW_REQUIRED)
+                .reason("Low rating (2.0) with complaint (keyword: не работает)")
+                .riskCategory("LOW")
+                .processedAt(LocalDateTime.of(2026, 2, 8, 15, 0, 1))
+                .originalAppeal(appeal)
+                .build();
+    }
+
+    // Всё, что накоплено в буфере продюсера, должно попасть в измерение своей итерации
+    // (транзакция сама сбрасывает буфер при коммите)
+    @TearDown(Level.Iteration)
+    public void flush() {
+        if (!template.isTransactional()) {
+            template.flush();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerFactory.destroy();
+        broker.destroy();
+    }
+
+    @Benchmark
+    public Object send() {
+        String key = "appeal-" + sequence.incrementAndGet();
+        if ("transactional".equals(mode)) {
+            return template.executeInTransaction(t -> t.send(TOPIC, key, result));
+        }
+        return template.send(TOPIC, key, result);
+    }
+}
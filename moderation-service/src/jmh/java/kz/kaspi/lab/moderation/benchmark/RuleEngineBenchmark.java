@@ -0,0 +1,59 @@
+package kz.kaspi.lab.moderation.benchmark;
+
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import kz.kaspi.lab.moderation.rules.CompiledRule;
+import kz.kaspi.lab.moderation.rules.RuleEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Оценка правил без построения причины. С -prof gc ожидается gc.alloc.rate.norm ≈ 0 B/op
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RuleEngineBenchmark {
+
+    private RuleEngine ruleEngine;
+    private AppealEvent appeal;
+    private EnrichmentData highFraud;
+    private EnrichmentData highRisk;
+    private EnrichmentData lowRating;
+    private EnrichmentData clean;
+
+    @Setup
+    public void setUp() {
+        ruleEngine = BenchmarkFixtures.ruleEngine();
+        appeal = BenchmarkFixtures.appeal();
+        highFraud = BenchmarkFixtures.enrichment(0.95, 4.0, 0, "CRITICAL");
+        highRisk = BenchmarkFixtures.enrichment(0.65, 4.0, 1, "HIGH");
+        lowRating = BenchmarkFixtures.enrichment(0.3, 2.0, 0, "LOW");
+        clean = BenchmarkFixtures.enrichment(0.1, 4.5, 0, "LOW");
+    }
+
+    @Benchmark
+    public CompiledRule firstRuleMatches() {
+        return ruleEngine.evaluate(appeal, highFraud);
+    }
+
+    @Benchmark
+    public CompiledRule complaintRuleMatches() {
+        return ruleEngine.evaluate(appeal, lowRating);
+    }
+
+    @Benchmark
+    public CompiledRule lastRuleMatches() {
+        return ruleEngine.evaluate(appeal, highRisk);
+    }
+
+    @Benchmark
+    public CompiledRule defaultDecision() {
+        return ruleEngine.evaluate(appeal, clean);
+    }
+}
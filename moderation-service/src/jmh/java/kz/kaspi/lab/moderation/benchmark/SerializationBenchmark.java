@@ -0,0 +1,130 @@
+package kz.kaspi.lab.moderation.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import kz.kaspi.lab.moderation.producer.ModerationResultProducer;
+import kz.kaspi.lab.moderation.producer.ResultProjection;
+import kz.kaspi.lab.moderation.serde.AppealEventDeserializer;
+import kz.kaspi.lab.moderation.serde.ModerationBinaryCodec;
+import kz.kaspi.lab.moderation.serde.ModerationResultSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация на границах Kafka: вход (AppealEvent) и выход (ModerationResult).
+// stringRoundTrip* — прежний путь через String (всегда JSON), остальное — типизированные serde в выбранном формате
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"json", "binary"})
+    private String format;
+
+    @Param({"full", "slim", "reference"})
+    private String projection;
+
+    private ObjectMapper objectMapper;
+    private ModerationResult result;
+    private ModerationResultProducer producer;
+    private MockProducer<String, ModerationResult> mockProducer;
+    private AppealEventDeserializer deserializer;
+    private ModerationResultSerializer serializer;
+    private RecordHeaders headers;
+    private byte[] appealBytes;
+    private byte[] appealJson;
+    private ModerationResult projectedResult;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new KafkaConfig().objectMapper();
+        PayloadFormat payloadFormat = PayloadFormat.of(format);
+
+        AppealEvent appeal = BenchmarkFixtures.appeal();
+        result = ModerationResult.builder()
+                .appealId(appeal.getAppealId())
+                .clientId(appeal.getClientId())
+                .decision(ModerationDecision.REVIEW_REQUIRED)
+                .reason("Low rating (2.0) with complaint (keyword: не работает)")
+                .riskCategory("LOW")
+                .processedAt(LocalDateTime.of(2026, 2, 8, 15, 0, 1))
+                .originalAppeal(appeal)
+                .build();
+
+        deserializer = new AppealEventDeserializer(objectMapper);
+        serializer = new ModerationResultSerializer(ResultProjection.of(projection).jsonMapper(objectMapper),
+                payloadFormat);
+        headers = new RecordHeaders();
+        headers.add(PayloadFormat.CONTENT_TYPE_HEADER, payloadFormat.contentType().getBytes(StandardCharsets.US_ASCII));
+        appealJson = BenchmarkFixtures.APPEAL_JSON.getBytes(StandardCharsets.UTF_8);
+        appealBytes = payloadFormat == PayloadFormat.BINARY
+                ? ModerationBinaryCodec.encode(appeal)
+                : appealJson;
+
+        // autoComplete=true: send завершается сразу, измеряется только работа на стороне приложения.
+        // KafkaTemplate закрывает продюсер после каждой отправки, поэтому close() здесь no-op
+        mockProducer = new MockProducer<>(true, null, new StringSerializer(), serializer) {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        KafkaTemplate<String, ModerationResult> template = new KafkaTemplate<>(new MockProducerFactory<>(() -> mockProducer));
+        producer = new ModerationResultProducer(template, template, new SimpleMeterRegistry(),
+                "approved-topic", "review-topic", projection, projection);
+        projectedResult = ResultProjection.of(projection).apply(result);
+    }
+
+    @Benchmark
+    public AppealEvent stringRoundTripDeserialize() throws Exception {
+        String value = new String(appealJson, StandardCharsets.UTF_8);
+        return objectMapper.readValue(value, AppealEvent.class);
+    }
+
+    @Benchmark
+    public byte[] stringRoundTripSerialize() throws Exception {
+        return objectMapper.writeValueAsString(result).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Так запись приходит из KafkaConsumer: ByteBuffer поверх данных fetch'а
+    @Benchmark
+    public AppealEvent deserializeAppeal() {
+        return deserializer.deserialize("appeals-topic", headers, ByteBuffer.wrap(appealBytes));
+    }
+
+    @Benchmark
+    public byte[] serializeResult() {
+        return serializer.serialize("review-topic", new RecordHeaders(), projectedResult);
+    }
+
+    @Benchmark
+    public Object sendResult() {
+        Object future = producer.sendResult(result);
+        mockProducer.clear();
+        return future;
+    }
+}
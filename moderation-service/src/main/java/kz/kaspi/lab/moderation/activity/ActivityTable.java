@@ -0,0 +1,245 @@
+package kz.kaspi.lab.moderation.activity;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Открытая адресация по 64-битным отпечаткам clientId. На клиента — ключ в keys и STRIDE int'ов в data:
+// [час последнего обращения][24 часовых бакета: жалобы << 16 | обращения][7 дневных бакетов жалоб].
+// Бакеты — кольца по часу/дню от эпохи; устаревшие обнуляются при следующем обращении клиента.
+// Не потокобезопасна — WindowedClientActivityStore держит по блокировке на каждую таблицу
+final class ActivityTable {
+
+    static final int HOURS = 24;
+    static final int DAYS = 7;
+    static final int STRIDE = 1 + HOURS + DAYS;
+
+    private static final int LAST_SEEN = 0;
+    private static final int HOURLY = 1;
+    private static final int DAILY = 1 + HOURS;
+    private static final int MAX_COUNT = 0xFFFF;
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 64;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final int maxEntries;
+    private long[] keys;
+    private int[] data;
+    private int size;
+
+    ActivityTable(int maxEntries) {
+        this.maxEntries = Math.max(maxEntries, 1);
+        allocate(MIN_CAPACITY);
+    }
+
+    static int hourOf(long epochMillis) {
+        return (int) (epochMillis / HOUR_MILLIS);
+    }
+
+    ClientActivity record(long key, boolean complaint, int hour) {
+        int slot = find(key);
+        if (slot < 0) {
+            slot = insert(key, hour);
+        }
+        int base = slot * STRIDE;
+        hour = Math.max(hour, data[base + LAST_SEEN]);
+        ClientActivity before = read(base, hour);
+
+        advance(base, hour);
+        int bucket = base + HOURLY + hour % HOURS;
+        int complaints = Math.min((data[bucket] >>> 16) + (complaint ? 1 : 0), MAX_COUNT);
+        int appeals = Math.min((data[bucket] & MAX_COUNT) + 1, MAX_COUNT);
+        data[bucket] = complaints << 16 | appeals;
+        if (complaint) {
+            data[base + DAILY + (hour / HOURS) % DAYS]++;
+        }
+        return before;
+    }
+
+    ClientActivity get(long key, int hour) {
+        int slot = find(key);
+        return slot < 0 ? ClientActivity.NONE : read(slot * STRIDE, Math.max(hour, data[slot * STRIDE + LAST_SEEN]));
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Удаляет клиентов без обращений с часа idleBefore и ужимает таблицу
+    int purgeIdle(int idleBefore) {
+        int before = size;
+        int live = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && data[slot * STRIDE + LAST_SEEN] >= idleBefore) {
+                live++;
+            }
+        }
+        rehash(capacityFor(live), idleBefore, Integer.MAX_VALUE);
+        return before - size;
+    }
+
+    // Переносит живые записи в keysOut/dataOut; вызывающий держит блокировку таблицы
+    int copyTo(long[] keysOut, int[] dataOut) {
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                keysOut[count] = keys[slot];
+                System.arraycopy(data, slot * STRIDE, dataOut, count * STRIDE, STRIDE);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Загрузка из снимка: запись кладётся как есть
+    void restore(long key, int[] values, int offset) {
+        if (key == EMPTY || find(key) >= 0 || size >= maxEntries) {
+            return;
+        }
+        int slot = insert(key, values[offset + LAST_SEEN]);
+        System.arraycopy(values, offset, data, slot * STRIDE, STRIDE);
+    }
+
+    private ClientActivity read(int base, int hour) {
+        int lastSeen = data[base + LAST_SEEN];
+        int complaints24h = 0;
+        int appeals24h = 0;
+        // hour >= lastSeen, поэтому нижняя граница окна отсекает и бакеты, перезаписанные по кольцу
+        for (int h = hour - HOURS + 1; h <= lastSeen; h++) {
+            int bucket = data[base + HOURLY + h % HOURS];
+            complaints24h += bucket >>> 16;
+            appeals24h += bucket & MAX_COUNT;
+        }
+        int appealsLastHour = lastSeen == hour ? data[base + HOURLY + hour % HOURS] & MAX_COUNT : 0;
+
+        int lastDay = lastSeen / HOURS;
+        int day = hour / HOURS;
+        int complaints7d = 0;
+        for (int d = day - DAYS + 1; d <= lastDay; d++) {
+            complaints7d += data[base + DAILY + d % DAYS];
+        }
+        return new ClientActivity(complaints24h, complaints7d, appealsLastHour, appeals24h);
+    }
+
+    // Сдвигает окна к часу hour, обнуляя бакеты, которые из них вышли
+    private void advance(int base, int hour) {
+        int lastSeen = data[base + LAST_SEEN];
+        if (hour <= lastSeen) {
+            return;
+        }
+        for (int h = lastSeen + 1; h <= Math.min(hour, lastSeen + HOURS); h++) {
+            data[base + HOURLY + h % HOURS] = 0;
+        }
+        int lastDay = lastSeen / HOURS;
+        int day = hour / HOURS;
+        for (int d = lastDay + 1; d <= Math.min(day, lastDay + DAYS); d++) {
+            data[base + DAILY + d % DAYS] = 0;
+        }
+        data[base + LAST_SEEN] = hour;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = spread(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insert(long key, int hour) {
+        if (size >= maxEntries) {
+            evictLeastRecent();
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        int mask = keys.length - 1;
+        int slot = spread(key) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        Arrays.fill(data, slot * STRIDE, (slot + 1) * STRIDE, 0);
+        data[slot * STRIDE + LAST_SEEN] = hour;
+        size++;
+        return slot;
+    }
+
+    // Таблица заполнена: оставляем 3/4 лимита — клиентов с самыми свежими обращениями
+    private void evictLeastRecent() {
+        int keep = maxEntries * 3 / 4;
+        if (keep == 0) {
+            allocate(MIN_CAPACITY);
+            size = 0;
+            return;
+        }
+        int[] lastSeen = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                lastSeen[count++] = data[slot * STRIDE + LAST_SEEN];
+            }
+        }
+        Arrays.sort(lastSeen);
+        int cutoff = lastSeen[count - keep];
+        int newer = count - upperBound(lastSeen, cutoff);
+        rehash(capacityFor(keep), cutoff, keep - newer);
+    }
+
+    // Переносит записи, последнее обращение которых позже hour; с часом ровно hour — не больше ties
+    private void rehash(int capacity, int hour, int ties) {
+        long[] oldKeys = keys;
+        int[] oldData = data;
+        allocate(capacity);
+        int mask = capacity - 1;
+        int count = 0;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] == EMPTY) {
+                continue;
+            }
+            int lastSeen = oldData[old * STRIDE + LAST_SEEN];
+            if (lastSeen < hour || lastSeen == hour && ties-- <= 0) {
+                continue;
+            }
+            int slot = spread(oldKeys[old]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            System.arraycopy(oldData, old * STRIDE, data, slot * STRIDE, STRIDE);
+            count++;
+        }
+        size = count;
+    }
+
+    private static int upperBound(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value + 1);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && sorted[index - 1] > value) {
+            index--;
+        }
+        return index;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        data = new int[capacity * STRIDE];
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int spread(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,7 @@
+package kz.kaspi.lab.moderation.activity;
+
+// Счётчики клиента на момент обращения, без учёта самого обращения
+public record ClientActivity(int complaints24h, int complaints7d, int appealsLastHour, int appeals24h) {
+
+    public static final ClientActivity NONE = new ClientActivity(0, 0, 0, 0);
+}
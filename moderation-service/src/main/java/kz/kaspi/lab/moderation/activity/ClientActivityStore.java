@@ -0,0 +1,27 @@
+package kz.kaspi.lab.moderation.activity;
+
+public interface ClientActivityStore extends AutoCloseable {
+
+    // Учёт отключён: правила видят нулевые счётчики
+    ClientActivityStore NONE = new ClientActivityStore() {
+        @Override
+        public ClientActivity get(String clientId) {
+            return ClientActivity.NONE;
+        }
+
+        @Override
+        public ClientActivity record(String clientId, boolean complaint) {
+            return ClientActivity.NONE;
+        }
+    };
+
+    // Текущие счётчики клиента, без учёта нового обращения
+    ClientActivity get(String clientId);
+
+    // Возвращает счётчики до учёта обращения и учитывает его
+    ClientActivity record(String clientId, boolean complaint);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,27 @@
+package kz.kaspi.lab.moderation.activity;
+
+import kz.kaspi.lab.moderation.idempotency.FingerprintIndex;
+
+import java.time.Duration;
+
+// Те же окна, что у WindowedClientActivityStore, но по времени самих обращений — для replay истории.
+// Без снимков и блокировок: вызывающий учитывает обращения одним потоком в порядке их записи
+public final class HistoricalClientActivity {
+
+    // Самое длинное окно (complaints7d): столько истории до начала replay нужно, чтобы счётчики были полными
+    public static final Duration WINDOW = Duration.ofDays(ActivityTable.DAYS);
+
+    private final ActivityTable table;
+
+    public HistoricalClientActivity(int maxClients) {
+        this.table = new ActivityTable(maxClients);
+    }
+
+    public ClientActivity record(String clientId, boolean complaint, long timestampMillis) {
+        return table.record(FingerprintIndex.fingerprint(clientId), complaint, ActivityTable.hourOf(timestampMillis));
+    }
+
+    public int size() {
+        return table.size();
+    }
+}
@@ -0,0 +1,209 @@
+package kz.kaspi.lab.moderation.activity;
+
+import kz.kaspi.lab.moderation.idempotency.FingerprintIndex;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Скользящие окна по clientId в полосах ActivityTable, каждая под своей блокировкой.
+// Время — время обработки, не timestamp обращения. Обращение учитывается один раз — после публикации результата
+// и отметки в хранилище идемпотентности (AppealProcessor), поэтому повторы и повторная доставка счётчики не меняют.
+// Состояние периодически пишется снимком на диск и подхватывается при старте
+@Slf4j
+public class WindowedClientActivityStore implements ClientActivityStore {
+
+    private static final int STRIPES = 16;
+    private static final int SNAPSHOT_MAGIC = 0x43414354;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final ActivityTable[] tables = new ActivityTable[STRIPES];
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Path snapshotPath;
+    private final int idleHours;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService maintenance;
+
+    public WindowedClientActivityStore(int maxClients, Duration idleTimeout, Path snapshotPath, Duration snapshotInterval) {
+        this(maxClients, idleTimeout, snapshotPath, snapshotInterval, System::currentTimeMillis);
+    }
+
+    WindowedClientActivityStore(int maxClients, Duration idleTimeout, Path snapshotPath, Duration snapshotInterval,
+                                LongSupplier clock) {
+        for (int i = 0; i < STRIPES; i++) {
+            tables[i] = new ActivityTable(Math.max(maxClients / STRIPES, 1));
+            locks[i] = new ReentrantLock();
+        }
+        this.snapshotPath = snapshotPath;
+        // Окна не длиннее 7 дней: клиент, молчащий дольше, ничем не отличается от нового
+        this.idleHours = (int) Math.max(idleTimeout.toHours(), 1);
+        this.clock = clock;
+
+        loadSnapshot();
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "client-activity-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = snapshotInterval.toMillis();
+        this.maintenance.scheduleWithFixedDelay(this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ClientActivity record(String clientId, boolean complaint) {
+        long key = FingerprintIndex.fingerprint(clientId);
+        int stripe = stripe(key);
+        int hour = currentHour();
+        locks[stripe].lock();
+        try {
+            return tables[stripe].record(key, complaint, hour);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public ClientActivity get(String clientId) {
+        long key = FingerprintIndex.fingerprint(clientId);
+        int stripe = stripe(key);
+        locks[stripe].lock();
+        try {
+            return tables[stripe].get(key, currentHour());
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ActivityTable table : tables) {
+            size += table.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeSnapshot();
+    }
+
+    void maintain() {
+        int idleBefore = currentHour() - idleHours;
+        int purged = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i].lock();
+            try {
+                purged += tables[i].purgeIdle(idleBefore);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        if (purged > 0) {
+            log.debug("Purged {} idle clients from activity store", purged);
+        }
+        writeSnapshot();
+    }
+
+    // [magic:4][version:4][stride:4] и далее записи [fingerprint:8][stride × int:4] до конца файла
+    void writeSnapshot() {
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        long started = System.nanoTime();
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(ActivityTable.STRIDE);
+            for (int i = 0; i < STRIPES; i++) {
+                // Копируем полосу под блокировкой, на диск пишем уже без неё
+                long[] keys;
+                int[] data;
+                int count;
+                locks[i].lock();
+                try {
+                    keys = new long[tables[i].size()];
+                    data = new int[keys.length * ActivityTable.STRIDE];
+                    count = tables[i].copyTo(keys, data);
+                } finally {
+                    locks[i].unlock();
+                }
+                for (int entry = 0; entry < count; entry++) {
+                    out.writeLong(keys[entry]);
+                    for (int j = entry * ActivityTable.STRIDE; j < (entry + 1) * ActivityTable.STRIDE; j++) {
+                        out.writeInt(data[j]);
+                    }
+                }
+                written += count;
+            }
+        } catch (IOException e) {
+            log.error("Failed to write client activity snapshot {}", tmp, e);
+            return;
+        }
+        try {
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to replace client activity snapshot {}", snapshotPath, e);
+            return;
+        }
+        log.debug("Wrote client activity snapshot of {} clients in {} ms",
+                written, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void loadSnapshot() {
+        int idleBefore = currentHour() - idleHours;
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+                    || in.readInt() != ActivityTable.STRIDE) {
+                log.warn("Ignoring client activity snapshot {} with unknown format", snapshotPath);
+                return;
+            }
+            int[] values = new int[ActivityTable.STRIDE];
+            while (in.available() > 0) {
+                long key = in.readLong();
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = in.readInt();
+                }
+                // values[0] — час последнего обращения; давно молчавших клиентов не поднимаем
+                if (values[0] >= idleBefore) {
+                    tables[stripe(key)].restore(key, values, 0);
+                    loaded++;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            // Счётчики — подсказка для правил, а не источник истины: стартуем с тем, что успели прочитать
+            log.warn("Client activity snapshot {} is truncated or unreadable: {}", snapshotPath, e.getMessage());
+        }
+        log.info("Loaded {} clients from activity snapshot {}", loaded, snapshotPath);
+    }
+
+    private int currentHour() {
+        return ActivityTable.hourOf(clock.getAsLong());
+    }
+
+    private static int stripe(long key) {
+        // Младшие биты уходят на слот внутри таблицы, полосу берём из старших
+        return (int) (key >>> 60);
+    }
+}
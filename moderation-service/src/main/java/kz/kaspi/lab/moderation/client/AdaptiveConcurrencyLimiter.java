@@ -0,0 +1,83 @@
+package kz.kaspi.lab.moderation.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// AIMD-лимит одновременных запросов к enrichment-service: пока ответы быстрые, лимит растёт
+// примерно на 1 за «окно» из limit запросов; таймаут, 5xx/429 или задержка выше порога
+// уменьшают его в backoffRatio раз. Запросы сверх лимита не ждут, а сразу уходят в fallback
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double limit;
+    private volatile int currentLimit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      Duration latencyThreshold, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.currentLimit = (int) limit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= currentLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else {
+            increase(inFlightBefore);
+        }
+    }
+
+    // Таймаут или перегрузка бэкенда
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    // Запрос завершился без сигнала о нагрузке (4xx, отмена)
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void increase(int inFlightBefore) {
+        // Лимит растёт, только когда он действительно используется
+        if (inFlightBefore * 2 < limit) {
+            return;
+        }
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+        currentLimit = (int) limit;
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+        currentLimit = (int) limit;
+    }
+}
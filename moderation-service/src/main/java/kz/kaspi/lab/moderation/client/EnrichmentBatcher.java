@@ -0,0 +1,107 @@
+package kz.kaspi.lab.moderation.client;
+
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Собирает одновременные запросы обогащения в окно window (или до maxBatchSize ID)
+// и отправляет их одним POST /enrichment:batch
+@Slf4j
+class EnrichmentBatcher {
+
+    private static final ParameterizedTypeReference<List<EnrichmentData>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient webClient;
+    private final int maxBatchSize;
+    private final Duration window;
+
+    private final Object lock = new Object();
+    private Map<String, Sinks.One<EnrichmentData>> pending = new LinkedHashMap<>();
+
+    EnrichmentBatcher(WebClient webClient, int maxBatchSize, Duration window) {
+        this.webClient = webClient;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+    }
+
+    Mono<EnrichmentData> submit(String clientId) {
+        Sinks.One<EnrichmentData> sink;
+        Map<String, Sinks.One<EnrichmentData>> full = null;
+        synchronized (lock) {
+            sink = pending.get(clientId);
+            if (sink != null) {
+                // Тот же clientId уже ждёт в текущем окне — переиспользуем запрос
+                return sink.asMono();
+            }
+            sink = Sinks.one();
+            boolean first = pending.isEmpty();
+            pending.put(clientId, sink);
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new LinkedHashMap<>();
+            } else if (first) {
+                Map<String, Sinks.One<EnrichmentData>> batch = pending;
+                Schedulers.parallel().schedule(() -> flushIfCurrent(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return sink.asMono();
+    }
+
+    private void flushIfCurrent(Map<String, Sinks.One<EnrichmentData>> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                // Пакет уже ушёл по достижении maxBatchSize
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        send(batch);
+    }
+
+    static Mono<List<EnrichmentData>> request(WebClient webClient, Collection<String> clientIds) {
+        return webClient.post()
+                .uri("/api/v1/clients/enrichment:batch")
+                .bodyValue(clientIds)
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE);
+    }
+
+    private void send(Map<String, Sinks.One<EnrichmentData>> batch) {
+        List<String> clientIds = new ArrayList<>(batch.keySet());
+        log.debug("Sending enrichment batch of {} clients", clientIds.size());
+
+        request(webClient, clientIds)
+                .subscribe(
+                        response -> complete(batch, response),
+                        error -> batch.values().forEach(sink -> sink.tryEmitError(error)));
+    }
+
+    private void complete(Map<String, Sinks.One<EnrichmentData>> batch, List<EnrichmentData> response) {
+        for (EnrichmentData data : response) {
+            Sinks.One<EnrichmentData> sink = batch.get(data.getClientId());
+            if (sink != null) {
+                sink.tryEmitValue(data);
+            }
+        }
+        // Если сервис не вернул какой-то ID, вызывающий получит ошибку и уйдёт в fallback
+        batch.forEach((clientId, sink) -> sink.tryEmitError(
+                new IllegalStateException("No enrichment returned for clientId=" + clientId)));
+    }
+}
@@ -1,15 +1,28 @@
 package kz.kaspi.lab.moderation.client;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import kz.kaspi.lab.moderation.model.EnrichmentData;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Component
@@ -17,43 +30,207 @@ public class EnrichmentClient {
 
     private final WebClient webClient;
     private final int timeout;
+    private final EnrichmentBatcher batcher;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBackoffSpec retry;
+    private final Counter shedCircuitOpen;
+    private final Counter shedConcurrencyLimit;
+
+    // Near-cache: одновременные запросы одного clientId делят один future (single-flight)
+    private final AsyncLoadingCache<String, EnrichmentData> nearCache;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter cacheCoalesced;
 
     public EnrichmentClient(WebClient.Builder webClientBuilder,
+                            MeterRegistry meterRegistry,
+                            AdaptiveConcurrencyLimiter enrichmentConcurrencyLimiter,
+                            CircuitBreaker enrichmentCircuitBreaker,
+                            RetryBackoffSpec enrichmentRetry,
                             @Value("${enrichment.service.url}") String baseUrl,
-                            @Value("${enrichment.service.timeout}") int timeout) {
+                            @Value("${enrichment.service.timeout}") int timeout,
+                            @Value("${enrichment.service.batch.enabled:false}") boolean batchEnabled,
+                            @Value("${enrichment.service.batch.max-size:100}") int batchMaxSize,
+                            @Value("${enrichment.service.batch.window:5ms}") Duration batchWindow,
+                            @Value("${enrichment.service.cache.enabled:true}") boolean cacheEnabled,
+                            @Value("${enrichment.service.cache.max-size:100000}") long cacheMaxSize,
+                            @Value("${enrichment.service.cache.ttl:5m}") Duration cacheTtl,
+                            @Value("${enrichment.service.cache.refresh-after:1m}") Duration cacheRefreshAfter) {
         this.webClient = webClientBuilder.baseUrl(baseUrl).build();
         this.timeout = timeout;
+        this.batcher = batchEnabled ? new EnrichmentBatcher(webClient, batchMaxSize, batchWindow) : null;
+        this.concurrencyLimiter = enrichmentConcurrencyLimiter;
+        this.circuitBreaker = enrichmentCircuitBreaker;
+        // После исчерпания повторов — исходная ошибка, а не RetryExhaustedException
+        this.retry = enrichmentRetry.filter(this::isRetryableException)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        this.shedCircuitOpen = shedCounter(meterRegistry, "circuit_open");
+        this.shedConcurrencyLimit = shedCounter(meterRegistry, "concurrency_limit");
+
+        this.nearCache = cacheEnabled
+                ? CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                        .maximumSize(cacheMaxSize)
+                        .expireAfterWrite(cacheTtl)
+                        // refresh-ahead: горячие ключи обновляются в фоне, пока отдаётся старое значение
+                        .refreshAfterWrite(cacheRefreshAfter)
+                        .recordStats()
+                        .buildAsync((String clientId, Executor executor) -> load(clientId).toFuture()),
+                        "enrichmentNearCache")
+                : null;
+        this.cacheHits = cacheCounter(meterRegistry, "hit");
+        this.cacheMisses = cacheCounter(meterRegistry, "miss");
+        this.cacheCoalesced = cacheCounter(meterRegistry, "coalesced");
     }
 
     public EnrichmentData getEnrichment(String clientId) {
-        log.debug("Requesting enrichment for clientId: {}", clientId);
-
         try {
-            return webClient.get()
-                    .uri("/api/v1/clients/{clientId}/enrichment", clientId)
-                    .retrieve()
-                    .bodyToMono(EnrichmentData.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .retryWhen(Retry.fixedDelay(2, Duration.ofMillis(500))
-                            .filter(this::isRetryableException))
-                    .doOnError(e -> log.error("Failed to get enrichment for clientId={}: {}",
-                            clientId, e.getMessage()))
-                    .onErrorResume(this::handleFallback)
-                    .block();
+            return getEnrichmentAsync(clientId).block();
         } catch (Exception e) {
             log.error("Unexpected error calling enrichment service for clientId={}", clientId, e);
             return getFallbackEnrichment(clientId);
         }
     }
 
+    public Mono<EnrichmentData> getEnrichmentAsync(String clientId) {
+        log.debug("Requesting enrichment for clientId: {}", clientId);
+
+        return lookup(clientId)
+                .onErrorResume(e -> handleFallback(clientId, e));
+    }
+
+    // Пакетный запрос для replay: мимо near-cache, лимита и breaker'а — объём и параллелизм задаёт вызывающий.
+    // Ошибка после повторов уходит вызывающему; клиентам, которых сервис не вернул, — fallback-данные
+    public Mono<Map<String, EnrichmentData>> getEnrichmentBatch(Collection<String> clientIds) {
+        return Mono.defer(() -> EnrichmentBatcher.request(webClient, clientIds))
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(retry)
+                .map(response -> {
+                    Map<String, EnrichmentData> byClient = new HashMap<>(clientIds.size() * 2);
+                    for (EnrichmentData data : response) {
+                        byClient.put(data.getClientId(), data);
+                    }
+                    for (String clientId : clientIds) {
+                        byClient.computeIfAbsent(clientId, this::getFallbackEnrichment);
+                    }
+                    return byClient;
+                });
+    }
+
+    private Mono<EnrichmentData> lookup(String clientId) {
+        if (nearCache == null) {
+            return load(clientId);
+        }
+        return Mono.defer(() -> {
+            CompletableFuture<EnrichmentData> existing = nearCache.getIfPresent(clientId);
+            if (existing != null) {
+                (existing.isDone() ? cacheHits : cacheCoalesced).increment();
+            } else {
+                cacheMisses.increment();
+            }
+            // Ошибочные загрузки Caffeine удаляет сам, fallback-данные в кэш не попадают.
+            // suppressCancel — отмена одного подписчика не должна отменять общий запрос
+            return Mono.fromFuture(existing != null ? existing : nearCache.get(clientId), true);
+        });
+    }
+
+    private Mono<EnrichmentData> load(String clientId) {
+        // Каждая повторная попытка заново проходит breaker и лимит
+        return guarded(clientId).retryWhen(retry);
+    }
+
+    private Mono<EnrichmentData> guarded(String clientId) {
+        return Mono.defer(() -> {
+            // Запрос сверх лимита или при открытом breaker'е не ждёт — сразу fallback
+            if (!circuitBreaker.tryAcquirePermission()) {
+                shedCircuitOpen.increment();
+                return Mono.error(new EnrichmentUnavailableException("circuit breaker is open"));
+            }
+            if (!concurrencyLimiter.tryAcquire()) {
+                circuitBreaker.onIgnore();
+                shedConcurrencyLimit.increment();
+                return Mono.error(new EnrichmentUnavailableException("concurrency limit reached"));
+            }
+            long start = System.nanoTime();
+            // retryWhen после ошибки ещё и отменяет попытку — исход учитываем один раз
+            AtomicBoolean settled = new AtomicBoolean();
+            return fetch(clientId)
+                    .timeout(Duration.ofMillis(timeout))
+                    .doOnSuccess(data -> {
+                        if (!settled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        concurrencyLimiter.onSuccess(System.nanoTime() - start);
+                        circuitBreaker.onSuccess();
+                    })
+                    .doOnError(e -> {
+                        if (!settled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        if (isOverloadException(e)) {
+                            concurrencyLimiter.onDropped();
+                            circuitBreaker.onError();
+                        } else {
+                            // 4xx — бэкенд жив, просто такого клиента нет или запрос некорректен
+                            concurrencyLimiter.onIgnore();
+                            circuitBreaker.onSuccess();
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (!settled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        concurrencyLimiter.onIgnore();
+                        circuitBreaker.onIgnore();
+                    });
+        });
+    }
+
+    private Mono<EnrichmentData> fetch(String clientId) {
+        if (batcher != null) {
+            // defer — чтобы повторная попытка снова прошла через окно батчинга
+            return Mono.defer(() -> batcher.submit(clientId));
+        }
+        return webClient.get()
+                .uri("/api/v1/clients/{clientId}/enrichment", clientId)
+                .retrieve()
+                .bodyToMono(EnrichmentData.class);
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("enrichment.client.cache.requests")
+                .description("Near-cache lookups in EnrichmentClient")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("enrichment.client.shed")
+                .description("Enrichment requests answered with fallback without calling the service")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    // Сигналы перегрузки или недоступности: уменьшают лимит и считаются ошибкой breaker'а
+    private boolean isOverloadException(Throwable throwable) {
+        return throwable instanceof TimeoutException
+                || throwable instanceof WebClientRequestException
+                || isRetryableException(throwable);
+    }
+
     private boolean isRetryableException(Throwable throwable) {
         return throwable instanceof WebClientResponseException wcre
                 && (wcre.getStatusCode().is5xxServerError() || wcre.getStatusCode().value() == 429);
     }
 
-    private Mono<EnrichmentData> handleFallback(Throwable throwable) {
-        log.warn("Using fallback enrichment data due to: {}", throwable.getMessage());
-        return Mono.just(getFallbackEnrichment("unknown"));
+    private Mono<EnrichmentData> handleFallback(String clientId, Throwable throwable) {
+        if (throwable instanceof EnrichmentUnavailableException) {
+            // При открытом breaker'е это каждый запрос — не засоряем лог
+            log.debug("Using fallback enrichment data for clientId={}: {}", clientId, throwable.getMessage());
+        } else {
+            log.warn("Using fallback enrichment data for clientId={} due to: {}", clientId, throwable.getMessage());
+        }
+        return Mono.just(getFallbackEnrichment(clientId));
     }
 
     private EnrichmentData getFallbackEnrichment(String clientId) {
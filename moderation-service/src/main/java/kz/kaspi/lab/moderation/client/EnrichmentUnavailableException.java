@@ -0,0 +1,9 @@
+package kz.kaspi.lab.moderation.client;
+
+// Запрос не отправлялся: circuit breaker открыт или достигнут лимит одновременных запросов
+public class EnrichmentUnavailableException extends RuntimeException {
+
+    public EnrichmentUnavailableException(String message) {
+        super(message);
+    }
+}
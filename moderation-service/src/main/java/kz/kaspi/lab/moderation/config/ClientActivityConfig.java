@@ -0,0 +1,47 @@
+package kz.kaspi.lab.moderation.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.kaspi.lab.moderation.activity.ClientActivityStore;
+import kz.kaspi.lab.moderation.activity.WindowedClientActivityStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class ClientActivityConfig {
+
+    @Value("${moderation.activity.store:windowed}")
+    private String storeType;
+
+    @Value("${moderation.activity.max-clients:200000}")
+    private int maxClients;
+
+    @Value("${moderation.activity.idle-timeout:7d}")
+    private Duration idleTimeout;
+
+    @Value("${moderation.activity.snapshot.path:client-activity.snapshot}")
+    private String snapshotPath;
+
+    @Value("${moderation.activity.snapshot.interval:1m}")
+    private Duration snapshotInterval;
+
+    @Bean(destroyMethod = "close")
+    public ClientActivityStore clientActivityStore(MeterRegistry meterRegistry) {
+        return switch (storeType) {
+            case "none" -> ClientActivityStore.NONE;
+            case "windowed" -> {
+                WindowedClientActivityStore store = new WindowedClientActivityStore(maxClients, idleTimeout,
+                        Path.of(snapshotPath), snapshotInterval);
+                Gauge.builder("moderation.client.activity.clients", store, WindowedClientActivityStore::size)
+                        .description("Clients with activity counters held in memory")
+                        .register(meterRegistry);
+                yield store;
+            }
+            default -> throw new IllegalArgumentException("Unknown moderation.activity.store: " + storeType);
+        };
+    }
+}
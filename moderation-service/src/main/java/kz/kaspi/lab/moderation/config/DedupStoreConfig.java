@@ -0,0 +1,112 @@
+package kz.kaspi.lab.moderation.config;
+
+import kz.kaspi.lab.moderation.idempotency.DedupStore;
+import kz.kaspi.lab.moderation.idempotency.FileDedupStore;
+import kz.kaspi.lab.moderation.idempotency.PartitionedDedupStore;
+import kz.kaspi.lab.moderation.idempotency.SegmentedDedupStore;
+import kz.kaspi.lab.moderation.model.AppealPriority;
+import kz.kaspi.lab.moderation.priority.PriorityLaneConsumer;
+import kz.kaspi.lab.moderation.retry.AppealRetryRouter;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class DedupStoreConfig {
+
+    @Value("${moderation.dedup.store:segmented}")
+    private String storeType;
+
+    @Value("${moderation.dedup.file:processed_appeals.txt}")
+    private String file;
+
+    @Value("${moderation.dedup.segmented.directory:dedup-store}")
+    private String directory;
+
+    @Value("${moderation.dedup.segmented.retention:7d}")
+    private Duration retention;
+
+    @Value("${moderation.dedup.segmented.segment-max-size:16MB}")
+    private DataSize segmentMaxSize;
+
+    @Value("${moderation.dedup.segmented.segment-max-age:1h}")
+    private Duration segmentMaxAge;
+
+    @Value("${moderation.dedup.segmented.max-closed-segments:48}")
+    private int maxClosedSegments;
+
+    @Value("${moderation.dedup.segmented.maintenance-interval:1m}")
+    private Duration maintenanceInterval;
+
+    @Value("${moderation.dedup.segmented.fsync:false}")
+    private boolean fsync;
+
+    @Value("${moderation.dedup.segmented.sync-commit:true}")
+    private boolean syncCommit;
+
+    @Value("${kafka.topics.appeals}")
+    private String appealsTopic;
+
+    @Value("${kafka.consumer.mode:single}")
+    private String consumerMode;
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${moderation.dedup.partitioned.changelog-topic:${kafka.topics.appeals}-dedup-changelog}")
+    private String changelogTopic;
+
+    @Value("${moderation.dedup.partitioned.retention:7d}")
+    private Duration partitionedRetention;
+
+    @Value("${moderation.dedup.partitioned.restore-timeout:2m}")
+    private Duration restoreTimeout;
+
+    @Value("${moderation.dedup.partitioned.maintenance-interval:1m}")
+    private Duration partitionedMaintenanceInterval;
+
+    @Value("${moderation.dedup.partitioned.sync-commit:true}")
+    private boolean partitionedSyncCommit;
+
+    @Bean(destroyMethod = "close")
+    public DedupStore dedupStore(@Qualifier("retryKafkaTemplate") ObjectProvider<KafkaTemplate<String, byte[]>> template,
+                                 ObjectProvider<KafkaAdmin> kafkaAdmin,
+                                 ObjectProvider<AppealRetryRouter> retryRouter) {
+        return switch (storeType) {
+            case "file" -> new FileDedupStore(Path.of(file));
+            case "segmented" -> new SegmentedDedupStore(Path.of(directory), retention, segmentMaxSize.toBytes(),
+                    segmentMaxAge, maxClosedSegments, maintenanceInterval, fsync, syncCommit);
+            // Без группы: партиции changelog назначаются вручную по назначению appeals-topic, retry-топиков
+            // и топиков приоритетов
+            case "partitioned" -> new PartitionedDedupStore(template.getObject(), kafkaAdmin.getObject(),
+                    Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false),
+                    appealsTopic, copartitionedTopics(retryRouter.getObject()), changelogTopic,
+                    partitionedRetention, restoreTimeout, partitionedMaintenanceInterval, partitionedSyncCommit);
+            default -> throw new IllegalArgumentException("Unknown moderation.dedup.store: " + storeType);
+        };
+    }
+
+    // Топики, чьи consumer'ы проверяют идемпотентность по партиции appeals-topic с тем же номером
+    private List<String> copartitionedTopics(AppealRetryRouter retryRouter) {
+        List<String> topics = new ArrayList<>(retryRouter.retryTopics());
+        if ("priority".equals(consumerMode)) {
+            for (AppealPriority priority : AppealPriority.values()) {
+                topics.add(PriorityLaneConsumer.laneTopic(appealsTopic, priority));
+            }
+        }
+        return topics;
+    }
+}
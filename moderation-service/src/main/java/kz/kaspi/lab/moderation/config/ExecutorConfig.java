@@ -0,0 +1,40 @@
+package kz.kaspi.lab.moderation.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Пост-обработка асинхронного пайплайна (отметка идемпотентности и т.п.),
+    // чтобы не блокировать I/O-потоки Netty и Kafka producer
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService moderationCompletionExecutor(
+            @Value("${kafka.consumer.async.completion-threads:4}") int threads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            // Отметка в dedup-хранилище может ждать group commit — виртуальный поток на задачу
+            return Executors.newThreadPerTaskExecutor(threadFactory("moderation-completion-", true));
+        }
+        return Executors.newFixedThreadPool(threads, namedThreadFactory("moderation-completion-"));
+    }
+
+    public static ThreadFactory threadFactory(String prefix, boolean virtual) {
+        return virtual ? Thread.ofVirtual().name(prefix, 1).factory() : namedThreadFactory(prefix);
+    }
+
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -2,16 +2,37 @@ package kz.kaspi.lab.moderation.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.kaspi.lab.moderation.idempotency.DedupStore;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.metrics.StageTimers;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.producer.ResultProjection;
+import kz.kaspi.lab.moderation.serde.AppealEventDeserializer;
+import kz.kaspi.lab.moderation.serde.ByteBufferErrorHandlingDeserializer;
+import kz.kaspi.lab.moderation.serde.ModerationResultSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,50 +46,215 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${kafka.consumer.mode:single}")
+    private String consumerMode;
+
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${kafka.serde.result-format:json}")
+    private String resultFormat;
+
+    @Value("${kafka.output.approved.compression:lz4}")
+    private String approvedCompression;
+
+    @Value("${kafka.output.review.compression:zstd}")
+    private String reviewCompression;
+
+    @Value("${kafka.output.approved.projection:full}")
+    private String approvedProjection;
+
+    @Value("${kafka.output.review.projection:full}")
+    private String reviewProjection;
+
+    @Value("${kafka.topics.approved}")
+    private String approvedTopic;
+
+    @Value("${kafka.producer.profile:latency}")
+    private String producerProfile;
+
+    // -1 — взять значение из профиля
+    @Value("${kafka.producer.linger-ms:-1}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size:-1}")
+    private int batchSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${kafka.producer.transactional:false}")
+    private boolean transactional;
+
+    @Value("${kafka.producer.transaction-id-prefix:moderation-tx-}")
+    private String transactionIdPrefix;
+
+    @Value("${kafka.retry.compression:lz4}")
+    private String retryCompression;
+
+    // Фабрики создаются здесь, а не автоконфигурацией Boot, поэтому метрики клиентов Kafka
+    // (lag, скорость fetch/send, compression-rate) подключаем сами
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
+        // Генерирует лямбды для геттеров/сеттеров вместо рефлексии (замена afterburner для JDK 11+)
+        mapper.registerModule(new BlackbirdModule());
         return mapper;
     }
 
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, AppealEvent> consumerFactory() {
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
-        return new DefaultKafkaConsumerFactory<>(config);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Битая запись не ломает poll: значение будет null, исключение — в заголовке записи
+        DefaultKafkaConsumerFactory<String, AppealEvent> factory = new DefaultKafkaConsumerFactory<>(config,
+                new StringDeserializer(), new ByteBufferErrorHandlingDeserializer<>(new AppealEventDeserializer(
+                        objectMapper(), StageTimers.of(meterRegistry, StageTimers.DESERIALIZE))));
+        // kafka.consumer.fetch.manager.records.lag{,.max} — отставание по партициям
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    // Уровни повторов: запись ждёт своего времени через nack (партиция на паузе, poll продолжается),
+    // поэтому подтверждения синхронные и без транзакций — повтор отсеет проверка идемпотентности
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, AppealEvent> retryListenerContainerFactory(
+            DedupStore dedupStore) {
+        ConcurrentKafkaListenerContainerFactory<String, AppealEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Партиция N уровня повторов держит состояние идемпотентности партиции N appeals-topic
+        if (dedupStore instanceof ConsumerRebalanceListener rebalanceListener) {
+            factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        }
+        return factory;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, AppealEvent> kafkaListenerContainerFactory(
+            ObjectProvider<KafkaTransactionManager<String, ModerationResult>> transactionManager,
+            DedupStore dedupStore) {
+        if (transactional && !"single".equals(consumerMode)) {
+            // batch и async публикуют результаты из других потоков, а транзакция привязана к потоку listener'а
+            throw new IllegalStateException("kafka.producer.transactional requires kafka.consumer.mode=single, got "
+                    + consumerMode);
+        }
+        ConcurrentKafkaListenerContainerFactory<String, AppealEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setBatchListener("batch".equals(consumerMode));
+        if (virtualThreads) {
+            // Поток listener'а блокируется на EnrichmentClient; виртуальный поток при этом отпускает carrier
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
+        // async, keyed и priority подтверждают записи не по порядку — контейнер коммитит непрерывный префикс
+        factory.getContainerProperties().setAsyncAcks("async".equals(consumerMode) || "keyed".equals(consumerMode)
+                || "priority".equals(consumerMode));
+        // Хранилище, разбитое по партициям, загружает и выгружает состояние вслед за назначением партиций
+        // (и appeals-topic, и топиков приоритетов, чьи контейнеры создаются этой же фабрикой)
+        if (dedupStore instanceof ConsumerRebalanceListener rebalanceListener) {
+            factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        }
+        // Отправка результата и коммит offset'а — в одной транзакции Kafka
+        transactionManager.ifAvailable(tm -> {
+            factory.getContainerProperties().setKafkaAwareTransactionManager(tm);
+            // Запись, исчерпавшая повторы (или битая), пропускается с коммитом offset'а в новой транзакции,
+            // иначе после рестарта она будет прочитана снова
+            factory.setAfterRollbackProcessor(new DefaultAfterRollbackProcessor<>(null,
+                    new FixedBackOff(0L, 9L), reviewKafkaTemplate(), true));
+        });
         return factory;
     }
 
+    // compression.type задаётся на продюсер, поэтому у каждого выходного топика своя фабрика и шаблон
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, ModerationResult> approvedProducerFactory() {
+        return producerFactory(approvedCompression, ResultProjection.of(approvedProjection));
+    }
+
+    // Транзакция живёт в одном продюсере, и отдельная транзакционная фабрика для approved-topic вышла бы
+    // из транзакции с offset'ом. Поэтому в транзакционном режиме оба топика пишутся через эту фабрику:
+    // сжатие у них общее (review-топика), а JSON approved-topic идёт по своей проекции
+    @Bean
+    public ProducerFactory<String, ModerationResult> reviewProducerFactory() {
+        if (transactional) {
+            return producerFactory(reviewCompression, ResultProjection.of(reviewProjection),
+                    Map.of(approvedTopic, ResultProjection.of(approvedProjection).jsonMapper(objectMapper())));
+        }
+        return producerFactory(reviewCompression, ResultProjection.of(reviewProjection));
+    }
+
+    @Bean
+    public KafkaTemplate<String, ModerationResult> approvedKafkaTemplate() {
+        return new KafkaTemplate<>(transactional ? reviewProducerFactory() : approvedProducerFactory());
+    }
+
+    @Bean
+    public KafkaTemplate<String, ModerationResult> reviewKafkaTemplate() {
+        return new KafkaTemplate<>(reviewProducerFactory());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kafka.producer.transactional", havingValue = "true")
+    public KafkaTransactionManager<String, ModerationResult> kafkaTransactionManager() {
+        return new KafkaTransactionManager<>(reviewProducerFactory());
+    }
+
+    // Публикация в retry-топики и DLT: значение уже в байтах (исходная запись или перекодированный AppealEvent).
+    // Вне транзакций: при откате запись придёт снова, а дубликат на уровне повторов отсеет dedup
+    @Bean
+    public KafkaTemplate<String, byte[]> retryKafkaTemplate() {
+        DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(
+                producerConfig(retryCompression), new StringSerializer(), new ByteArraySerializer());
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return new KafkaTemplate<>(factory);
+    }
+
+    private ProducerFactory<String, ModerationResult> producerFactory(String compression, ResultProjection projection) {
+        return producerFactory(compression, projection, Map.of());
+    }
+
+    private ProducerFactory<String, ModerationResult> producerFactory(String compression, ResultProjection projection,
+                                                                      Map<String, ObjectMapper> topicMappers) {
+        DefaultKafkaProducerFactory<String, ModerationResult> factory = new DefaultKafkaProducerFactory<>(
+                producerConfig(compression), new StringSerializer(),
+                new ModerationResultSerializer(projection.jsonMapper(objectMapper()), topicMappers,
+                        PayloadFormat.of(resultFormat), StageTimers.of(meterRegistry, StageTimers.SERIALIZE)));
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        if (transactional) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
+    }
+
+    private Map<String, Object> producerConfig(String compression) {
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         config.put(ProducerConfig.RETRIES_CONFIG, 3);
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
-        return new DefaultKafkaProducerFactory<>(config);
-    }
-
-    @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        ProducerProfile.of(producerProfile).applyTo(config);
+        if (lingerMs >= 0) {
+            config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        }
+        if (batchSize > 0) {
+            config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        }
+        return config;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package kz.kaspi.lab.moderation.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+// Наборы настроек батчинга продюсера. latency — отправка сразу, throughput — копим крупные батчи:
+// меньше запросов к брокеру и лучше сжатие ценой нескольких мс задержки
+public enum ProducerProfile {
+    LATENCY(0, 16 * 1024, 32L * 1024 * 1024),
+    BALANCED(5, 64 * 1024, 32L * 1024 * 1024),
+    THROUGHPUT(20, 256 * 1024, 64L * 1024 * 1024);
+
+    private final int lingerMs;
+    private final int batchSize;
+    private final long bufferMemory;
+
+    ProducerProfile(int lingerMs, int batchSize, long bufferMemory) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.bufferMemory = bufferMemory;
+    }
+
+    public static ProducerProfile of(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "latency" -> LATENCY;
+            case "balanced" -> BALANCED;
+            case "throughput" -> THROUGHPUT;
+            default -> throw new IllegalArgumentException("Unknown producer profile: " + name);
+        };
+    }
+
+    public void applyTo(Map<String, Object> config) {
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+    }
+}
@@ -0,0 +1,110 @@
+package kz.kaspi.lab.moderation.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.kaspi.lab.moderation.client.AdaptiveConcurrencyLimiter;
+import kz.kaspi.lab.moderation.client.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+
+// Защита пайплайна от деградации enrichment-service: лимит одновременных запросов,
+// circuit breaker и экспоненциальные повторы с джиттером
+@Configuration
+public class ResilienceConfig {
+
+    @Value("${enrichment.service.retry.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${enrichment.service.retry.min-backoff:200ms}")
+    private Duration minBackoff;
+
+    @Value("${enrichment.service.retry.max-backoff:2s}")
+    private Duration maxBackoff;
+
+    @Value("${enrichment.service.retry.jitter:0.5}")
+    private double jitter;
+
+    @Value("${enrichment.service.concurrency.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${enrichment.service.concurrency.min-limit:2}")
+    private int minLimit;
+
+    @Value("${enrichment.service.concurrency.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${enrichment.service.concurrency.latency-threshold:500ms}")
+    private Duration latencyThreshold;
+
+    @Value("${enrichment.service.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${enrichment.service.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${enrichment.service.circuit-breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${enrichment.service.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${enrichment.service.circuit-breaker.open-duration:10s}")
+    private Duration openDuration;
+
+    @Value("${enrichment.service.circuit-breaker.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    @Bean
+    public AdaptiveConcurrencyLimiter enrichmentConcurrencyLimiter(MeterRegistry meterRegistry) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                latencyThreshold, backoffRatio);
+        Gauge.builder("enrichment.client.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of concurrent enrichment requests")
+                .register(meterRegistry);
+        Gauge.builder("enrichment.client.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Enrichment requests currently in flight")
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    @Bean
+    public CircuitBreaker enrichmentCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(failureRateThreshold, windowSize, minimumCalls,
+                openDuration, halfOpenCalls);
+        // 0 — closed, 1 — open, 2 — half_open
+        Gauge.builder("enrichment.client.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("Enrichment circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("enrichment.client.circuit.failure.rate", circuitBreaker, CircuitBreaker::getFailureRate)
+                .description("Failure rate over the circuit breaker sliding window")
+                .register(meterRegistry);
+        return circuitBreaker;
+    }
+
+    @Bean
+    public RetryBackoffSpec enrichmentRetry() {
+        return Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter);
+    }
+
+    // /actuator/health/enrichmentClient. Всегда UP: при открытом breaker'е сервис работает на fallback-данных,
+    // и перезапуск пода по liveness/readiness здесь не поможет
+    @Bean
+    public HealthIndicator enrichmentClientHealthIndicator(AdaptiveConcurrencyLimiter enrichmentConcurrencyLimiter,
+                                                           CircuitBreaker enrichmentCircuitBreaker) {
+        return () -> Health.up()
+                .withDetail("circuitBreaker", enrichmentCircuitBreaker.getState())
+                .withDetail("failureRate", enrichmentCircuitBreaker.getFailureRate())
+                .withDetail("concurrencyLimit", enrichmentConcurrencyLimiter.getLimit())
+                .withDetail("inFlight", enrichmentConcurrencyLimiter.getInFlight())
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package kz.kaspi.lab.moderation.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kz.kaspi.lab.moderation.idempotency.DedupStore;
+import kz.kaspi.lab.moderation.metrics.StageTimers;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.producer.ModerationResultProducer;
+import kz.kaspi.lab.moderation.service.ModerationOutcome;
+import kz.kaspi.lab.moderation.service.ModerationService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.support.KafkaUtils;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class AppealProcessor {
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(AppealProcessor.class);
+
+    private final ModerationService moderationService;
+    private final ModerationResultProducer resultProducer;
+    private final ExecutorService moderationCompletionExecutor;
+
+    // Потокобезопасное хранилище обработанных ID (см. moderation.dedup.store)
+    private final DedupStore idempotencyStore;
+
+    private final Timer dedupTimer;
+    // Обращения между проверкой идемпотентности и публикацией результата, во всех режимах consumer'а
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AppealProcessor(ModerationService moderationService,
+                           ModerationResultProducer resultProducer,
+                           ExecutorService moderationCompletionExecutor,
+                           DedupStore idempotencyStore,
+                           MeterRegistry meterRegistry) {
+        this.moderationService = moderationService;
+        this.resultProducer = resultProducer;
+        this.moderationCompletionExecutor = moderationCompletionExecutor;
+        this.idempotencyStore = idempotencyStore;
+        this.dedupTimer = StageTimers.of(meterRegistry, StageTimers.DEDUP);
+        Gauge.builder("moderation.appeals.inflight", inFlight, AtomicInteger::get)
+                .description("Appeals currently being moderated")
+                .register(meterRegistry);
+    }
+
+    // Значение уже разобрано AppealEventDeserializer; null означает битую запись,
+    // причина лежит в заголовке от ErrorHandlingDeserializer
+    public AppealEvent deserialize(ConsumerRecord<String, AppealEvent> record) throws DeserializationException {
+        if (record.value() != null) {
+            return record.value();
+        }
+        DeserializationException cause = SerializationUtils.getExceptionFromHeader(record,
+                KafkaUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        throw cause != null ? cause
+                : new DeserializationException("Empty appeal payload", null, false, null);
+    }
+
+    // partition — партиция appeals-topic, к которой относится запись (SourcePartition.of)
+    public void process(AppealEvent appeal, int partition) {
+        // Проверка идемпотентности — ключевая строка!
+        if (isProcessed(appeal, partition)) {
+            log.warn("Appeal {} already processed (idempotency hit), skipping", appeal.getAppealId());
+            return;
+        }
+
+        ModerationOutcome outcome;
+        inFlight.incrementAndGet();
+        try {
+            // Обработка
+            outcome = moderationService.moderateAppeal(appeal);
+
+            // Публикация результата: ждём подтверждения брокера, ошибка отправки уходит вызывающему
+            // (retry-топик, nack), а ID не попадает в хранилище идемпотентности
+            resultProducer.sendResult(outcome.result()).join();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        // Сохраняем ID как обработанный (атомарно с подтверждением).
+        // В транзакционном режиме — только после коммита: при откате запись придёт снова и должна обработаться
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markAsProcessed(appeal, partition, outcome);
+                }
+            });
+        } else {
+            markAsProcessed(appeal, partition, outcome);
+        }
+    }
+
+    // Для батча: модерация — в вызывающем потоке, future завершается, когда результат подтверждён брокером
+    // и ID отмечен обработанным. Записи клиента отправляются по порядку одним продюсером — порядок в топике
+    // результата сохраняется, а подтверждения всей группы батч дожидается разом
+    public CompletableFuture<Void> submit(AppealEvent appeal, int partition) {
+        if (isProcessed(appeal, partition)) {
+            log.warn("Appeal {} already processed (idempotency hit), skipping", appeal.getAppealId());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        inFlight.incrementAndGet();
+        ModerationOutcome outcome;
+        CompletableFuture<?> sent;
+        try {
+            outcome = moderationService.moderateAppeal(appeal);
+            sent = resultProducer.sendResult(outcome.result());
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        return sent.whenComplete((sendResult, e) -> inFlight.decrementAndGet())
+                .thenAcceptAsync(sendResult -> markAsProcessed(appeal, partition, outcome), moderationCompletionExecutor);
+    }
+
+    // Неблокирующий вариант: future завершается, когда результат подтверждён брокером.
+    // Не бросает: любая ошибка, в том числе синхронная, приходит через future, чтобы запись была подтверждена
+    // или отправлена на повтор (с asyncAcks неподтверждённая запись останавливает коммиты партиции)
+    public CompletableFuture<Void> processAsync(AppealEvent appeal, int partition) {
+        try {
+            if (isProcessed(appeal, partition)) {
+                log.warn("Appeal {} already processed (idempotency hit), skipping", appeal.getAppealId());
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        inFlight.incrementAndGet();
+        return CompletableFuture.completedFuture(appeal)
+                .thenCompose(a -> moderationService.moderateAppealAsync(a).toFuture())
+                .thenCompose(outcome -> resultProducer.sendResult(outcome.result()).thenApply(sendResult -> outcome))
+                .whenComplete((outcome, e) -> inFlight.decrementAndGet())
+                .thenAcceptAsync(outcome -> markAsProcessed(appeal, partition, outcome), moderationCompletionExecutor);
+    }
+
+    // Счётчики активности клиента пополняются вместе с отметкой идемпотентности — один раз на appealId
+    private void markAsProcessed(AppealEvent appeal, int partition, ModerationOutcome outcome) {
+        idempotencyStore.markAsProcessed(partition, appeal.getAppealId());
+        moderationService.recordActivity(appeal, outcome.complaint());
+    }
+
+    private boolean isProcessed(AppealEvent appeal, int partition) {
+        long start = System.nanoTime();
+        boolean processed = idempotencyStore.isProcessed(partition, appeal.getAppealId());
+        dedupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return processed;
+    }
+}
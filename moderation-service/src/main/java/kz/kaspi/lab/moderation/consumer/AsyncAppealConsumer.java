@@ -0,0 +1,71 @@
+package kz.kaspi.lab.moderation.consumer;
+
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.retry.RetryRoutingAcknowledger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "async")
+public class AsyncAppealConsumer {
+
+    private final AppealProcessor appealProcessor;
+    private final RetryRoutingAcknowledger retryRouting;
+    private final Semaphore inFlight;
+
+    public AsyncAppealConsumer(AppealProcessor appealProcessor,
+                               RetryRoutingAcknowledger retryRouting,
+                               @Value("${kafka.consumer.async.max-in-flight}") int maxInFlight) {
+        this.appealProcessor = appealProcessor;
+        this.retryRouting = retryRouting;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @KafkaListener(
+            topics = "${kafka.topics.appeals}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void consumeAppeal(ConsumerRecord<String, AppealEvent> record, Acknowledgment acknowledgment)
+            throws InterruptedException {
+        if (log.isDebugEnabled()) {
+            log.debug("Received message from topic={}, partition={}, offset={}",
+                    record.topic(), record.partition(), record.offset());
+        }
+
+        AppealEvent appeal;
+        try {
+            appeal = appealProcessor.deserialize(record);
+        } catch (Exception e) {
+            log.error("Error processing message from offset={}: {}", record.offset(), e.getMessage(), e);
+            retryRouting.routeAndAcknowledge(record, e, acknowledgment);
+            return;
+        }
+
+        // Backpressure: при достижении лимита поток listener'а ждёт освобождения слота
+        inFlight.acquire();
+        appealProcessor.processAsync(appeal, SourcePartition.of(record)).whenComplete((ignored, exception) -> {
+            if (exception == null) {
+                inFlight.release();
+                // Контейнер с asyncAcks закоммитит offset, когда подтверждены все предыдущие
+                acknowledgment.acknowledge();
+                log.debug("Successfully processed and acknowledged appealId={}", appeal.getAppealId());
+            } else {
+                log.error("Error processing message from offset={}: {}",
+                        record.offset(), exception.getMessage(), exception);
+                // Слот освобождается, когда запись ушла в retry-топик и подтверждена
+                retryRouting.routeAndAcknowledge(record, exception, acknowledgment)
+                        .whenComplete((settled, routingFailure) -> inFlight.release());
+            }
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package kz.kaspi.lab.moderation.consumer;
+
+import jakarta.annotation.PreDestroy;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.retry.AppealRetryRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static kz.kaspi.lab.moderation.config.ExecutorConfig.threadFactory;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "batch")
+public class BatchAppealConsumer {
+
+    private final AppealProcessor appealProcessor;
+    private final AppealRetryRouter retryRouter;
+    private final ExecutorService executor;
+    private final Duration redeliveryBackoff;
+
+    public BatchAppealConsumer(AppealProcessor appealProcessor,
+                               AppealRetryRouter retryRouter,
+                               @Value("${kafka.consumer.batch.max-in-flight}") int maxInFlight,
+                               @Value("${kafka.consumer.batch.redelivery-backoff:1s}") Duration redeliveryBackoff,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.appealProcessor = appealProcessor;
+        this.retryRouter = retryRouter;
+        // Размер пула — это лимит max-in-flight; с виртуальными потоками он остаётся, но потоки дешёвые
+        this.executor = Executors.newFixedThreadPool(maxInFlight, threadFactory("batch-appeal-", virtualThreads));
+        this.redeliveryBackoff = redeliveryBackoff;
+    }
+
+    @KafkaListener(
+            topics = "${kafka.topics.appeals}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void consumeAppeals(List<ConsumerRecord<String, AppealEvent>> records, Acknowledgment acknowledgment) {
+        log.debug("Received batch of {} messages", records.size());
+
+        // Индекс первой неуспешной записи в порядке poll'а; всё, что до неё, можно коммитить
+        AtomicInteger firstFailed = new AtomicInteger(Integer.MAX_VALUE);
+
+        // Группируем по clientId: внутри группы записи обрабатываются последовательно,
+        // группы — параллельно (не больше max-in-flight одновременно)
+        Map<String, List<IndexedAppeal>> byClient = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, AppealEvent> record = records.get(i);
+            try {
+                AppealEvent appeal = appealProcessor.deserialize(record);
+                byClient.computeIfAbsent(appeal.getClientId(), k -> new ArrayList<>())
+                        .add(new IndexedAppeal(i, record, appeal));
+            } catch (DeserializationException e) {
+                // Битая запись не станет валидной при повторной доставке — сразу в DLT, а не зацикливаем nack
+                log.error("Undeserializable message at offset={}: {}", record.offset(), e.getMessage());
+                if (!route(record, e)) {
+                    firstFailed.accumulateAndGet(i, Math::min);
+                }
+            }
+        }
+
+        // Группа считается завершённой, только когда брокер подтвердил все её отправки
+        // (или не подтвердил, и запись ушла в retry-топик) — раньше ack/nack выбирать нельзя
+        CompletableFuture<?>[] groups = byClient.values().stream()
+                .map(group -> CompletableFuture.supplyAsync(() -> processGroup(group, firstFailed), executor)
+                        .thenCompose(sends -> sends))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(groups).join();
+
+        int failedIndex = firstFailed.get();
+        if (failedIndex == Integer.MAX_VALUE) {
+            acknowledgment.acknowledge();
+            log.debug("Successfully processed and acknowledged batch of {} messages", records.size());
+        } else {
+            // Коммитим всё до первой ошибки, остаток будет доставлен повторно
+            // (уже обработанные записи отсеет проверка идемпотентности)
+            acknowledgment.nack(failedIndex, redeliveryBackoff);
+            log.warn("Batch partially processed, redelivering from offset={}", records.get(failedIndex).offset());
+        }
+    }
+
+    // Возвращает future всех отправок группы; ошибки отправки уже обработаны в нём
+    private CompletableFuture<Void> processGroup(List<IndexedAppeal> group, AtomicInteger firstFailed) {
+        List<CompletableFuture<Void>> sends = new ArrayList<>(group.size());
+        // Отметка в хранилище идемпотентности появляется только после подтверждения отправки,
+        // поэтому дубликат внутри группы отсеиваем сами
+        Set<String> submitted = new HashSet<>();
+        for (IndexedAppeal item : group) {
+            if (item.appeal().getAppealId() != null && !submitted.add(item.appeal().getAppealId())) {
+                log.warn("Appeal {} is duplicated in batch, skipping", item.appeal().getAppealId());
+                continue;
+            }
+            try {
+                CompletableFuture<Void> sent = appealProcessor.submit(item.appeal(), SourcePartition.of(item.record()));
+                // Колбэк отправки выполняется в I/O-потоке продюсера — публикацию в retry-топик выносим в пул
+                sends.add(sent.exceptionallyAsync(e -> {
+                    log.error("Failed to publish result for message from offset={}: {}",
+                            item.record().offset(), e.getMessage());
+                    if (!route(item.record(), e)) {
+                        firstFailed.accumulateAndGet(item.index(), Math::min);
+                    }
+                    return null;
+                }, executor));
+            } catch (Exception e) {
+                log.error("Error processing message from offset={}: {}",
+                        item.record().offset(), e.getMessage(), e);
+                // Повтор — через retry-топик; если опубликовать не удалось, остаток клиента
+                // не обрабатываем, чтобы не нарушить порядок, и ждём повторной доставки батча.
+                // Уже отправленные записи клиента этим не отменить — их отсеет идемпотентность
+                if (!route(item.record(), e)) {
+                    firstFailed.accumulateAndGet(item.index(), Math::min);
+                    break;
+                }
+            }
+        }
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    }
+
+    private boolean route(ConsumerRecord<String, AppealEvent> record, Throwable failure) {
+        try {
+            retryRouter.route(record, failure).join();
+            return true;
+        } catch (Exception routingFailure) {
+            log.error("Failed to route message from offset={}: {}", record.offset(), routingFailure.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private record IndexedAppeal(int index, ConsumerRecord<String, AppealEvent> record, AppealEvent appeal) {
+    }
+}
@@ -0,0 +1,114 @@
+package kz.kaspi.lab.moderation.consumer;
+
+import jakarta.annotation.PreDestroy;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.retry.RetryRoutingAcknowledger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static kz.kaspi.lab.moderation.config.ExecutorConfig.threadFactory;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "keyed")
+public class KeyedAppealConsumer {
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final AppealProcessor appealProcessor;
+    private final RetryRoutingAcknowledger retryRouting;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    // Хвост очереди каждого клиента: следующее обращение клиента стартует после завершения предыдущего,
+    // обращения разных клиентов из одной партиции идут параллельно
+    private final ConcurrentMap<String, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+
+    public KeyedAppealConsumer(AppealProcessor appealProcessor,
+                               RetryRoutingAcknowledger retryRouting,
+                               @Value("${kafka.consumer.keyed.max-in-flight}") int maxInFlight,
+                               @Value("${kafka.consumer.keyed.virtual-threads:true}") boolean virtualThreads,
+                               @Value("${kafka.consumer.keyed.threads:64}") int threads) {
+        this.appealProcessor = appealProcessor;
+        this.retryRouting = retryRouting;
+        // process() блокируется на вызове enrichment — виртуальный поток на обращение дешевле пула
+        this.executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(threadFactory("keyed-appeal-", true))
+                : Executors.newFixedThreadPool(threads, threadFactory("keyed-appeal-", false));
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @KafkaListener(
+            topics = "${kafka.topics.appeals}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void consumeAppeal(ConsumerRecord<String, AppealEvent> record, Acknowledgment acknowledgment)
+            throws InterruptedException {
+        if (log.isDebugEnabled()) {
+            log.debug("Received message from topic={}, partition={}, offset={}",
+                    record.topic(), record.partition(), record.offset());
+        }
+
+        AppealEvent appeal;
+        try {
+            appeal = appealProcessor.deserialize(record);
+        } catch (Exception e) {
+            log.error("Error processing message from offset={}: {}", record.offset(), e.getMessage(), e);
+            retryRouting.routeAndAcknowledge(record, e, acknowledgment);
+            return;
+        }
+
+        // Backpressure: при достижении лимита поток listener'а ждёт освобождения слота
+        inFlight.acquire();
+        int partition = SourcePartition.of(record);
+        String key = laneKey(appeal);
+        CompletableFuture<Void> task = lanes.compute(key, (k, tail) ->
+                // Ошибка предыдущего обращения не должна блокировать очередь клиента
+                (tail == null ? IDLE : tail.exceptionally(e -> null))
+                        .thenRunAsync(() -> appealProcessor.process(appeal, partition), executor));
+
+        task.whenComplete((ignored, exception) -> {
+            // Очередь опустела — убираем её, чтобы map не росла по числу клиентов
+            lanes.remove(key, task);
+            if (exception == null) {
+                inFlight.release();
+                log.debug("Successfully processed and acknowledged appealId={}", appeal.getAppealId());
+                acknowledgment.acknowledge();
+            } else {
+                log.error("Error processing message from offset={}: {}",
+                        record.offset(), exception.getMessage(), exception);
+                // Следующие обращения клиента не ждут повтора: порядок сохраняется только в пределах топика.
+                // Слот освобождается, когда запись ушла в retry-топик и подтверждена
+                retryRouting.routeAndAcknowledge(record, exception, acknowledgment)
+                        .whenComplete((settled, routingFailure) -> inFlight.release());
+            }
+        });
+    }
+
+    private static String laneKey(AppealEvent appeal) {
+        if (appeal.getClientId() != null) {
+            return appeal.getClientId();
+        }
+        // Без clientId порядок не нужен — каждое обращение в своей очереди
+        return appeal.getAppealId() != null ? appeal.getAppealId() : "";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,13 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+// partition — партиция appeals-topic, к которой относится запись (SourcePartition)
+public interface DedupStore extends AutoCloseable {
+
+    boolean isProcessed(int partition, String appealId);
+
+    void markAsProcessed(int partition, String appealId);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,79 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Исходная реализация: все ID в памяти + текстовый файл, одна запись на вызов
+@Slf4j
+public class FileDedupStore implements GlobalDedupStore {
+
+    private final Path storageFile;
+    private final Set<String> processedIds = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    // ReentrantLock, а не synchronized: в JDK 21 виртуальный поток внутри synchronized
+    // с файловым I/O блокирует свой carrier-поток
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public FileDedupStore(Path storageFile) {
+        this.storageFile = storageFile;
+        loadFromFile();
+    }
+
+    private void loadFromFile() {
+        if (!Files.exists(storageFile)) {
+            try {
+                Files.createFile(storageFile);
+                log.info("Created idempotency storage file: {}", storageFile);
+            } catch (IOException e) {
+                log.error("Failed to create idempotency storage file", e);
+            }
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(storageFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    processedIds.add(line.trim());
+                }
+            }
+            log.info("Loaded {} processed appeal IDs from file", processedIds.size());
+        } catch (IOException e) {
+            log.error("Failed to load processed IDs from file", e);
+        }
+    }
+
+    @Override
+    public boolean isProcessed(String appealId) {
+        return processedIds.contains(appealId);
+    }
+
+    @Override
+    public void markAsProcessed(String appealId) {
+        writeLock.lock();
+        try {
+            if (processedIds.add(appealId)) {
+                try {
+                    Files.writeString(storageFile, appealId + System.lineSeparator(),
+                            StandardOpenOption.APPEND);
+                    log.debug("Persisted processed appeal ID: {}", appealId);
+                } catch (IOException e) {
+                    log.error("Failed to persist appeal ID {} to file", appealId, e);
+                    // Не удаляем из памяти, даже если запись в файл не удалась
+                    // При следующем перезапуске придётся обработать повторно, но это лучше потери данных
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import java.util.concurrent.locks.StampedLock;
+
+// Открытая адресация по 64-битным отпечаткам: 16 байт на запись вместо String в ConcurrentHashMap.
+// Значение — время отметки в мс, по нему же работает TTL (replay хранит здесь код решения и TTL не использует).
+// Ключ и время лежат рядом в одном массиве [key, timestamp, key, timestamp, ...], чтобы поиск стоил один промах кэша
+public final class FingerprintIndex {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] slots;
+    private int size;
+
+    public FingerprintIndex(int expectedSize) {
+        slots = new long[capacityFor(expectedSize) * 2];
+    }
+
+    public static long fingerprint(String value) {
+        // FNV-1a по символам + финализатор murmur3, без промежуточных byte[]
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+
+    // Возвращает время отметки или 0, если отпечатка нет
+    public long get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        long result = find(slots, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = find(slots, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    // true, если отпечаток добавлен (или истёк и был обновлён)
+    public boolean put(long key, long timestamp, long expiredBefore) {
+        long stamp = lock.writeLock();
+        try {
+            int mask = slots.length / 2 - 1;
+            int slot = spread(key) & mask;
+            while (slots[slot * 2] != EMPTY) {
+                if (slots[slot * 2] == key) {
+                    if (slots[slot * 2 + 1] >= expiredBefore) {
+                        return false;
+                    }
+                    slots[slot * 2 + 1] = timestamp;
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot * 2] = key;
+            slots[slot * 2 + 1] = timestamp;
+            if (++size * 4 > slots.length) {
+                rehash(slots.length, Long.MIN_VALUE);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Удаляет записи старше expiredBefore и ужимает таблицу
+    int purge(long expiredBefore) {
+        long stamp = lock.writeLock();
+        try {
+            int before = size;
+            int live = 0;
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != EMPTY && slots[i + 1] >= expiredBefore) {
+                    live++;
+                }
+            }
+            rehash(capacityFor(live), expiredBefore);
+            return before - size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void rehash(int capacity, long expiredBefore) {
+        long[] old = slots;
+        long[] resized = new long[capacity * 2];
+        int mask = capacity - 1;
+        int count = 0;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] == EMPTY || old[i + 1] < expiredBefore) {
+                continue;
+            }
+            int slot = spread(old[i]) & mask;
+            while (resized[slot * 2] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            resized[slot * 2] = old[i];
+            resized[slot * 2 + 1] = old[i + 1];
+            count++;
+        }
+        slots = resized;
+        size = count;
+    }
+
+    private static long find(long[] slots, long key) {
+        int mask = slots.length / 2 - 1;
+        int slot = spread(key) & mask;
+        // Ограничиваем число проб: при оптимистичном чтении массив может меняться под нами
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = slots[slot * 2];
+            if (current == EMPTY) {
+                return 0L;
+            }
+            if (current == key) {
+                return slots[slot * 2 + 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0L;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int spread(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,19 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+// Одно состояние на все партиции: партиция записи не нужна
+public interface GlobalDedupStore extends DedupStore {
+
+    boolean isProcessed(String appealId);
+
+    void markAsProcessed(String appealId);
+
+    @Override
+    default boolean isProcessed(int partition, String appealId) {
+        return isProcessed(appealId);
+    }
+
+    @Override
+    default void markAsProcessed(int partition, String appealId) {
+        markAsProcessed(appealId);
+    }
+}
@@ -0,0 +1,375 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Состояние идемпотентности, разбитое по партициям appeals-topic. Каждая отметка пишется в compacted
+// changelog-топик в ту же партицию (ключ — appealId, значение — время отметки). Экземпляр держит в памяти
+// только партиции, назначенные его consumer'ам: при назначении партиция восстанавливается из changelog,
+// при отзыве — выбрасывается. Changelog читается и дальше, поэтому отметки, сделанные другими экземплярами,
+// тоже попадают в индекс владельца. Retry-топики и топики приоритетов разбиты так же, как appeals-topic:
+// запись идёт в партицию с номером исходной, и партиция N любого из них держит состояние партиции N
+@Slf4j
+public class PartitionedDedupStore implements DedupStore, ConsumerAwareRebalanceListener {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final KafkaAdmin kafkaAdmin;
+    private final Map<String, Object> consumerConfig;
+    private final String appealsTopic;
+    // appeals-topic и топики, куда записи перекладываются в исходную партицию (retry-уровни, приоритеты)
+    private final Set<String> copartitionedTopics;
+    private final String changelogTopic;
+    private final long retentionMillis;
+    private final Duration restoreTimeout;
+    private final long maintenanceIntervalMillis;
+    private final boolean syncCommit;
+
+    // Назначенные партиции; набор ключей — то, что читает поток changelog
+    private final ConcurrentMap<Integer, PartitionState> partitions = new ConcurrentHashMap<>();
+    // Партиции топиков, которые держат состояние: оно выбрасывается, когда отозвана последняя из них.
+    // partitions пополняется и чистится вместе с ней, под её монитором
+    private final Map<Integer, Set<TopicPartition>> holders = new HashMap<>();
+    // Отозванные, но ещё не выброшенные партиции каждого consumer'а: при eager-ребалансе отзываются все,
+    // и те, что вернулись тому же consumer'у, не перечитываются
+    private final Map<Consumer<?, ?>, Set<TopicPartition>> pendingRevocations = new IdentityHashMap<>();
+    private volatile boolean topicsReady;
+    private volatile boolean assignmentChanged;
+
+    private final Thread reader;
+    private volatile KafkaConsumer<String, byte[]> readerConsumer;
+    private volatile boolean running = true;
+
+    public PartitionedDedupStore(KafkaTemplate<String, byte[]> template,
+                                 KafkaAdmin kafkaAdmin,
+                                 Map<String, Object> consumerConfig,
+                                 String appealsTopic,
+                                 Collection<String> copartitionedTopics,
+                                 String changelogTopic,
+                                 Duration retention,
+                                 Duration restoreTimeout,
+                                 Duration maintenanceInterval,
+                                 boolean syncCommit) {
+        this.template = template;
+        this.kafkaAdmin = kafkaAdmin;
+        this.consumerConfig = Map.copyOf(consumerConfig);
+        this.appealsTopic = appealsTopic;
+        this.copartitionedTopics = new HashSet<>(copartitionedTopics);
+        this.copartitionedTopics.add(appealsTopic);
+        this.changelogTopic = changelogTopic;
+        this.retentionMillis = retention.toMillis();
+        this.restoreTimeout = restoreTimeout;
+        this.maintenanceIntervalMillis = maintenanceInterval.toMillis();
+        this.syncCommit = syncCommit;
+
+        this.reader = new Thread(this::readLoop, "dedup-changelog-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public boolean isProcessed(int partition, String appealId) {
+        PartitionState state = partitions.get(partition);
+        if (state == null) {
+            // Запись из retry-топика или топика приоритета держит состояние своей партиции, сюда попадает
+            // только опубликованная до включения разбиения по исходной партиции — проверку пропускаем
+            return false;
+        }
+        long markedAt = state.index.get(FingerprintIndex.fingerprint(appealId));
+        return markedAt != 0L && markedAt >= System.currentTimeMillis() - retentionMillis;
+    }
+
+    @Override
+    public void markAsProcessed(int partition, String appealId) {
+        long now = System.currentTimeMillis();
+        PartitionState state = partitions.get(partition);
+        if (state != null && !state.index.put(FingerprintIndex.fingerprint(appealId), now, now - retentionMillis)) {
+            return;
+        }
+        // Пишем и для чужой партиции: владелец прочитает отметку из changelog
+        CompletableFuture<?> sent = template.send(new ProducerRecord<>(changelogTopic, partition, appealId,
+                ByteBuffer.allocate(Long.BYTES).putLong(now).array()));
+        if (syncCommit) {
+            // Как sync-commit в segmented: без записи в changelog отметка потеряется при переезде партиции
+            sent.join();
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        synchronized (pendingRevocations) {
+            pendingRevocations.computeIfAbsent(consumer, c -> new HashSet<>()).addAll(copartitioned(revoked));
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        Set<TopicPartition> lostPartitions = copartitioned(lost);
+        synchronized (pendingRevocations) {
+            Set<TopicPartition> pending = pendingRevocations.get(consumer);
+            if (pending != null) {
+                pending.removeAll(lostPartitions);
+            }
+        }
+        release(lostPartitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+        Set<TopicPartition> assignedPartitions = copartitioned(assigned);
+        Set<TopicPartition> revoked;
+        synchronized (pendingRevocations) {
+            revoked = pendingRevocations.remove(consumer);
+        }
+        if (revoked != null) {
+            revoked.removeAll(assignedPartitions);
+            release(revoked);
+        }
+        if (assignedPartitions.isEmpty()) {
+            return;
+        }
+        ensureTopics();
+
+        Set<Integer> held = new HashSet<>();
+        List<CompletableFuture<Void>> restores = new ArrayList<>();
+        synchronized (holders) {
+            for (TopicPartition topicPartition : assignedPartitions) {
+                int partition = topicPartition.partition();
+                holders.computeIfAbsent(partition, p -> new HashSet<>()).add(topicPartition);
+                if (held.add(partition)) {
+                    restores.add(partitions.computeIfAbsent(partition, p -> new PartitionState()).restored);
+                }
+            }
+        }
+        wakeUpReader();
+        // Пока партиция не восстановлена, проверка идемпотентности по ней недостоверна — ждём в потоке consumer'а
+        try {
+            CompletableFuture.allOf(restores.toArray(CompletableFuture[]::new))
+                    .get(restoreTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Dedup state for partitions {} of {} is not restored within {}, continuing",
+                    held, appealsTopic, restoreTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Failed to restore dedup state for partitions {}", held, e);
+        }
+    }
+
+    private Set<TopicPartition> copartitioned(Collection<TopicPartition> topicPartitions) {
+        Set<TopicPartition> result = new HashSet<>();
+        for (TopicPartition topicPartition : topicPartitions) {
+            if (copartitionedTopics.contains(topicPartition.topic())) {
+                result.add(topicPartition);
+            }
+        }
+        return result;
+    }
+
+    // Состояние выбрасывается, когда отозвана последняя партиция с его номером
+    private void release(Set<TopicPartition> revoked) {
+        Set<Integer> dropped = new HashSet<>();
+        synchronized (holders) {
+            for (TopicPartition topicPartition : revoked) {
+                int partition = topicPartition.partition();
+                Set<TopicPartition> held = holders.get(partition);
+                if (held != null && held.remove(topicPartition) && held.isEmpty()) {
+                    holders.remove(partition);
+                    partitions.remove(partition);
+                    dropped.add(partition);
+                }
+            }
+        }
+        if (dropped.isEmpty()) {
+            return;
+        }
+        wakeUpReader();
+        log.info("Dropped dedup state for partitions {} of {}", dropped, appealsTopic);
+    }
+
+    // Changelog, retry-топики и топики приоритетов — с тем же числом партиций, что и appeals-topic:
+    // запись перекладывается в партицию с номером исходной
+    private void ensureTopics() {
+        if (topicsReady) {
+            return;
+        }
+        synchronized (this) {
+            if (topicsReady) {
+                return;
+            }
+            int partitionCount = kafkaAdmin.describeTopics(appealsTopic).get(appealsTopic).partitions().size();
+            List<NewTopic> topics = new ArrayList<>();
+            topics.add(TopicBuilder.name(changelogTopic)
+                    .partitions(partitionCount)
+                    .config(TopicConfig.CLEANUP_POLICY_CONFIG,
+                            TopicConfig.CLEANUP_POLICY_COMPACT + "," + TopicConfig.CLEANUP_POLICY_DELETE)
+                    .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retentionMillis))
+                    .build());
+            // Существующему топику с меньшим числом партиций KafkaAdmin их добавляет
+            copartitionedTopics.stream()
+                    .filter(topic -> !appealsTopic.equals(topic))
+                    .forEach(topic -> topics.add(TopicBuilder.name(topic).partitions(partitionCount).build()));
+            kafkaAdmin.createOrModifyTopics(topics.toArray(NewTopic[]::new));
+            topicsReady = true;
+        }
+    }
+
+    private void wakeUpReader() {
+        assignmentChanged = true;
+        KafkaConsumer<String, byte[]> consumer = readerConsumer;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+    }
+
+    // KafkaConsumer однопоточный: назначение, восстановление и чтение новых отметок — только в этом потоке
+    private void readLoop() {
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(consumerConfig,
+                new StringDeserializer(), new ByteArrayDeserializer())) {
+            readerConsumer = consumer;
+            Map<Integer, PartitionState> reading = new HashMap<>();
+            long nextMaintenance = System.currentTimeMillis() + maintenanceIntervalMillis;
+            while (running) {
+                try {
+                    if (assignmentChanged) {
+                        assignmentChanged = false;
+                        reassign(consumer, reading);
+                    }
+                    if (reading.isEmpty()) {
+                        Thread.sleep(POLL_TIMEOUT.toMillis());
+                        continue;
+                    }
+                    apply(consumer.poll(POLL_TIMEOUT), reading);
+                    completeRestores(consumer, reading);
+                    if (System.currentTimeMillis() >= nextMaintenance) {
+                        long cutoff = System.currentTimeMillis() - retentionMillis;
+                        reading.values().forEach(state -> state.index.purge(cutoff));
+                        nextMaintenance = System.currentTimeMillis() + maintenanceIntervalMillis;
+                    }
+                } catch (WakeupException e) {
+                    // Изменилось назначение — перечитываем набор партиций
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("Failed to read dedup changelog {}", changelogTopic, e);
+                    Thread.sleep(POLL_TIMEOUT.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            readerConsumer = null;
+        }
+    }
+
+    private void reassign(KafkaConsumer<String, byte[]> consumer, Map<Integer, PartitionState> reading) {
+        reading.clear();
+        reading.putAll(partitions);
+        try {
+            consumer.assign(reading.keySet().stream()
+                    .map(partition -> new TopicPartition(changelogTopic, partition))
+                    .toList());
+            List<TopicPartition> restoring = reading.entrySet().stream()
+                    .filter(entry -> entry.getValue().restoreTarget < 0)
+                    .map(entry -> new TopicPartition(changelogTopic, entry.getKey()))
+                    .toList();
+            if (restoring.isEmpty()) {
+                return;
+            }
+            // Новые партиции читаются с начала до конца на момент назначения — это и есть восстановление
+            consumer.seekToBeginning(restoring);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(restoring);
+            long now = System.currentTimeMillis();
+            endOffsets.forEach((topicPartition, endOffset) -> {
+                PartitionState state = reading.get(topicPartition.partition());
+                state.restoreStartedAt = now;
+                state.restoreTarget = endOffset;
+            });
+        } catch (WakeupException e) {
+            // wakeup пришёлся на endOffsets — повторяем назначение на следующем круге
+            assignmentChanged = true;
+            throw e;
+        }
+        completeRestores(consumer, reading);
+    }
+
+    private void apply(ConsumerRecords<String, byte[]> records, Map<Integer, PartitionState> reading) {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            PartitionState state = reading.get(record.partition());
+            if (state == null || record.key() == null || record.value() == null
+                    || record.value().length != Long.BYTES) {
+                continue;
+            }
+            long markedAt = ByteBuffer.wrap(record.value()).getLong();
+            if (markedAt >= cutoff) {
+                state.index.put(FingerprintIndex.fingerprint(record.key()), markedAt, cutoff);
+            }
+        }
+    }
+
+    private void completeRestores(KafkaConsumer<String, byte[]> consumer, Map<Integer, PartitionState> reading) {
+        reading.forEach((partition, state) -> {
+            if (state.restored.isDone() || state.restoreTarget < 0) {
+                return;
+            }
+            if (consumer.position(new TopicPartition(changelogTopic, partition)) >= state.restoreTarget) {
+                state.restored.complete(null);
+                log.info("Restored dedup state for partition {} of {}: {} IDs in {} ms", partition, appealsTopic,
+                        state.index.size(), System.currentTimeMillis() - state.restoreStartedAt);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        wakeUpReader();
+        try {
+            reader.join(Duration.ofSeconds(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PartitionState {
+
+        final FingerprintIndex index = new FingerprintIndex(0);
+        final CompletableFuture<Void> restored = new CompletableFuture<>();
+        // Пишутся и читаются только потоком changelog
+        long restoreTarget = -1;
+        long restoreStartedAt;
+    }
+}
@@ -0,0 +1,425 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Append-only лог из сегментов фиксированных записей [fingerprint:8][timestamp:8].
+// Индекс в памяти строится только из сегментов в пределах retention, запись на диск — group commit.
+@Slf4j
+public class SegmentedDedupStore implements GlobalDedupStore {
+
+    private static final int RECORD_SIZE = 16;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int WRITE_BUFFER_RECORDS = 4096;
+    private static final long CLOCK_TICK_MILLIS = 100;
+
+    private final Path directory;
+    private final long retentionMillis;
+    private final long segmentMaxBytes;
+    private final long segmentMaxAgeMillis;
+    private final int maxClosedSegments;
+    private final boolean fsync;
+    private final boolean syncCommit;
+
+    private final FingerprintIndex index;
+
+    // Group commit: вызывающие потоки пишут в pending, поток flusher сбрасывает его одним write()
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition notEmpty = writeLock.newCondition();
+    private final Condition flushed = writeLock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_SIZE);
+    private long appendedSeq;
+    private long flushedSeq;
+    private volatile boolean running = true;
+    // Поток flusher завершился: всё, что успели добавить в pending, уже в файле
+    private boolean flusherStopped;
+
+    // Грубые часы для TTL: System.currentTimeMillis() на каждый lookup заметно дороже самого поиска
+    private volatile long clock = System.currentTimeMillis();
+
+    // Активный сегмент трогает только поток flusher
+    private FileChannel activeChannel;
+    private Segment activeSegment;
+    private final List<Segment> closedSegments = new ArrayList<>();
+
+    private final Thread flusher;
+    private final ScheduledExecutorService maintenance;
+
+    public SegmentedDedupStore(Path directory,
+                               Duration retention,
+                               long segmentMaxBytes,
+                               Duration segmentMaxAge,
+                               int maxClosedSegments,
+                               Duration maintenanceInterval,
+                               boolean fsync,
+                               boolean syncCommit) {
+        this.directory = directory;
+        this.retentionMillis = retention.toMillis();
+        this.segmentMaxBytes = Math.max(segmentMaxBytes - segmentMaxBytes % RECORD_SIZE, RECORD_SIZE);
+        this.segmentMaxAgeMillis = segmentMaxAge.toMillis();
+        this.maxClosedSegments = maxClosedSegments;
+        this.fsync = fsync;
+        this.syncCommit = syncCommit;
+
+        try {
+            Files.createDirectories(directory);
+            this.index = loadSegments();
+            openNewSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open dedup store in " + directory, e);
+        }
+
+        this.flusher = new Thread(this::flushLoop, "dedup-store-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dedup-store-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = maintenanceInterval.toMillis();
+        this.maintenance.scheduleWithFixedDelay(this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        this.maintenance.scheduleAtFixedRate(() -> clock = System.currentTimeMillis(),
+                CLOCK_TICK_MILLIS, CLOCK_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isProcessed(String appealId) {
+        long markedAt = index.get(FingerprintIndex.fingerprint(appealId));
+        return markedAt != 0L && markedAt >= clock - retentionMillis;
+    }
+
+    @Override
+    public void markAsProcessed(String appealId) {
+        if (!running) {
+            throw closed();
+        }
+        long fingerprint = FingerprintIndex.fingerprint(appealId);
+        long now = clock;
+        if (!index.put(fingerprint, now, now - retentionMillis)) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            while (pending.remaining() < RECORD_SIZE) {
+                // Буфер полон — ждём, пока flusher его заберёт
+                flushed.awaitUninterruptibly();
+            }
+            // close() мог пройти, пока ждали блокировку: после него flusher может уже не забрать запись
+            if (!running) {
+                throw closed();
+            }
+            pending.putLong(fingerprint).putLong(now);
+            long seq = ++appendedSeq;
+            notEmpty.signal();
+            if (syncCommit) {
+                // Ждём, пока наша запись окажется в файле (вместе со всеми соседними).
+                // После close() flusher дописывает pending до конца и только потом завершается
+                while (flushedSeq < seq && !flusherStopped) {
+                    flushed.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private IllegalStateException closed() {
+        return new IllegalStateException("Dedup store in " + directory + " is closed");
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        writeLock.lock();
+        try {
+            running = false;
+            notEmpty.signal();
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+            activeChannel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Failed to close active dedup segment {}", activeSegment.path(), e);
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            flushPending();
+        } finally {
+            writeLock.lock();
+            try {
+                flusherStopped = true;
+                flushed.signalAll();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void flushPending() {
+        while (true) {
+            long target;
+            writeLock.lock();
+            try {
+                while (pending.position() == 0 && running) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer swap = pending;
+                pending = flushing;
+                flushing = swap;
+                target = appendedSeq;
+            } finally {
+                writeLock.unlock();
+            }
+
+            flushing.flip();
+            try {
+                writeBatch(flushing);
+            } catch (IOException e) {
+                // Индекс в памяти уже содержит ID — как и раньше, предпочитаем повторную обработку после рестарта
+                log.error("Failed to persist {} dedup records", flushing.remaining() / RECORD_SIZE, e);
+            }
+            flushing.clear();
+
+            writeLock.lock();
+            try {
+                flushedSeq = target;
+                flushed.signalAll();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        long now = System.currentTimeMillis();
+        if (activeSegment.bytes() >= segmentMaxBytes || now - activeSegment.createdAt() >= segmentMaxAgeMillis) {
+            rollSegment();
+        }
+        long maxTimestamp = batch.getLong(batch.limit() - Long.BYTES);
+        int written = batch.remaining();
+        while (batch.hasRemaining()) {
+            activeChannel.write(batch);
+        }
+        if (fsync) {
+            activeChannel.force(false);
+        }
+        activeSegment = activeSegment.append(written, maxTimestamp);
+    }
+
+    private void rollSegment() throws IOException {
+        activeChannel.close();
+        synchronized (closedSegments) {
+            closedSegments.add(activeSegment);
+        }
+        openNewSegment();
+    }
+
+    private void openNewSegment() throws IOException {
+        long createdAt = System.currentTimeMillis();
+        Path path = directory.resolve(segmentName(createdAt));
+        while (Files.exists(path)) {
+            path = directory.resolve(segmentName(++createdAt));
+        }
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSegment = new Segment(path, createdAt, 0L, 0L);
+    }
+
+    // Загружает в индекс только записи внутри окна retention; истёкшие сегменты удаляются сразу
+    private FingerprintIndex loadSegments() throws IOException {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        List<Path> paths = listSegments();
+        long expected = 0L;
+        for (Path path : paths) {
+            expected += Files.size(path) / RECORD_SIZE;
+        }
+
+        FingerprintIndex loaded = new FingerprintIndex((int) Math.min(expected, Integer.MAX_VALUE / 4));
+        int total = 0;
+        for (Path path : paths) {
+            long size = Files.size(path);
+            long usable = size - size % RECORD_SIZE;
+            long maxTimestamp = 0L;
+            int live = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (size != usable) {
+                    // Хвост от недописанной записи после аварийного завершения
+                    channel.truncate(usable);
+                }
+                if (usable > 0) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, usable);
+                    while (buffer.remaining() >= RECORD_SIZE) {
+                        long fingerprint = buffer.getLong();
+                        long timestamp = buffer.getLong();
+                        maxTimestamp = Math.max(maxTimestamp, timestamp);
+                        if (timestamp >= cutoff) {
+                            loaded.put(fingerprint, timestamp, cutoff);
+                            live++;
+                        }
+                    }
+                }
+            }
+            if (live == 0) {
+                Files.deleteIfExists(path);
+                continue;
+            }
+            total += live;
+            closedSegments.add(new Segment(path, parseCreatedAt(path), usable, maxTimestamp));
+        }
+        log.info("Loaded {} processed appeal fingerprints from {} segments in {}",
+                total, closedSegments.size(), directory);
+        return loaded;
+    }
+
+    void maintain() {
+        try {
+            long cutoff = System.currentTimeMillis() - retentionMillis;
+            List<Segment> expired = new ArrayList<>();
+            synchronized (closedSegments) {
+                closedSegments.removeIf(segment -> {
+                    if (segment.maxTimestamp() < cutoff) {
+                        expired.add(segment);
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            for (Segment segment : expired) {
+                Files.deleteIfExists(segment.path());
+            }
+            int purged = index.purge(cutoff);
+            for (List<Segment> pair = neighboursToCompact(); !pair.isEmpty(); pair = neighboursToCompact()) {
+                compact(pair, cutoff);
+            }
+            if (!expired.isEmpty() || purged > 0) {
+                log.info("Dedup store maintenance: removed {} segments, expired {} fingerprints, {} live",
+                        expired.size(), purged, index.size());
+            }
+        } catch (Exception e) {
+            log.error("Dedup store maintenance failed", e);
+        }
+    }
+
+    // Пара соседних сегментов с наименьшим общим размером: каждое слияние переписывает немного данных,
+    // а сегменты остаются упорядочены по времени и истекают по частям, а не одним большим файлом
+    private List<Segment> neighboursToCompact() {
+        synchronized (closedSegments) {
+            if (closedSegments.size() <= Math.max(maxClosedSegments, 1)) {
+                return List.of();
+            }
+            int best = 0;
+            for (int i = 1; i < closedSegments.size() - 1; i++) {
+                if (closedSegments.get(i).bytes() + closedSegments.get(i + 1).bytes()
+                        < closedSegments.get(best).bytes() + closedSegments.get(best + 1).bytes()) {
+                    best = i;
+                }
+            }
+            return List.of(closedSegments.get(best), closedSegments.get(best + 1));
+        }
+    }
+
+    // Сливает соседние сегменты в файл старшего, выбрасывая истёкшие записи
+    private void compact(List<Segment> segments, long cutoff) throws IOException {
+        Segment first = segments.get(0);
+        Path tmp = directory.resolve(first.path().getFileName() + ".compacting");
+        long bytes = 0L;
+        long maxTimestamp = 0L;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_SIZE);
+            for (Segment segment : segments) {
+                try (FileChannel in = FileChannel.open(segment.path(), StandardOpenOption.READ)) {
+                    MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 0, segment.bytes());
+                    while (mapped.remaining() >= RECORD_SIZE) {
+                        long fingerprint = mapped.getLong();
+                        long timestamp = mapped.getLong();
+                        if (timestamp < cutoff) {
+                            continue;
+                        }
+                        if (!buffer.hasRemaining()) {
+                            buffer.flip();
+                            while (buffer.hasRemaining()) {
+                                bytes += out.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                        buffer.putLong(fingerprint).putLong(timestamp);
+                        maxTimestamp = Math.max(maxTimestamp, timestamp);
+                    }
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytes += out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, first.path(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Segment segment : segments.subList(1, segments.size())) {
+            Files.deleteIfExists(segment.path());
+        }
+        synchronized (closedSegments) {
+            int position = closedSegments.indexOf(first);
+            closedSegments.removeAll(segments);
+            closedSegments.add(position, new Segment(first.path(), first.createdAt(), bytes, maxTimestamp));
+        }
+        log.info("Compacted {} dedup segments into {} ({} bytes)", segments.size(), first.path(), bytes);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentName(long createdAt) {
+        return String.format("%019d%s", createdAt, SEGMENT_SUFFIX);
+    }
+
+    private static long parseCreatedAt(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private record Segment(Path path, long createdAt, long bytes, long maxTimestamp) {
+        Segment append(long written, long timestamp) {
+            return new Segment(path, createdAt, bytes + written, Math.max(maxTimestamp, timestamp));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+
+// Партиция appeals-topic, к которой относится обращение. Для записей из retry-топиков и топиков приоритетов
+// она переносится в заголовке: состояние идемпотентности разбито по партициям входного топика
+public final class SourcePartition {
+
+    public static final String HEADER = "moderation-source-partition";
+
+    private SourcePartition() {
+    }
+
+    public static int of(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(HEADER);
+        if (header != null && header.value() != null && header.value().length == Integer.BYTES) {
+            return ByteBuffer.wrap(header.value()).getInt();
+        }
+        return record.partition();
+    }
+
+    public static void set(Headers headers, int partition) {
+        headers.remove(HEADER);
+        headers.add(HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(partition).array());
+    }
+
+    public static void setIfAbsent(Headers headers, int partition) {
+        if (headers.lastHeader(HEADER) == null) {
+            set(headers, partition);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package kz.kaspi.lab.moderation.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Таймеры этапов пайплайна: одно имя метрики, этап — в теге, чтобы этапы сравнивались на одном графике.
+// Гистограммы и перцентили включаются в management.metrics.distribution
+public final class StageTimers {
+
+    public static final String DESERIALIZE = "deserialize";
+    public static final String DEDUP = "dedup";
+    public static final String ENRICHMENT = "enrichment";
+    public static final String RULES = "rules";
+    public static final String SERIALIZE = "serialize";
+    public static final String SEND = "send";
+
+    private StageTimers() {
+    }
+
+    public static Timer of(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("moderation.stage.duration")
+                .description("Duration of a moderation pipeline stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+}
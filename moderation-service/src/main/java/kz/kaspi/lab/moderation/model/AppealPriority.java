@@ -0,0 +1,18 @@
+package kz.kaspi.lab.moderation.model;
+
+// Порядок объявления — от самого срочного; AppealEvent.priority остаётся строкой, как во входном JSON
+public enum AppealPriority {
+    URGENT, HIGH, NORMAL, LOW;
+
+    // Пустой или неизвестный приоритет считается NORMAL
+    public static AppealPriority of(String value) {
+        if (value != null) {
+            for (AppealPriority priority : values()) {
+                if (priority.name().equalsIgnoreCase(value)) {
+                    return priority;
+                }
+            }
+        }
+        return NORMAL;
+    }
+}
@@ -1,6 +1,7 @@
 package kz.kaspi.lab.moderation.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,7 +10,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ModerationResult {
@@ -24,6 +25,10 @@ public class ModerationResult {
 
     private AppealEvent originalAppeal;
 
+    // Хэш содержимого обращения, см. ResultProjection; в проекции full его нет, и формат full не меняется
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String appealHash;
+
     public enum ModerationDecision {
         APPROVED,
         REJECTED,
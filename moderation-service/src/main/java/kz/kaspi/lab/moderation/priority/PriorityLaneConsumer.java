@@ -0,0 +1,207 @@
+package kz.kaspi.lab.moderation.priority;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import kz.kaspi.lab.moderation.consumer.AppealProcessor;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.AppealPriority;
+import kz.kaspi.lab.moderation.retry.RetryRoutingAcknowledger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static kz.kaspi.lab.moderation.config.ExecutorConfig.threadFactory;
+
+// Читает топики приоритетов, у каждого свой контейнер, свой пул и свой лимит одновременных обращений
+// (kafka.consumer.priority.workers). Полная очередь LOW тормозит только poll LOW, а URGENT читается и
+// обрабатывается своими потоками. Порядок обращений клиента между приоритетами не сохраняется —
+// срочное обращение обгоняет обычное, ради этого режим и нужен
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "priority")
+public class PriorityLaneConsumer implements SmartLifecycle {
+
+    private final AppealProcessor appealProcessor;
+    private final RetryRoutingAcknowledger retryRouting;
+    private final Map<AppealPriority, Lane> lanes = new EnumMap<>(AppealPriority.class);
+    private volatile boolean running;
+
+    public PriorityLaneConsumer(AppealProcessor appealProcessor,
+                                RetryRoutingAcknowledger retryRouting,
+                                @Qualifier("kafkaListenerContainerFactory")
+                                ConcurrentKafkaListenerContainerFactory<String, AppealEvent> containerFactory,
+                                MeterRegistry meterRegistry,
+                                @Value("${kafka.topics.appeals}") String appealsTopic,
+                                @Value("${kafka.consumer.priority.workers:32,16,16,4}") List<Integer> workers,
+                                @Value("${kafka.consumer.priority.slo:1s,5s,30s,2m}") List<Duration> slo,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.appealProcessor = appealProcessor;
+        this.retryRouting = retryRouting;
+        AppealPriority[] priorities = AppealPriority.values();
+        if (workers.size() != priorities.length || slo.size() != priorities.length) {
+            throw new IllegalArgumentException("kafka.consumer.priority.workers and kafka.consumer.priority.slo "
+                    + "need one value per priority (URGENT, HIGH, NORMAL, LOW), got " + workers + " and " + slo);
+        }
+        for (AppealPriority priority : priorities) {
+            Lane lane = new Lane(priority, workers.get(priority.ordinal()), slo.get(priority.ordinal()),
+                    virtualThreads, meterRegistry);
+            String topic = laneTopic(appealsTopic, priority);
+            ConcurrentMessageListenerContainer<String, AppealEvent> container = containerFactory.createContainer(topic);
+            container.setBeanName("appeal-priority-" + topic);
+            container.getContainerProperties().setMessageListener(
+                    (AcknowledgingMessageListener<String, AppealEvent>) (record, acknowledgment) ->
+                            consume(lane, record, acknowledgment));
+            lane.container = container;
+            lanes.put(priority, lane);
+        }
+    }
+
+    public static String laneTopic(String appealsTopic, AppealPriority priority) {
+        return appealsTopic + "-" + priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    Lane lane(AppealPriority priority) {
+        return lanes.get(priority);
+    }
+
+    void consume(Lane lane, ConsumerRecord<String, AppealEvent> record, Acknowledgment acknowledgment) {
+        AppealEvent appeal;
+        try {
+            appeal = appealProcessor.deserialize(record);
+            // Backpressure по приоритету: ждёт только poll своего топика
+            lane.slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.error("Error processing message from offset={}: {}", record.offset(), e.getMessage(), e);
+            retryRouting.routeAndAcknowledge(record, e, acknowledgment);
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            lane.queueDelay.record(sinceCreated(record), TimeUnit.MILLISECONDS);
+            appealProcessor.process(appeal, SourcePartition.of(record));
+        }, lane.executor).whenComplete((ignored, exception) -> {
+            if (exception == null) {
+                lane.slots.release();
+                lane.recordLatency(sinceCreated(record));
+                acknowledgment.acknowledge();
+                if (log.isDebugEnabled()) {
+                    log.debug("Successfully processed and acknowledged appealId={}, priority={}",
+                            appeal.getAppealId(), lane.priority);
+                }
+            } else {
+                log.error("Error processing message from offset={}: {}",
+                        record.offset(), exception.getMessage(), exception);
+                // Слот освобождается, когда запись ушла в retry-топик и подтверждена
+                retryRouting.routeAndAcknowledge(record, exception, acknowledgment)
+                        .whenComplete((settled, routingFailure) -> lane.slots.release());
+            }
+        });
+    }
+
+    // Время записи — время исходного обращения в appeals-topic (splitter его переносит)
+    private static long sinceCreated(ConsumerRecord<?, ?> record) {
+        return Math.max(0, System.currentTimeMillis() - record.timestamp());
+    }
+
+    @Override
+    public void start() {
+        lanes.values().forEach(lane -> lane.container.start());
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        lanes.values().forEach(lane -> lane.container.stop());
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+    }
+
+    static final class Lane {
+
+        final AppealPriority priority;
+        final Semaphore slots;
+        final ExecutorService executor;
+        final Duration slo;
+        // От записи обращения в appeals-topic до начала обработки: отставание топиков плюс ожидание слота
+        final Timer queueDelay;
+        // От записи обращения до подтверждения результата, с бакетом на границе SLO
+        final Timer latency;
+        final Counter sloViolations;
+        ConcurrentMessageListenerContainer<String, AppealEvent> container;
+
+        Lane(AppealPriority priority, int workers, Duration slo, boolean virtualThreads, MeterRegistry meterRegistry) {
+            String tag = priority.name();
+            String prefix = "priority-" + tag.toLowerCase(Locale.ROOT) + "-";
+            this.priority = priority;
+            this.slots = new Semaphore(workers);
+            // Как в batch-режиме: размер пула — лимит приоритета, с виртуальными потоками он остаётся
+            this.executor = Executors.newFixedThreadPool(workers, threadFactory(prefix, virtualThreads));
+            this.slo = slo;
+            this.queueDelay = Timer.builder("moderation.priority.queue.delay")
+                    .description("Time from appeal record creation to the start of moderation")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("moderation.priority.latency")
+                    .description("Time from appeal record creation to an acknowledged moderation result")
+                    .tag("priority", tag)
+                    .serviceLevelObjectives(slo)
+                    .register(meterRegistry);
+            this.sloViolations = Counter.builder("moderation.priority.slo.violations")
+                    .description("Appeals moderated later than the latency SLO of their priority")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            Gauge.builder("moderation.priority.inflight", slots, s -> workers - s.availablePermits())
+                    .description("Appeals currently being moderated per priority")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+        }
+
+        void recordLatency(long millis) {
+            latency.record(millis, TimeUnit.MILLISECONDS);
+            if (millis > slo.toMillis()) {
+                sloViolations.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package kz.kaspi.lab.moderation.priority;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.kaspi.lab.moderation.consumer.AppealProcessor;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.AppealPriority;
+import kz.kaspi.lab.moderation.retry.RetryRoutingAcknowledger;
+import kz.kaspi.lab.moderation.serde.AppealEventSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+// Раскладывает обращения из общего топика по топикам приоритетов (appeals-topic-urgent, …-low).
+// Перекладка без обогащения и правил на порядки быстрее модерации, поэтому очередь накапливается
+// уже в топиках приоритетов, и URGENT не стоит в партиции за тысячами LOW
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "priority")
+public class PriorityLaneSplitter {
+
+    private final AppealProcessor appealProcessor;
+    private final RetryRoutingAcknowledger retryRouting;
+    private final KafkaTemplate<String, byte[]> template;
+    private final AppealEventSerializer serializer;
+    private final String appealsTopic;
+    private final Semaphore inFlight;
+    // moderation.dedup.store=partitioned: запись остаётся в партиции с тем же номером, что и в appeals-topic,
+    // и consumer топика приоритета держит состояние идемпотентности этой партиции
+    private final boolean copartitioned;
+
+    public PriorityLaneSplitter(AppealProcessor appealProcessor,
+                                RetryRoutingAcknowledger retryRouting,
+                                @Qualifier("retryKafkaTemplate") KafkaTemplate<String, byte[]> template,
+                                ObjectMapper objectMapper,
+                                @Value("${kafka.topics.appeals}") String appealsTopic,
+                                @Value("${kafka.consumer.priority.split-max-in-flight:5000}") int maxInFlight,
+                                @Value("${moderation.dedup.store:segmented}") String dedupStore) {
+        this.appealProcessor = appealProcessor;
+        this.retryRouting = retryRouting;
+        this.template = template;
+        // Формат сохраняется по content-type исходной записи
+        this.serializer = new AppealEventSerializer(objectMapper, PayloadFormat.JSON);
+        this.appealsTopic = appealsTopic;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.copartitioned = "partitioned".equals(dedupStore);
+    }
+
+    @KafkaListener(
+            topics = "${kafka.topics.appeals}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void split(ConsumerRecord<String, AppealEvent> record, Acknowledgment acknowledgment)
+            throws InterruptedException {
+        AppealEvent appeal;
+        String lane;
+        ProducerRecord<String, byte[]> forward;
+        // Ошибка разбора или сериализации — до захвата слота, запись уходит в retry-топик/DLT
+        try {
+            appeal = appealProcessor.deserialize(record);
+            lane = PriorityLaneConsumer.laneTopic(appealsTopic, AppealPriority.of(appeal.getPriority()));
+            RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+            // Состояние идемпотентности привязано к партиции appeals-topic, а не топика приоритета
+            SourcePartition.set(headers, record.partition());
+            // Исходное время записи сохраняется — от него считаются задержка очереди и SLO приоритета
+            forward = new ProducerRecord<>(lane, copartitioned ? record.partition() : null, record.timestamp(),
+                    record.key(), serializer.serialize(lane, headers, appeal), headers);
+        } catch (Exception e) {
+            log.error("Error processing message from offset={}: {}", record.offset(), e.getMessage(), e);
+            retryRouting.routeAndAcknowledge(record, e, acknowledgment);
+            return;
+        }
+
+        inFlight.acquire();
+        template.send(forward).whenComplete((result, exception) -> {
+            if (exception == null) {
+                inFlight.release();
+                acknowledgment.acknowledge();
+                if (log.isDebugEnabled()) {
+                    log.debug("Forwarded appealId={} to {}", appeal.getAppealId(), lane);
+                }
+            } else {
+                log.error("Failed to forward message from offset={} to {}: {}",
+                        record.offset(), lane, exception.getMessage());
+                // Слот освобождается, когда запись ушла в retry-топик и подтверждена
+                retryRouting.routeAndAcknowledge(record, exception, acknowledgment)
+                        .whenComplete((settled, routingFailure) -> inFlight.release());
+            }
+        });
+    }
+}
@@ -1,62 +1,101 @@
 package kz.kaspi.lab.moderation.producer;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kz.kaspi.lab.moderation.metrics.StageTimers;
 import kz.kaspi.lab.moderation.model.ModerationResult;
 import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ModerationResultProducer {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
+    private final Route approvedRoute;
+    private final Route reviewRoute;
+    // От send() до подтверждения брокером (acks=all), включая ожидание батча (linger.ms)
+    private final Timer sendTimer;
 
-    @Value("${kafka.topics.approved}")
-    private String approvedTopic;
-
-    @Value("${kafka.topics.review}")
-    private String reviewTopic;
+    public ModerationResultProducer(@Qualifier("approvedKafkaTemplate") KafkaTemplate<String, ModerationResult> approvedTemplate,
+                                    @Qualifier("reviewKafkaTemplate") KafkaTemplate<String, ModerationResult> reviewTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${kafka.topics.approved}") String approvedTopic,
+                                    @Value("${kafka.topics.review}") String reviewTopic,
+                                    @Value("${kafka.output.approved.projection:full}") String approvedProjection,
+                                    @Value("${kafka.output.review.projection:full}") String reviewProjection) {
+        this.approvedRoute = new Route(approvedTopic, approvedTemplate,
+                ResultProjection.of(approvedProjection), meterRegistry);
+        this.reviewRoute = new Route(reviewTopic, reviewTemplate,
+                ResultProjection.of(reviewProjection), meterRegistry);
+        this.sendTimer = StageTimers.of(meterRegistry, StageTimers.SEND);
+    }
 
-    public void sendResult(ModerationResult result) {
-        String targetTopic = determineTargetTopic(result.getDecision());
+    public CompletableFuture<SendResult<String, ModerationResult>> sendResult(ModerationResult result) {
+        Route route = determineRoute(result.getDecision());
+        String targetTopic = route.topic();
 
-        log.info("Sending result for appealId={} to topic={}, decision={}",
-                result.getAppealId(), targetTopic, result.getDecision());
+        if (log.isDebugEnabled()) {
+            log.debug("Sending result for appealId={} to topic={}, decision={}",
+                    result.getAppealId(), targetTopic, result.getDecision());
+        }
 
+        long start = System.nanoTime();
         try {
-            String jsonPayload = objectMapper.writeValueAsString(result);
-
-            CompletableFuture<SendResult<String, String>> future =
-                    kafkaTemplate.send(targetTopic, result.getAppealId(), jsonPayload);
+            // Сериализация — в ModerationResultSerializer, прямо в byte[] записи
+            CompletableFuture<SendResult<String, ModerationResult>> future =
+                    route.template().send(targetTopic, result.getAppealId(), route.projection().apply(result));
 
             future.whenComplete((sendResult, exception) -> {
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
                 if (exception == null) {
-                    log.info("Successfully sent message to topic={}, partition={}, offset={}",
-                            targetTopic,
-                            sendResult.getRecordMetadata().partition(),
-                            sendResult.getRecordMetadata().offset());
+                    // Размер до сжатия: сжатие батча видно в метриках продюсера (compression-rate-avg)
+                    route.recordBytes().record(sendResult.getRecordMetadata().serializedValueSize());
+                    // Колбэк выполняется в I/O-потоке продюсера — на INFO он задерживал бы отправку
+                    if (log.isDebugEnabled()) {
+                        log.debug("Successfully sent message to topic={}, partition={}, offset={}",
+                                targetTopic,
+                                sendResult.getRecordMetadata().partition(),
+                                sendResult.getRecordMetadata().offset());
+                    }
                 } else {
                     log.error("Failed to send message to topic={} for appealId={}: {}",
                             targetTopic, result.getAppealId(), exception.getMessage());
                 }
             });
-        } catch (JsonProcessingException e) {
+            return future;
+        } catch (SerializationException e) {
             log.error("Failed to serialize ModerationResult for appealId={}: {}",
                     result.getAppealId(), e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
-    private String determineTargetTopic(ModerationDecision decision) {
-        return decision == ModerationDecision.APPROVED ? approvedTopic : reviewTopic;
+    private Route determineRoute(ModerationDecision decision) {
+        return decision == ModerationDecision.APPROVED ? approvedRoute : reviewRoute;
+    }
+
+    // Выходной топик со своим продюсером (compression.type) и проекцией результата
+    private record Route(String topic, KafkaTemplate<String, ModerationResult> template,
+                         ResultProjection projection, DistributionSummary recordBytes) {
+
+        Route(String topic, KafkaTemplate<String, ModerationResult> template,
+              ResultProjection projection, MeterRegistry meterRegistry) {
+            this(topic, template, projection, DistributionSummary.builder("moderation.result.record.bytes")
+                    .description("Serialized size of published moderation results, before compression")
+                    .baseUnit("bytes")
+                    .tag("topic", topic)
+                    .tag("projection", projection.name().toLowerCase())
+                    .register(meterRegistry));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package kz.kaspi.lab.moderation.producer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+
+// Какая часть результата уходит в топик. full — прежний формат без изменений; reference и slim включаются явно
+// для потребителей, которым не нужно исходное обращение (с текстом message): им достаточно appealId + appealHash
+public enum ResultProjection {
+    REFERENCE,
+    SLIM,
+    FULL;
+
+    public static ResultProjection of(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "reference" -> REFERENCE;
+            case "slim" -> SLIM;
+            case "full" -> FULL;
+            default -> throw new IllegalArgumentException("Unknown result projection: " + name);
+        };
+    }
+
+    public ModerationResult apply(ModerationResult result) {
+        return switch (this) {
+            case REFERENCE -> ModerationResult.builder()
+                    .appealId(result.getAppealId())
+                    .decision(result.getDecision())
+                    .appealHash(appealHash(result))
+                    .build();
+            case SLIM -> result.toBuilder()
+                    .originalAppeal(null)
+                    .appealHash(appealHash(result))
+                    .build();
+            case FULL -> result;
+        };
+    }
+
+    // full пишется как раньше, со всеми полями, включая null; урезанные проекции пустые поля не пишут
+    public ObjectMapper jsonMapper(ObjectMapper objectMapper) {
+        return this == FULL
+                ? objectMapper
+                : objectMapper.copy().setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    private static String appealHash(ModerationResult result) {
+        return result.getOriginalAppeal() == null ? null : appealHash(result.getOriginalAppeal());
+    }
+
+    // 64-битный хэш содержимого обращения (FNV-1a + финализатор murmur3), hex.
+    // Позволяет сверить ссылку с обращением из appeals-topic без передачи текста
+    static String appealHash(AppealEvent appeal) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, appeal.getAppealId());
+        h = mix(h, appeal.getClientId());
+        h = mix(h, appeal.getMessage());
+        h = mix(h, appeal.getTimestamp() == null ? null : appeal.getTimestamp().toString());
+        h = mix(h, appeal.getCategory());
+        h = mix(h, appeal.getPriority());
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return String.format("%016x", h);
+    }
+
+    private static long mix(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+        }
+        // Разделитель полей, чтобы ("ab", "c") и ("a", "bc") давали разные хэши
+        h ^= 0xff;
+        h *= 0x100000001b3L;
+        return h;
+    }
+}
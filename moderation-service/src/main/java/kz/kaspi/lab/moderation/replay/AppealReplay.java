@@ -0,0 +1,415 @@
+package kz.kaspi.lab.moderation.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import kz.kaspi.lab.moderation.activity.ClientActivity;
+import kz.kaspi.lab.moderation.activity.HistoricalClientActivity;
+import kz.kaspi.lab.moderation.client.EnrichmentClient;
+import kz.kaspi.lab.moderation.idempotency.FingerprintIndex;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import kz.kaspi.lab.moderation.rules.CompiledRule;
+import kz.kaspi.lab.moderation.rules.RuleEngine;
+import kz.kaspi.lab.moderation.serde.AppealEventDeserializer;
+import kz.kaspi.lab.moderation.serde.ByteBufferErrorHandlingDeserializer;
+import kz.kaspi.lab.moderation.serde.ModerationResultDeserializer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Один прогон replay: читает диапазон appeals-topic без группы и без проверки идемпотентности,
+// подгружает обогащение пакетами, применяет текущие правила в ForkJoinPool и пишет расхождения
+// с опубликованными решениями (approved/review-topic) в DiffSink. Результаты заново не публикуются.
+// Неделя перед from читается только ради окон активности: правила к ней не применяются
+@Slf4j
+final class AppealReplay implements Runnable {
+
+    enum State { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final long PROGRESS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final ModerationDecision[] DECISIONS = ModerationDecision.values();
+
+    private final ReplayRequest request;
+    private final ReplayOptions options;
+    private final Map<String, Object> consumerConfig;
+    private final ObjectMapper objectMapper;
+    private final RuleEngine ruleEngine;
+    private final EnrichmentClient enrichmentClient;
+    private final DiffSink sink;
+
+    // Обогащение — текущее, а не на момент обращения: история его не хранит
+    private final Cache<String, EnrichmentData> enrichmentCache;
+    private final HistoricalClientActivity activity;
+
+    private volatile State state = State.RUNNING;
+    private volatile boolean cancelled;
+    private volatile String error;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile long total;
+    private volatile int originals;
+    private final AtomicLong warmedUp = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong changed = new AtomicLong();
+    private final AtomicLong missingOriginal = new AtomicLong();
+    private final Map<String, AtomicLong> transitions = new ConcurrentHashMap<>();
+
+    AppealReplay(ReplayRequest request, ReplayOptions options, Map<String, Object> consumerConfig,
+                 ObjectMapper objectMapper, RuleEngine ruleEngine, EnrichmentClient enrichmentClient, DiffSink sink) {
+        this.request = request;
+        this.options = options;
+        this.consumerConfig = consumerConfig;
+        this.objectMapper = objectMapper;
+        this.ruleEngine = ruleEngine;
+        this.enrichmentClient = enrichmentClient;
+        this.sink = sink;
+        this.enrichmentCache = Caffeine.newBuilder().maximumSize(options.enrichmentCacheSize()).build();
+        this.activity = new HistoricalClientActivity(options.maxClients());
+    }
+
+    @Override
+    public void run() {
+        startedNanos = System.nanoTime();
+        try (KafkaConsumer<String, AppealEvent> consumer = new KafkaConsumer<>(consumerConfig, new StringDeserializer(),
+                new ByteBufferErrorHandlingDeserializer<>(new AppealEventDeserializer(objectMapper)));
+             ForkJoinPool pool = new ForkJoinPool(options.parallelism())) {
+            Map<TopicPartition, long[]> ranges = resolveRanges(consumer);
+            FingerprintIndex published = loadPublishedDecisions();
+            replay(consumer, ranges, published, pool);
+            state = cancelled ? State.CANCELLED : State.COMPLETED;
+        } catch (Exception e) {
+            error = e.getMessage();
+            state = State.FAILED;
+            log.error("Replay of {} failed", request, e);
+        } finally {
+            sink.close();
+            finishedNanos = System.nanoTime();
+        }
+        log.info("Replay {} {}: {} records in {} ms ({} records/s), {} changed, {} unchanged, {} without original",
+                request, state, records.get(), elapsedMillis(), recordsPerSecond(), changed.get(), unchanged.get(),
+                missingOriginal.get());
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state);
+        status.put("request", request.toString());
+        status.put("output", sink.target());
+        status.put("total", total);
+        status.put("warmedUp", warmedUp.get());
+        status.put("records", records.get());
+        status.put("recordsPerSecond", recordsPerSecond());
+        status.put("elapsedMs", elapsedMillis());
+        status.put("publishedDecisions", originals);
+        status.put("changed", changed.get());
+        status.put("unchanged", unchanged.get());
+        status.put("missingOriginal", missingOriginal.get());
+        status.put("skipped", skipped.get());
+        Map<String, Long> byTransition = new HashMap<>();
+        transitions.forEach((transition, count) -> byTransition.put(transition, count.get()));
+        status.put("transitions", byTransition);
+        if (error != null) {
+            status.put("error", error);
+        }
+        return status;
+    }
+
+    // [начало прогрева, начальный offset, конечный offset) по каждой партиции appeals-topic
+    private Map<TopicPartition, long[]> resolveRanges(KafkaConsumer<String, AppealEvent> consumer) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        if (request.partition() != null) {
+            partitions.add(new TopicPartition(options.appealsTopic(), request.partition()));
+        } else {
+            for (PartitionInfo info : consumer.partitionsFor(options.appealsTopic())) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+        }
+        Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+        Map<TopicPartition, Long> from = request.from() == null ? beginning : offsetsAt(consumer, partitions,
+                request.from(), end);
+        Map<TopicPartition, Long> to = request.to() == null ? end : offsetsAt(consumer, partitions, request.to(), end);
+        // Без from прогревать не от чего: диапазон начинается с начала партиции или с offset'а без времени
+        Map<TopicPartition, Long> warmFrom = request.from() == null ? null : offsetsAt(consumer, partitions,
+                request.from().minus(HistoricalClientActivity.WINDOW), end);
+
+        Map<TopicPartition, long[]> ranges = new HashMap<>();
+        long count = 0;
+        long warmUp = 0;
+        for (TopicPartition partition : partitions) {
+            long start = Math.max(request.fromOffset() != null ? request.fromOffset() : from.get(partition),
+                    beginning.get(partition));
+            long stop = Math.min(request.toOffset() != null ? request.toOffset() : to.get(partition),
+                    end.get(partition));
+            long warmStart = warmFrom == null ? start
+                    : Math.max(Math.min(warmFrom.get(partition), start), beginning.get(partition));
+            if (start < stop) {
+                ranges.put(partition, new long[]{warmStart, start, stop});
+                count += stop - start;
+                warmUp += start - warmStart;
+            }
+        }
+        total = count;
+        log.info("Replaying {} records of {} from {} partitions to {} after {} warm-up records", count,
+                options.appealsTopic(), ranges.size(), sink.target(), warmUp);
+        return ranges;
+    }
+
+    private static Map<TopicPartition, Long> offsetsAt(KafkaConsumer<?, ?> consumer, List<TopicPartition> partitions,
+                                                       Instant time, Map<TopicPartition, Long> end) {
+        Map<TopicPartition, Long> query = new HashMap<>();
+        partitions.forEach(partition -> query.put(partition, time.toEpochMilli()));
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        consumer.offsetsForTimes(query).forEach((partition, found) ->
+                // Нет записей не раньше time — диапазон упирается в конец партиции
+                offsets.put(partition, found != null ? found.offset() : end.get(partition)));
+        return offsets;
+    }
+
+    // Решения из approved/review-topic: отпечаток appealId → ordinal + 1. Читаем с request.from
+    // (результат пишется позже обращения) до текущего конца; более поздний результат перекрывает ранний
+    private FingerprintIndex loadPublishedDecisions() {
+        try (KafkaConsumer<String, ModerationResult> consumer = new KafkaConsumer<>(consumerConfig,
+                new StringDeserializer(),
+                new ByteBufferErrorHandlingDeserializer<>(new ModerationResultDeserializer(objectMapper)))) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (String topic : options.resultTopics()) {
+                for (PartitionInfo info : consumer.partitionsFor(topic)) {
+                    partitions.add(new TopicPartition(topic, info.partition()));
+                }
+            }
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            Map<TopicPartition, Long> from = request.from() == null ? consumer.beginningOffsets(partitions)
+                    : offsetsAt(consumer, partitions, request.from(), end);
+            consumer.assign(partitions);
+            partitions.forEach(partition -> consumer.seek(partition, from.get(partition)));
+
+            long expected = 0;
+            for (TopicPartition partition : partitions) {
+                expected += end.get(partition) - consumer.position(partition);
+            }
+            FingerprintIndex index = new FingerprintIndex((int) Math.min(expected, Integer.MAX_VALUE / 4));
+            Set<TopicPartition> remaining = new HashSet<>(partitions);
+            remaining.removeIf(partition -> consumer.position(partition) >= end.get(partition));
+            while (!remaining.isEmpty() && !cancelled) {
+                for (ConsumerRecord<String, ModerationResult> record : consumer.poll(POLL_TIMEOUT)) {
+                    ModerationResult result = record.value();
+                    if (result != null && result.getAppealId() != null && result.getDecision() != null
+                            && record.offset() < end.get(new TopicPartition(record.topic(), record.partition()))) {
+                        index.put(FingerprintIndex.fingerprint(result.getAppealId()),
+                                result.getDecision().ordinal() + 1, Long.MAX_VALUE);
+                    }
+                }
+                remaining.removeIf(partition -> consumer.position(partition) >= end.get(partition));
+            }
+            originals = index.size();
+            log.info("Loaded {} published decisions from {}", originals, options.resultTopics());
+            return index;
+        }
+    }
+
+    private void replay(KafkaConsumer<String, AppealEvent> consumer, Map<TopicPartition, long[]> ranges,
+                        FingerprintIndex published, ForkJoinPool pool) {
+        consumer.assign(ranges.keySet());
+        ranges.forEach((partition, range) -> consumer.seek(partition, range[0]));
+        Set<TopicPartition> remaining = new HashSet<>(ranges.keySet());
+        long lastLog = System.nanoTime();
+        while (!remaining.isEmpty() && !cancelled) {
+            ConsumerRecords<String, AppealEvent> polled = consumer.poll(POLL_TIMEOUT);
+            List<ConsumerRecord<String, AppealEvent>> warm = new ArrayList<>();
+            List<ConsumerRecord<String, AppealEvent>> chunk = new ArrayList<>(polled.count());
+            for (TopicPartition partition : polled.partitions()) {
+                long start = ranges.get(partition)[1];
+                long stop = ranges.get(partition)[2];
+                for (ConsumerRecord<String, AppealEvent> record : polled.records(partition)) {
+                    if (record.offset() >= stop) {
+                        break;
+                    }
+                    (record.offset() < start ? warm : chunk).add(record);
+                }
+            }
+            for (TopicPartition partition : List.copyOf(remaining)) {
+                if (consumer.position(partition) >= ranges.get(partition)[2]) {
+                    remaining.remove(partition);
+                    consumer.pause(List.of(partition));
+                }
+            }
+            // Прогрев партиции идёт раньше её диапазона: клиент живёт в одной партиции (ключ — clientId)
+            if (!warm.isEmpty()) {
+                warmUp(warm, pool);
+            }
+            if (!chunk.isEmpty()) {
+                process(chunk, published, pool);
+            }
+            if (System.nanoTime() - lastLog > PROGRESS_LOG_INTERVAL_NANOS) {
+                lastLog = System.nanoTime();
+                log.info("Replay progress: {}/{} records, {} records/s, {} changed",
+                        records.get(), total, recordsPerSecond(), changed.get());
+            }
+        }
+    }
+
+    // Записи до from только пополняют окна активности: без обогащения, правил и сравнения с решениями
+    private void warmUp(List<ConsumerRecord<String, AppealEvent>> chunk, ForkJoinPool pool) {
+        int size = chunk.size();
+        AppealEvent[] appeals = new AppealEvent[size];
+        for (int i = 0; i < size; i++) {
+            AppealEvent appeal = chunk.get(i).value();
+            if (appeal != null && appeal.getAppealId() != null && appeal.getClientId() != null) {
+                appeals[i] = appeal;
+            }
+        }
+        String[] keywords = new String[size];
+        parallel(pool, size, i -> keywords[i] = appeals[i] != null ? ruleEngine.complaintKeyword(appeals[i]) : null);
+        for (int i = 0; i < size; i++) {
+            if (appeals[i] != null) {
+                activity.record(appeals[i].getClientId(), RuleEngine.isComplaint(appeals[i], keywords[i]),
+                        chunk.get(i).timestamp());
+            }
+        }
+        warmedUp.addAndGet(size);
+    }
+
+    private void process(List<ConsumerRecord<String, AppealEvent>> chunk, FingerprintIndex published,
+                         ForkJoinPool pool) {
+        int size = chunk.size();
+        AppealEvent[] appeals = new AppealEvent[size];
+        for (int i = 0; i < size; i++) {
+            appeals[i] = chunk.get(i).value();
+            if (appeals[i] == null || appeals[i].getAppealId() == null || appeals[i].getClientId() == null) {
+                appeals[i] = null;
+                skipped.incrementAndGet();
+            }
+        }
+
+        // Поиск ключевых слов — параллельно и один раз на обращение, счётчики активности — по порядку записей,
+        // как при живой обработке
+        String[] keywords = new String[size];
+        parallel(pool, size, i -> keywords[i] = appeals[i] != null ? ruleEngine.complaintKeyword(appeals[i]) : null);
+        ClientActivity[] activities = new ClientActivity[size];
+        for (int i = 0; i < size; i++) {
+            if (appeals[i] != null) {
+                activities[i] = activity.record(appeals[i].getClientId(),
+                        RuleEngine.isComplaint(appeals[i], keywords[i]), chunk.get(i).timestamp());
+            }
+        }
+
+        Map<String, EnrichmentData> enrichments = prefetchEnrichment(appeals);
+
+        CompiledRule[] rules = new CompiledRule[size];
+        parallel(pool, size, i -> {
+            if (appeals[i] != null) {
+                rules[i] = ruleEngine.evaluate(appeals[i], enrichments.get(appeals[i].getClientId()), activities[i],
+                        keywords[i]);
+            }
+        });
+
+        for (int i = 0; i < size; i++) {
+            if (appeals[i] == null) {
+                continue;
+            }
+            long original = published.get(FingerprintIndex.fingerprint(appeals[i].getAppealId()));
+            ModerationDecision decision = rules[i].decision();
+            if (original == 0L) {
+                missingOriginal.incrementAndGet();
+            } else if (original == decision.ordinal() + 1) {
+                unchanged.incrementAndGet();
+            } else {
+                ModerationDecision originalDecision = DECISIONS[(int) original - 1];
+                ConsumerRecord<String, AppealEvent> record = chunk.get(i);
+                EnrichmentData enrichment = enrichments.get(appeals[i].getClientId());
+                sink.write(new DecisionDiff(appeals[i].getAppealId(), appeals[i].getClientId(), record.partition(),
+                        record.offset(), record.timestamp(), originalDecision, decision, rules[i].name(),
+                        rules[i].reason(appeals[i], enrichment, activities[i], keywords[i])));
+                changed.incrementAndGet();
+                transitions.computeIfAbsent(originalDecision + "->" + decision, key -> new AtomicLong())
+                        .incrementAndGet();
+            }
+        }
+        sink.flush();
+        records.addAndGet(size);
+    }
+
+    // Клиенты пачки, которых нет в кэше, запрашиваются POST /enrichment:batch по enrichment-batch-size ID,
+    // не больше enrichment-concurrency запросов одновременно
+    private Map<String, EnrichmentData> prefetchEnrichment(AppealEvent[] appeals) {
+        Map<String, EnrichmentData> enrichments = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (AppealEvent appeal : appeals) {
+            if (appeal == null || enrichments.containsKey(appeal.getClientId())) {
+                continue;
+            }
+            EnrichmentData cached = enrichmentCache.getIfPresent(appeal.getClientId());
+            enrichments.put(appeal.getClientId(), cached);
+            if (cached == null) {
+                missing.add(appeal.getClientId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return enrichments;
+        }
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < missing.size(); from += options.enrichmentBatchSize()) {
+            batches.add(missing.subList(from, Math.min(from + options.enrichmentBatchSize(), missing.size())));
+        }
+        List<Map<String, EnrichmentData>> fetched = Flux.fromIterable(batches)
+                .flatMap(enrichmentClient::getEnrichmentBatch, options.enrichmentConcurrency())
+                .collectList()
+                .block();
+        for (Map<String, EnrichmentData> batch : fetched) {
+            enrichments.putAll(batch);
+            enrichmentCache.putAll(batch);
+        }
+        return enrichments;
+    }
+
+    private static void parallel(ForkJoinPool pool, int size, IntConsumer task) {
+        // Параллельный стрим, запущенный из задачи пула, выполняется в этом пуле, а не в commonPool
+        pool.submit(() -> IntStream.range(0, size).parallel().forEach(task)).join();
+    }
+
+    private long elapsedMillis() {
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        return startedNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+    }
+
+    private long recordsPerSecond() {
+        long elapsed = elapsedMillis();
+        return elapsed == 0 ? 0 : records.get() * 1000 / elapsed;
+    }
+}
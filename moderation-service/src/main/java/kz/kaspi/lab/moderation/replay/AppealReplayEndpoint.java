@@ -0,0 +1,148 @@
+package kz.kaspi.lab.moderation.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import kz.kaspi.lab.moderation.client.EnrichmentClient;
+import kz.kaspi.lab.moderation.rules.RuleEngine;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// POST /actuator/replay {"from": "2026-10-16T00:00:00Z", "to": "2026-10-17T00:00:00Z"} — повторная модерация
+// истории текущими правилами (можно сузить до партиции и offset'ов: partition, fromOffset, toOffset).
+// Прогон идёт в фоне по одному; GET — прогресс и итоги последнего прогона, DELETE — остановка
+@Component
+@Endpoint(id = "replay")
+public class AppealReplayEndpoint {
+
+    private static final DateTimeFormatter FILE_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final RuleEngine ruleEngine;
+    private final EnrichmentClient enrichmentClient;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter diffWriter;
+    private final KafkaTemplate<String, byte[]> template;
+    private final ObjectProvider<KafkaAdmin> kafkaAdmin;
+    private final ReplayOptions options;
+    private final Map<String, Object> consumerConfig = new HashMap<>();
+
+    private final String output;
+    private final String diffTopic;
+    private final Path diffDirectory;
+
+    private AppealReplay current;
+
+    public AppealReplayEndpoint(RuleEngine ruleEngine,
+                                EnrichmentClient enrichmentClient,
+                                ObjectMapper objectMapper,
+                                @Qualifier("retryKafkaTemplate") KafkaTemplate<String, byte[]> template,
+                                ObjectProvider<KafkaAdmin> kafkaAdmin,
+                                @Value("${kafka.topics.appeals}") String appealsTopic,
+                                @Value("${kafka.topics.approved}") String approvedTopic,
+                                @Value("${kafka.topics.review}") String reviewTopic,
+                                @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                @Value("${moderation.replay.parallelism:0}") int parallelism,
+                                @Value("${moderation.replay.chunk-size:10000}") int chunkSize,
+                                @Value("${moderation.replay.enrichment.batch-size:500}") int enrichmentBatchSize,
+                                @Value("${moderation.replay.enrichment.concurrency:8}") int enrichmentConcurrency,
+                                @Value("${moderation.replay.enrichment.cache-size:500000}") long enrichmentCacheSize,
+                                @Value("${moderation.replay.max-clients:2000000}") int maxClients,
+                                @Value("${moderation.replay.output:topic}") String output,
+                                @Value("${moderation.replay.diff-topic:${kafka.topics.appeals}-replay-diffs}") String diffTopic,
+                                @Value("${moderation.replay.diff-directory:replay-diffs}") String diffDirectory) {
+        this.ruleEngine = ruleEngine;
+        this.enrichmentClient = enrichmentClient;
+        this.objectMapper = objectMapper;
+        this.diffWriter = objectMapper.writerFor(DecisionDiff.class);
+        this.template = template;
+        this.kafkaAdmin = kafkaAdmin;
+        this.options = new ReplayOptions(appealsTopic, List.of(approvedTopic, reviewTopic),
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                enrichmentBatchSize, enrichmentConcurrency, enrichmentCacheSize, maxClients);
+        this.output = output;
+        this.diffTopic = diffTopic;
+        this.diffDirectory = Path.of(diffDirectory);
+        // Без группы: партиции назначаются вручную, offset'ы не коммитятся и живой consumer не задевается
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerConfig.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerConfig.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        consumerConfig.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, chunkSize);
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        return current != null ? current.status() : Map.of("state", "IDLE");
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String from, @Nullable String to,
+                                                  @Nullable Integer partition,
+                                                  @Nullable Long fromOffset, @Nullable Long toOffset) {
+        if (current != null && current.isRunning()) {
+            throw new InvalidEndpointRequestException("Replay is already running", "already running");
+        }
+        if (from == null && fromOffset == null) {
+            throw new InvalidEndpointRequestException("Either from or fromOffset is required", "missing range");
+        }
+        ReplayRequest request = new ReplayRequest(parseInstant(from), parseInstant(to), partition,
+                fromOffset, toOffset);
+        current = new AppealReplay(request, options, consumerConfig, objectMapper, ruleEngine, enrichmentClient,
+                openSink());
+        Thread thread = new Thread(current, "appeal-replay");
+        thread.setDaemon(true);
+        thread.start();
+        return current.status();
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> cancel() {
+        if (current == null) {
+            return Map.of("state", "IDLE");
+        }
+        current.cancel();
+        return current.status();
+    }
+
+    private DiffSink openSink() {
+        return switch (output) {
+            case "topic" -> {
+                kafkaAdmin.getObject().createOrModifyTopics(TopicBuilder.name(diffTopic).build());
+                yield new TopicDiffSink(template, diffTopic, diffWriter);
+            }
+            case "file" -> new FileDiffSink(
+                    diffDirectory.resolve("replay-" + FILE_SUFFIX.format(LocalDateTime.now()) + ".jsonl"), diffWriter);
+            default -> throw new IllegalArgumentException("Unknown moderation.replay.output: " + output);
+        };
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidEndpointRequestException("Invalid instant: " + value, "invalid instant");
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package kz.kaspi.lab.moderation.replay;
+
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+
+// Обращение, по которому текущие правила решили иначе, чем опубликованный результат.
+// timestamp — время записи в appeals-topic, мс
+public record DecisionDiff(String appealId,
+                           String clientId,
+                           int partition,
+                           long offset,
+                           long timestamp,
+                           ModerationDecision originalDecision,
+                           ModerationDecision decision,
+                           String rule,
+                           String reason) {
+}
@@ -0,0 +1,14 @@
+package kz.kaspi.lab.moderation.replay;
+
+// Куда replay пишет расхождения. flush вызывается после каждой пачки записей
+interface DiffSink extends AutoCloseable {
+
+    void write(DecisionDiff diff);
+
+    void flush();
+
+    String target();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,64 @@
+package kz.kaspi.lab.moderation.replay;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// JSON Lines: одна строка на расхождение
+@Slf4j
+final class FileDiffSink implements DiffSink {
+
+    private final Path file;
+    private final ObjectWriter writer;
+    private final OutputStream out;
+
+    FileDiffSink(Path file, ObjectWriter writer) {
+        this.file = file;
+        this.writer = writer;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open replay diff file " + file, e);
+        }
+    }
+
+    @Override
+    public void write(DecisionDiff diff) {
+        try {
+            out.write(writer.writeValueAsBytes(diff));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write replay diff to " + file, e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush replay diffs to " + file, e);
+        }
+    }
+
+    @Override
+    public String target() {
+        return "file:" + file;
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.error("Failed to close replay diff file {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package kz.kaspi.lab.moderation.replay;
+
+import java.util.List;
+
+record ReplayOptions(String appealsTopic,
+                     List<String> resultTopics,
+                     int parallelism,
+                     int enrichmentBatchSize,
+                     int enrichmentConcurrency,
+                     long enrichmentCacheSize,
+                     int maxClients) {
+}
@@ -0,0 +1,22 @@
+package kz.kaspi.lab.moderation.replay;
+
+import java.time.Instant;
+
+// Диапазон appeals-topic: по времени записи [from, to) и/или по offset'ам [fromOffset, toOffset) —
+// offset'ы применяются к каждой выбранной партиции. Пустая граница — начало/текущий конец партиции
+record ReplayRequest(Instant from, Instant to, Integer partition, Long fromOffset, Long toOffset) {
+
+    @Override
+    public String toString() {
+        StringBuilder range = new StringBuilder("[");
+        range.append(from != null ? from : "").append(", ").append(to != null ? to : "").append(')');
+        if (partition != null) {
+            range.append(" partition=").append(partition);
+        }
+        if (fromOffset != null || toOffset != null) {
+            range.append(" offsets=[").append(fromOffset != null ? fromOffset : "")
+                    .append(", ").append(toOffset != null ? toOffset : "").append(')');
+        }
+        return range.toString();
+    }
+}
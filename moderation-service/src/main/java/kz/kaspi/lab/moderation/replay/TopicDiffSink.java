@@ -0,0 +1,50 @@
+package kz.kaspi.lab.moderation.replay;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// JSON по ключу appealId; отправки пачки ждём целиком, чтобы прогресс не обгонял запись
+final class TopicDiffSink implements DiffSink {
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final String topic;
+    private final ObjectWriter writer;
+    private final List<CompletableFuture<?>> sends = new ArrayList<>();
+
+    TopicDiffSink(KafkaTemplate<String, byte[]> template, String topic, ObjectWriter writer) {
+        this.template = template;
+        this.topic = topic;
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(DecisionDiff diff) {
+        try {
+            sends.add(template.send(topic, diff.appealId(), writer.writeValueAsBytes(diff)));
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Failed to serialize diff for appealId=" + diff.appealId(), e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        sends.clear();
+    }
+
+    @Override
+    public String target() {
+        return "topic:" + topic;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
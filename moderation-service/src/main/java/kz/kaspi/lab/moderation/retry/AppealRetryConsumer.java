@@ -0,0 +1,99 @@
+package kz.kaspi.lab.moderation.retry;
+
+import kz.kaspi.lab.moderation.consumer.AppealProcessor;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Читает уровни повторов, у каждого свой контейнер: пауза на 5-минутном уровне не задерживает 5-секундный.
+// Записи уровня упорядочены по времени публикации, поэтому достаточно дождаться первой
+@Slf4j
+@Component
+public class AppealRetryConsumer implements SmartLifecycle {
+
+    // nack ставит партиции на паузу, но consumer продолжает poll; длинное ожидание дробим
+    private static final Duration MAX_PAUSE = Duration.ofSeconds(30);
+
+    private final AppealProcessor appealProcessor;
+    private final AppealRetryRouter router;
+    private final List<ConcurrentMessageListenerContainer<String, AppealEvent>> containers = new ArrayList<>();
+    private volatile boolean running;
+
+    public AppealRetryConsumer(AppealProcessor appealProcessor,
+                               AppealRetryRouter router,
+                               @Qualifier("retryListenerContainerFactory")
+                               ConcurrentKafkaListenerContainerFactory<String, AppealEvent> containerFactory) {
+        this.appealProcessor = appealProcessor;
+        this.router = router;
+        for (String topic : router.retryTopics()) {
+            Duration delay = router.delay(topic);
+            ConcurrentMessageListenerContainer<String, AppealEvent> container = containerFactory.createContainer(topic);
+            container.setBeanName("appeal-retry-" + topic);
+            container.getContainerProperties().setMessageListener(
+                    (AcknowledgingMessageListener<String, AppealEvent>) (record, acknowledgment) ->
+                            consume(record, delay, acknowledgment));
+            containers.add(container);
+        }
+    }
+
+    void consume(ConsumerRecord<String, AppealEvent> record, Duration delay, Acknowledgment acknowledgment) {
+        long waitMillis = record.timestamp() + delay.toMillis() - System.currentTimeMillis();
+        if (waitMillis > 0) {
+            acknowledgment.nack(Duration.ofMillis(Math.min(waitMillis, MAX_PAUSE.toMillis())));
+            return;
+        }
+
+        try {
+            appealProcessor.process(appealProcessor.deserialize(record), SourcePartition.of(record));
+            acknowledgment.acknowledge();
+            if (log.isDebugEnabled()) {
+                log.debug("Retry succeeded for message from topic={}, offset={}", record.topic(), record.offset());
+            }
+        } catch (Exception e) {
+            try {
+                router.route(record, e).join();
+                acknowledgment.acknowledge();
+            } catch (Exception routingFailure) {
+                log.error("Failed to route message from topic={}, offset={}, retrying in {}: {}",
+                        record.topic(), record.offset(), MAX_PAUSE, routingFailure.getMessage());
+                acknowledgment.nack(MAX_PAUSE);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        containers.forEach(ConcurrentMessageListenerContainer::start);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Стартуем и останавливаемся вместе с контейнерами @KafkaListener
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE;
+    }
+}
@@ -0,0 +1,188 @@
+package kz.kaspi.lab.moderation.retry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.serde.AppealEventSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.KafkaUtils;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.stereotype.Component;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+// Неуспешное обращение уходит на следующий уровень повторов: appeals-topic → -retry-0 → … → -dlt.
+// Исходная партиция при этом не стоит: запись подтверждается, как только опубликована дальше.
+// Заголовки — те же, что пишет DeadLetterPublishingRecoverer (kafka_dlt-*), их понимают стандартные инструменты
+@Slf4j
+@Component
+public class AppealRetryRouter {
+
+    // Заголовки ошибки предыдущей попытки заменяются; исключение десериализатора — ещё и тяжёлое
+    private static final Set<String> REPLACED_HEADERS = Set.of(
+            KafkaHeaders.DLT_EXCEPTION_FQCN,
+            KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN,
+            KafkaHeaders.DLT_EXCEPTION_MESSAGE,
+            KafkaHeaders.DLT_EXCEPTION_STACKTRACE,
+            KafkaUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER,
+            KafkaUtils.KEY_DESERIALIZER_EXCEPTION_HEADER);
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final AppealEventSerializer serializer;
+    private final String groupId;
+    private final List<String> retryTopics;
+    private final List<Duration> delays;
+    private final String dltTopic;
+    // moderation.dedup.store=partitioned: уровень повторов пишется в партицию с номером исходной
+    // партиции appeals-topic, её consumer держит состояние идемпотентности этой партиции
+    private final boolean copartitioned;
+    private final Map<String, Counter> routed = new HashMap<>();
+
+    public AppealRetryRouter(@Qualifier("retryKafkaTemplate") KafkaTemplate<String, byte[]> template,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${kafka.topics.appeals}") String appealsTopic,
+                             @Value("${spring.kafka.consumer.group-id}") String groupId,
+                             @Value("${kafka.retry.delays:5s,30s,5m}") List<Duration> delays,
+                             @Value("${moderation.dedup.store:segmented}") String dedupStore) {
+        this.template = template;
+        // Формат сохраняется по content-type исходной записи, JSON — если заголовка не было
+        this.serializer = new AppealEventSerializer(objectMapper, PayloadFormat.JSON);
+        this.groupId = groupId;
+        this.delays = List.copyOf(delays);
+        this.retryTopics = IntStream.range(0, delays.size()).mapToObj(i -> appealsTopic + "-retry-" + i).toList();
+        this.dltTopic = appealsTopic + "-dlt";
+        this.copartitioned = "partitioned".equals(dedupStore);
+        retryTopics.forEach(topic -> routed.put(topic, routedCounter(meterRegistry, topic)));
+        routed.put(dltTopic, routedCounter(meterRegistry, dltTopic));
+    }
+
+    public List<String> retryTopics() {
+        return retryTopics;
+    }
+
+    public Duration delay(String retryTopic) {
+        return delays.get(retryTopics.indexOf(retryTopic));
+    }
+
+    public String dltTopic() {
+        return dltTopic;
+    }
+
+    public CompletableFuture<SendResult<String, byte[]>> route(ConsumerRecord<String, AppealEvent> record,
+                                                              Throwable failure) {
+        Throwable cause = unwrap(failure);
+        String target = isRetryable(cause) ? nextTopic(record.topic()) : dltTopic;
+        try {
+            Headers headers = headers(record, cause);
+            byte[] value = record.value() != null
+                    ? serializer.serialize(target, headers, record.value())
+                    : cause instanceof DeserializationException de ? de.getData() : null;
+            log.warn("Routing message from topic={}, partition={}, offset={} to {}: {}",
+                    record.topic(), record.partition(), record.offset(), target, cause.toString());
+            // Время записи (CreateTime) — момент перехода на уровень, от него отсчитывается задержка
+            Integer partition = copartitioned && !dltTopic.equals(target) ? SourcePartition.of(record) : null;
+            return template.send(new ProducerRecord<>(target, partition, record.key(), value, headers))
+                    .whenComplete((result, e) -> {
+                        if (e == null) {
+                            routed.get(target).increment();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    String nextTopic(String topic) {
+        int tier = retryTopics.indexOf(topic) + 1;
+        return tier < retryTopics.size() ? retryTopics.get(tier) : dltTopic;
+    }
+
+    // Битые данные не исправятся повтором — сразу в DLT
+    private static boolean isRetryable(Throwable cause) {
+        return !(cause instanceof DeserializationException
+                || cause instanceof SerializationException
+                || cause instanceof ClassCastException);
+    }
+
+    private Headers headers(ConsumerRecord<String, AppealEvent> record, Throwable cause) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!REPLACED_HEADERS.contains(header.key())) {
+                headers.add(header);
+            }
+        }
+        // Координаты исходной записи — только при первом сбое, дальше переносятся как есть
+        if (headers.lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC) == null) {
+            SourcePartition.setIfAbsent(headers, record.partition());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, utf8(record.topic()));
+            headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES)
+                    .putInt(record.partition()).array());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES)
+                    .putLong(record.offset()).array());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP, ByteBuffer.allocate(Long.BYTES)
+                    .putLong(record.timestamp()).array());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP_TYPE, utf8(record.timestampType().toString()));
+            headers.add(KafkaHeaders.DLT_ORIGINAL_CONSUMER_GROUP, utf8(groupId));
+        }
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, utf8(cause.getClass().getName()));
+        if (cause.getCause() != null) {
+            headers.add(KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN, utf8(cause.getCause().getClass().getName()));
+        }
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, utf8(String.valueOf(cause.getMessage())));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_STACKTRACE, utf8(stackTrace(cause)));
+        return headers;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static String stackTrace(Throwable cause) {
+        StringWriter writer = new StringWriter();
+        cause.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String topic) {
+        return Counter.builder("moderation.appeals.routed")
+                .description("Failed appeals published to a retry tier or the dead-letter topic")
+                .tag("topic", topic)
+                .register(meterRegistry);
+    }
+}
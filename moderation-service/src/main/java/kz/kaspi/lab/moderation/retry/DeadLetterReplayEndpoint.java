@@ -0,0 +1,119 @@
+package kz.kaspi.lab.moderation.retry;
+
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// POST /actuator/dlt {"limit": 100} — переносит записи из DLT обратно во входной топик (байты и content-type
+// как есть, заголовки kafka_dlt-* снимаются). Прочитанное коммитится в отдельной группе <group-id>-dlt-replay,
+// поэтому следующий вызов продолжает с того же места
+@Slf4j
+@Component
+@Endpoint(id = "dlt")
+public class DeadLetterReplayEndpoint {
+
+    private static final String DLT_HEADER_PREFIX = "kafka_dlt-";
+    private static final int DEFAULT_LIMIT = 1000;
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    // Пустых poll'ов подряд до вывода, что DLT прочитан (первые уходят на назначение партиций)
+    private static final int MAX_EMPTY_POLLS = 5;
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final AppealRetryRouter router;
+    private final String appealsTopic;
+    private final Map<String, Object> consumerConfig = new HashMap<>();
+
+    public DeadLetterReplayEndpoint(@Qualifier("retryKafkaTemplate") KafkaTemplate<String, byte[]> template,
+                                    AppealRetryRouter router,
+                                    @Value("${kafka.topics.appeals}") String appealsTopic,
+                                    @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                    @Value("${spring.kafka.consumer.group-id}") String groupId) {
+        this.template = template;
+        this.router = router;
+        this.appealsTopic = appealsTopic;
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, groupId + "-dlt-replay");
+        consumerConfig.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerConfig.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerConfig.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    }
+
+    @ReadOperation
+    public Map<String, Object> topics() {
+        return Map.of("dlt", router.dltTopic(), "retry", router.retryTopics(), "replayTo", appealsTopic);
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> replay(@Nullable Integer limit) {
+        int max = limit != null ? limit : DEFAULT_LIMIT;
+        int replayed = 0;
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(consumerConfig,
+                new StringDeserializer(), new ByteArrayDeserializer())) {
+            consumer.subscribe(List.of(router.dltTopic()));
+            int emptyPolls = 0;
+            while (replayed < max && emptyPolls < MAX_EMPTY_POLLS) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+
+                List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    if (replayed == max) {
+                        break;
+                    }
+                    sends.add(template.send(new ProducerRecord<>(appealsTopic, null, record.key(), record.value(),
+                            withoutDltHeaders(record))));
+                    offsets.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+                // Коммитим прочитанное, только когда всё переотправлено: при сбое записи останутся в DLT
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                consumer.commitSync(offsets);
+            }
+        }
+        log.info("Replayed {} messages from {} to {}", replayed, router.dltTopic(), appealsTopic);
+        return Map.of("replayed", replayed, "from", router.dltTopic(), "to", appealsTopic);
+    }
+
+    private static RecordHeaders withoutDltHeaders(ConsumerRecord<String, byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            // Во входном топике партиция записи и есть её партиция идемпотентности
+            if (!header.key().startsWith(DLT_HEADER_PREFIX) && !SourcePartition.HEADER.equals(header.key())) {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+}
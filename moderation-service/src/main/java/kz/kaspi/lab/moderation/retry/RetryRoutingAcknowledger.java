@@ -0,0 +1,75 @@
+package kz.kaspi.lab.moderation.retry;
+
+import jakarta.annotation.PreDestroy;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Ошибка в контейнере с asyncAcks: nack() там можно вызвать только из потока consumer'а, а запись без ack
+// держит коммиты партиции. Подтверждаем только после публикации в retry-топик (или DLT); если публикация
+// не удалась, повторяем её с паузой, а запись остаётся неподтверждённой — при ребалансе или рестарте
+// она придёт снова с последнего закоммиченного offset'а
+@Slf4j
+@Component
+public class RetryRoutingAcknowledger {
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+    // Как пауза nack в AppealRetryConsumer
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final AppealRetryRouter router;
+    private final ScheduledExecutorService scheduler;
+
+    public RetryRoutingAcknowledger(AppealRetryRouter router) {
+        this.router = router;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "retry-routing");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Future завершается, когда запись подтверждена; пока он не завершён, вызывающий держит свой слот in-flight,
+    // поэтому при недоступном брокере consumer упирается в backpressure, а не копит записи
+    public CompletableFuture<Void> routeAndAcknowledge(ConsumerRecord<String, AppealEvent> record, Throwable failure,
+                                                       Acknowledgment acknowledgment) {
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        attempt(record, failure, acknowledgment, INITIAL_BACKOFF, settled);
+        return settled;
+    }
+
+    private void attempt(ConsumerRecord<String, AppealEvent> record, Throwable failure, Acknowledgment acknowledgment,
+                         Duration backoff, CompletableFuture<Void> settled) {
+        router.route(record, failure).whenComplete((result, routingFailure) -> {
+            if (routingFailure == null) {
+                acknowledgment.acknowledge();
+                settled.complete(null);
+                return;
+            }
+            log.error("Failed to route message from topic={}, partition={}, offset={}, retrying in {}: {}",
+                    record.topic(), record.partition(), record.offset(), backoff, routingFailure.getMessage());
+            Duration next = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) < 0 ? backoff.multipliedBy(2) : MAX_BACKOFF;
+            try {
+                scheduler.schedule(() -> attempt(record, failure, acknowledgment, next, settled),
+                        backoff.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Остановка: запись не подтверждена и будет доставлена снова после рестарта
+                settled.completeExceptionally(routingFailure);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,62 @@
+package kz.kaspi.lab.moderation.rules;
+
+import kz.kaspi.lab.moderation.activity.ClientActivity;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+
+// Правило после компиляции: массив условий (AND) + решение + шаблон причины.
+// Результат evaluate — ссылка на уже существующий объект, без аллокаций на обращение
+public final class CompiledRule {
+
+    // complaintKeyword — результат единственного поиска ключевых слов по тексту обращения (null — не найдено)
+    @FunctionalInterface
+    interface Condition {
+        boolean test(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity, String complaintKeyword);
+    }
+
+    private final String name;
+    private final ModerationDecision decision;
+    private final Condition[] conditions;
+    private final String reasonTemplate;
+    private final RuleField[] reasonArgs;
+
+    CompiledRule(String name, ModerationDecision decision, Condition[] conditions,
+                 String reasonTemplate, RuleField[] reasonArgs) {
+        this.name = name;
+        this.decision = decision;
+        this.conditions = conditions;
+        this.reasonTemplate = reasonTemplate;
+        this.reasonArgs = reasonArgs;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public ModerationDecision decision() {
+        return decision;
+    }
+
+    boolean matches(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity, String complaintKeyword) {
+        for (Condition condition : conditions) {
+            if (!condition.test(appeal, enrichment, activity, complaintKeyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Текст причины строится только для сработавшего правила — теми же полями, что и условия
+    public String reason(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity,
+                         String complaintKeyword) {
+        if (reasonArgs.length == 0) {
+            return reasonTemplate;
+        }
+        Object[] args = new Object[reasonArgs.length];
+        for (int i = 0; i < reasonArgs.length; i++) {
+            args[i] = reasonArgs[i].raw(appeal, enrichment, activity, complaintKeyword);
+        }
+        return String.format(reasonTemplate, args);
+    }
+}
@@ -0,0 +1,73 @@
+package kz.kaspi.lab.moderation.rules;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Поиск ключевых слов жалобы: словарь из файла (по слову на строку, # — комментарий),
+// перечитывается при изменении
+@Slf4j
+@Component
+public class ComplaintDetector {
+
+    private final ReloadableResource dictionary;
+    private volatile KeywordMatcher matcher;
+
+    public ComplaintDetector(ResourceLoader resourceLoader,
+                             @Value("${moderation.complaint-keywords.location:classpath:complaint-keywords.txt}")
+                             String location) {
+        this.dictionary = new ReloadableResource(resourceLoader.getResource(location));
+        this.matcher = load();
+    }
+
+    public boolean isComplaint(String message) {
+        return matcher.find(message) >= 0;
+    }
+
+    // Ключевое слово, по которому сообщение признано жалобой, или null
+    public String matchedKeyword(String message) {
+        KeywordMatcher current = matcher;
+        int index = current.find(message);
+        return index >= 0 ? current.keyword(index) : null;
+    }
+
+    @Scheduled(fixedDelayString = "${moderation.complaint-keywords.reload-interval:10s}")
+    public void reloadIfChanged() {
+        if (!dictionary.changed()) {
+            return;
+        }
+        try {
+            matcher = load();
+        } catch (RuntimeException e) {
+            dictionary.markLoaded(dictionary.currentVersion());
+            log.error("Failed to reload complaint keywords from {}, keeping previous version: {}",
+                    dictionary, e.getMessage());
+        }
+    }
+
+    private KeywordMatcher load() {
+        long version = dictionary.currentVersion();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(dictionary.resource().getInputStream(), StandardCharsets.UTF_8))) {
+            List<String> keywords = reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+            KeywordMatcher loaded = KeywordMatcher.build(keywords);
+            dictionary.markLoaded(version);
+            log.info("Loaded {} complaint keywords from {}", loaded.size(), dictionary);
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read complaint keywords from " + dictionary, e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package kz.kaspi.lab.moderation.rules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Автомат Ахо-Корасик: все ключевые слова ищутся за один проход по тексту,
+// без копирования и toLowerCase всего сообщения. Переходы хранятся плоскими отсортированными массивами
+final class KeywordMatcher {
+
+    private static final int ROOT = 0;
+    private static final int NO_MATCH = -1;
+
+    private final String[] keywords;
+    private final int[] transitionStart;    // переходы состояния s: [transitionStart[s], transitionStart[s + 1])
+    private final char[] transitionChars;
+    private final int[] transitionTargets;
+    private final int[] fail;
+    private final int[] output;             // индекс слова, заканчивающегося в состоянии (с учётом суффиксов)
+
+    private KeywordMatcher(String[] keywords, int[] transitionStart, char[] transitionChars,
+                           int[] transitionTargets, int[] fail, int[] output) {
+        this.keywords = keywords;
+        this.transitionStart = transitionStart;
+        this.transitionChars = transitionChars;
+        this.transitionTargets = transitionTargets;
+        this.fail = fail;
+        this.output = output;
+    }
+
+    static KeywordMatcher build(List<String> dictionary) {
+        String[] keywords = dictionary.stream()
+                .map(String::trim)
+                .filter(keyword -> !keyword.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+
+        // 1. Бор на TreeMap — только на этапе построения
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(NO_MATCH);
+        for (int k = 0; k < keywords.length; k++) {
+            int state = ROOT;
+            for (int i = 0; i < keywords[k].length(); i++) {
+                char c = normalize(keywords[k].charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    terminal.add(NO_MATCH);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (terminal.get(state) == NO_MATCH) {
+                terminal.set(state, k);
+            }
+        }
+
+        // 2. Плоские массивы переходов
+        int states = trie.size();
+        int[] transitionStart = new int[states + 1];
+        int edges = 0;
+        for (int s = 0; s < states; s++) {
+            transitionStart[s] = edges;
+            edges += trie.get(s).size();
+        }
+        transitionStart[states] = edges;
+        char[] transitionChars = new char[edges];
+        int[] transitionTargets = new int[edges];
+        for (int s = 0; s < states; s++) {
+            int index = transitionStart[s];
+            for (Map.Entry<Character, Integer> edge : trie.get(s).entrySet()) {
+                transitionChars[index] = edge.getKey();
+                transitionTargets[index] = edge.getValue();
+                index++;
+            }
+        }
+
+        // 3. Суффиксные ссылки и выходы обходом в ширину
+        int[] fail = new int[states];
+        int[] output = new int[states];
+        output[ROOT] = NO_MATCH;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : trie.get(ROOT).values()) {
+            fail[child] = ROOT;
+            output[child] = terminal.get(child);
+            queue.add(child);
+        }
+        KeywordMatcher partial = new KeywordMatcher(keywords, transitionStart, transitionChars,
+                transitionTargets, fail, output);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : trie.get(state).entrySet()) {
+                int child = edge.getValue();
+                int f = fail[state];
+                int target;
+                while ((target = partial.transition(f, edge.getKey())) == NO_MATCH && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = target != NO_MATCH && target != child ? target : ROOT;
+                output[child] = terminal.get(child) != NO_MATCH ? terminal.get(child) : output[fail[child]];
+                queue.add(child);
+            }
+        }
+        return partial;
+    }
+
+    // Индекс первого найденного слова (по позиции окончания) или -1
+    int find(CharSequence text) {
+        if (text == null || keywords.length == 0) {
+            return NO_MATCH;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) == NO_MATCH && state != ROOT) {
+                state = fail[state];
+            }
+            state = next == NO_MATCH ? ROOT : next;
+            if (output[state] != NO_MATCH) {
+                return output[state];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    String keyword(int index) {
+        return keywords[index];
+    }
+
+    int size() {
+        return keywords.length;
+    }
+
+    private int transition(int state, char c) {
+        int low = transitionStart[state];
+        int high = transitionStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = transitionChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return transitionTargets[mid];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    // Посимвольное приведение регистра, работает для кириллицы, включая казахские буквы
+    private static char normalize(char c) {
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,41 @@
+package kz.kaspi.lab.moderation.rules;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+// Отслеживает изменение файла конфигурации по lastModified для горячей перезагрузки
+final class ReloadableResource {
+
+    private final Resource resource;
+    private volatile long loadedVersion = Long.MIN_VALUE;
+
+    ReloadableResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    Resource resource() {
+        return resource;
+    }
+
+    long currentVersion() {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    boolean changed() {
+        return currentVersion() != loadedVersion;
+    }
+
+    void markLoaded(long version) {
+        loadedVersion = version;
+    }
+
+    @Override
+    public String toString() {
+        return resource.getDescription();
+    }
+}
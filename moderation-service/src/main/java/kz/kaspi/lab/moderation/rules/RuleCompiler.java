@@ -0,0 +1,121 @@
+package kz.kaspi.lab.moderation.rules;
+
+import kz.kaspi.lab.moderation.rules.CompiledRule.Condition;
+import kz.kaspi.lab.moderation.rules.RuleSetDefinition.ConditionDefinition;
+import kz.kaspi.lab.moderation.rules.RuleSetDefinition.RuleDefinition;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Превращает описание из конфига в массив предкомпилированных правил.
+// Ошибки конфига (неизвестное поле, оператор, тип значения) — IllegalArgumentException
+final class RuleCompiler {
+
+    private RuleCompiler() {
+    }
+
+    static RuleSet compile(RuleSetDefinition definition) {
+        CompiledRule[] rules = new CompiledRule[definition.getRules().size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = compileRule(definition.getRules().get(i));
+        }
+        if (definition.getDefaultDecision() == null) {
+            throw new IllegalArgumentException("defaultDecision is required");
+        }
+        CompiledRule defaultRule = new CompiledRule("default", definition.getDefaultDecision(),
+                new Condition[0], definition.getDefaultReason(), new RuleField[0]);
+        return new RuleSet(rules, defaultRule);
+    }
+
+    private static CompiledRule compileRule(RuleDefinition rule) {
+        if (rule.getName() == null || rule.getDecision() == null || rule.getReason() == null) {
+            throw new IllegalArgumentException("Rule requires name, decision and reason: " + rule);
+        }
+        try {
+            Condition[] conditions = rule.getWhen().stream()
+                    .map(RuleCompiler::compileCondition)
+                    .toArray(Condition[]::new);
+            RuleField[] reasonArgs = rule.getReasonArgs().stream()
+                    .map(RuleField::of)
+                    .toArray(RuleField[]::new);
+            return new CompiledRule(rule.getName(), rule.getDecision(), conditions,
+                    rule.getReason(), reasonArgs);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid rule '" + rule.getName() + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static Condition compileCondition(ConditionDefinition condition) {
+        RuleField field = RuleField.of(condition.getField());
+        String op = condition.getOp();
+        Object value = condition.getValue();
+
+        return switch (field.type()) {
+            case NUMBER -> {
+                double threshold = toNumber(value, condition);
+                yield switch (op) {
+                    case "gt" -> (a, e, c, k) -> field.number(a, e, c) > threshold;
+                    case "gte" -> (a, e, c, k) -> field.number(a, e, c) >= threshold;
+                    case "lt" -> (a, e, c, k) -> field.number(a, e, c) < threshold;
+                    case "lte" -> (a, e, c, k) -> field.number(a, e, c) <= threshold;
+                    case "eq" -> (a, e, c, k) -> field.number(a, e, c) == threshold;
+                    case "ne" -> (a, e, c, k) -> field.number(a, e, c) != threshold;
+                    default -> throw unsupported(condition);
+                };
+            }
+            case FLAG -> switch (op) {
+                case "isTrue" -> (a, e, c, k) -> field.flag(a, e, k);
+                case "isFalse" -> (a, e, c, k) -> !field.flag(a, e, k);
+                default -> throw unsupported(condition);
+            };
+            case TEXT -> switch (op) {
+                case "eq" -> {
+                    String expected = String.valueOf(value);
+                    yield (a, e, c, k) -> expected.equals(field.text(a, e, k));
+                }
+                case "ne" -> {
+                    String expected = String.valueOf(value);
+                    yield (a, e, c, k) -> !expected.equals(field.text(a, e, k));
+                }
+                case "in" -> {
+                    String[] expected = toStrings(value, condition);
+                    yield (a, e, c, k) -> contains(expected, field.text(a, e, k));
+                }
+                default -> throw unsupported(condition);
+            };
+        };
+    }
+
+    private static boolean contains(String[] values, String candidate) {
+        if (candidate == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (value.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double toNumber(Object value, ConditionDefinition condition) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        throw new IllegalArgumentException("Numeric value expected for " + condition);
+    }
+
+    private static String[] toStrings(Object value, ConditionDefinition condition) {
+        Collection<?> values = value instanceof Collection<?> collection ? collection
+                : value != null ? List.of(value) : Set.of();
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Non-empty list expected for " + condition);
+        }
+        return values.stream().map(String::valueOf).toArray(String[]::new);
+    }
+
+    private static IllegalArgumentException unsupported(ConditionDefinition condition) {
+        return new IllegalArgumentException("Unsupported operator for " + condition);
+    }
+}
@@ -0,0 +1,85 @@
+package kz.kaspi.lab.moderation.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import kz.kaspi.lab.moderation.activity.ClientActivity;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+@Slf4j
+@Component
+public class RuleEngine {
+
+    private final ReloadableResource location;
+    private final ComplaintDetector complaintDetector;
+    private final ObjectMapper mapper;
+
+    private volatile RuleSet ruleSet;
+
+    public RuleEngine(ResourceLoader resourceLoader,
+                      ComplaintDetector complaintDetector,
+                      @Value("${moderation.rules.location:classpath:moderation-rules.yaml}") String location) {
+        this.location = new ReloadableResource(resourceLoader.getResource(location));
+        this.complaintDetector = complaintDetector;
+        this.mapper = location.endsWith(".json") ? new ObjectMapper() : new YAMLMapper();
+        // Ошибка в правилах при старте — фатальна, при горячей перезагрузке — нет
+        this.ruleSet = load();
+    }
+
+    // Решение и причина берутся из одного и того же сработавшего правила.
+    // complaintKeyword — из complaintKeyword(appeal): текст сканируется один раз на обращение
+    public CompiledRule evaluate(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity,
+                                 String complaintKeyword) {
+        return ruleSet.evaluate(appeal, enrichment, activity, complaintKeyword);
+    }
+
+    public CompiledRule evaluate(AppealEvent appeal, EnrichmentData enrichment) {
+        return evaluate(appeal, enrichment, ClientActivity.NONE, complaintKeyword(appeal));
+    }
+
+    // Ключевое слово жалобы в тексте обращения или null
+    public String complaintKeyword(AppealEvent appeal) {
+        return complaintDetector.matchedKeyword(appeal.getMessage());
+    }
+
+    // Что считается жалобой в счётчиках активности: категория или ключевое слово в тексте
+    public static boolean isComplaint(AppealEvent appeal, String complaintKeyword) {
+        return "COMPLAINT".equals(appeal.getCategory()) || complaintKeyword != null;
+    }
+
+    @Scheduled(fixedDelayString = "${moderation.rules.reload-interval:10s}")
+    public void reloadIfChanged() {
+        if (!location.changed()) {
+            return;
+        }
+        try {
+            ruleSet = load();
+        } catch (RuntimeException e) {
+            location.markLoaded(location.currentVersion());
+            log.error("Failed to reload moderation rules from {}, keeping previous version: {}",
+                    location, e.getMessage());
+        }
+    }
+
+    private RuleSet load() {
+        long version = location.currentVersion();
+        try (InputStream input = location.resource().getInputStream()) {
+            RuleSetDefinition definition = mapper.readValue(input, RuleSetDefinition.class);
+            RuleSet compiled = RuleCompiler.compile(definition);
+            location.markLoaded(version);
+            log.info("Loaded {} moderation rules from {}", compiled.rules().length, location);
+            return compiled;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read moderation rules from " + location, e);
+        }
+    }
+}
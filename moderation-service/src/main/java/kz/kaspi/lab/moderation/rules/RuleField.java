@@ -0,0 +1,96 @@
+package kz.kaspi.lab.moderation.rules;
+
+import kz.kaspi.lab.moderation.activity.ClientActivity;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+
+import java.util.Arrays;
+
+// Поля, доступные условиям правил. Извлечение без аллокаций: числа — как double, флаги — как boolean
+enum RuleField {
+    FRAUD_SCORE("fraudScore", Type.NUMBER),
+    SUPPORT_RATING("supportRating", Type.NUMBER),
+    PREVIOUS_COMPLAINTS("previousComplaints", Type.NUMBER),
+    COMPLAINTS_24H("complaints24h", Type.NUMBER),
+    COMPLAINTS_7D("complaints7d", Type.NUMBER),
+    APPEALS_LAST_HOUR("appealsLastHour", Type.NUMBER),
+    APPEALS_24H("appeals24h", Type.NUMBER),
+    VIP("vip", Type.FLAG),
+    COMPLAINT("complaint", Type.FLAG),
+    COMPLAINT_KEYWORD("complaintKeyword", Type.TEXT),
+    RISK_CATEGORY("riskCategory", Type.TEXT),
+    PRIORITY("priority", Type.TEXT),
+    CATEGORY("category", Type.TEXT);
+
+    enum Type { NUMBER, FLAG, TEXT }
+
+    private final String key;
+    private final Type type;
+
+    RuleField(String key, Type type) {
+        this.key = key;
+        this.type = type;
+    }
+
+    Type type() {
+        return type;
+    }
+
+    static RuleField of(String key) {
+        return Arrays.stream(values())
+                .filter(field -> field.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown rule field: " + key));
+    }
+
+    double number(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity) {
+        return switch (this) {
+            case FRAUD_SCORE -> orNaN(enrichment.getFraudScore());
+            case SUPPORT_RATING -> orNaN(enrichment.getSupportRating());
+            case PREVIOUS_COMPLAINTS -> orNaN(enrichment.getPreviousComplaints());
+            case COMPLAINTS_24H -> activity.complaints24h();
+            case COMPLAINTS_7D -> activity.complaints7d();
+            case APPEALS_LAST_HOUR -> activity.appealsLastHour();
+            case APPEALS_24H -> activity.appeals24h();
+            default -> throw new IllegalStateException(key + " is not numeric");
+        };
+    }
+
+    // Отсутствующее значение не проходит ни одно сравнение
+    private static double orNaN(Number value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    // complaintKeyword ищется один раз на обращение (RuleEngine.complaintKeyword), здесь только читается
+    boolean flag(AppealEvent appeal, EnrichmentData enrichment, String complaintKeyword) {
+        return switch (this) {
+            case VIP -> Boolean.TRUE.equals(enrichment.getIsVIP());
+            case COMPLAINT -> complaintKeyword != null;
+            default -> throw new IllegalStateException(key + " is not a flag");
+        };
+    }
+
+    String text(AppealEvent appeal, EnrichmentData enrichment, String complaintKeyword) {
+        return switch (this) {
+            case COMPLAINT_KEYWORD -> complaintKeyword;
+            case RISK_CATEGORY -> enrichment.getRiskCategory();
+            case PRIORITY -> appeal.getPriority();
+            case CATEGORY -> appeal.getCategory();
+            default -> throw new IllegalStateException(key + " is not text");
+        };
+    }
+
+    // Значение для подстановки в текст причины (в исходном типе, чтобы работали %d и %.2f)
+    Object raw(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity, String complaintKeyword) {
+        return switch (type) {
+            case NUMBER -> switch (this) {
+                case FRAUD_SCORE -> enrichment.getFraudScore();
+                case SUPPORT_RATING -> enrichment.getSupportRating();
+                case PREVIOUS_COMPLAINTS -> enrichment.getPreviousComplaints();
+                default -> (int) number(appeal, enrichment, activity);
+            };
+            case FLAG -> flag(appeal, enrichment, complaintKeyword);
+            case TEXT -> text(appeal, enrichment, complaintKeyword);
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package kz.kaspi.lab.moderation.rules;
+
+import kz.kaspi.lab.moderation.activity.ClientActivity;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+
+// Неизменяемый упорядоченный набор правил: побеждает первое сработавшее
+record RuleSet(CompiledRule[] rules, CompiledRule defaultRule) {
+
+    CompiledRule evaluate(AppealEvent appeal, EnrichmentData enrichment, ClientActivity activity,
+                          String complaintKeyword) {
+        for (CompiledRule rule : rules) {
+            if (rule.matches(appeal, enrichment, activity, complaintKeyword)) {
+                return rule;
+            }
+        }
+        return defaultRule;
+    }
+}
@@ -0,0 +1,35 @@
+package kz.kaspi.lab.moderation.rules;
+
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Формат файла правил (moderation.rules.location)
+@Data
+@NoArgsConstructor
+public class RuleSetDefinition {
+    private List<RuleDefinition> rules = new ArrayList<>();
+    private ModerationDecision defaultDecision = ModerationDecision.APPROVED;
+    private String defaultReason = "Standard processing - all checks passed";
+
+    @Data
+    @NoArgsConstructor
+    public static class RuleDefinition {
+        private String name;
+        private ModerationDecision decision;
+        private List<ConditionDefinition> when = new ArrayList<>();
+        private String reason;
+        private List<String> reasonArgs = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class ConditionDefinition {
+        private String field;   // fraudScore, supportRating, previousComplaints, complaints24h, complaints7d, appealsLastHour, appeals24h, vip, complaint, complaintKeyword, riskCategory, priority, category
+        private String op;      // gt, gte, lt, lte, eq, ne, in, isTrue, isFalse
+        private Object value;
+    }
+}
@@ -0,0 +1,66 @@
+package kz.kaspi.lab.moderation.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Timer;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.ByteBufferInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Читает AppealEvent прямо из байтов записи, минуя промежуточную String.
+// Формат определяется по заголовку content-type (JSON по умолчанию)
+public class AppealEventDeserializer implements Deserializer<AppealEvent> {
+
+    // ObjectReader неизменяем и потокобезопасен — создаём один раз
+    private final ObjectReader reader;
+    // null — без метрик (тесты, бенчмарки)
+    private final Timer timer;
+
+    public AppealEventDeserializer(ObjectMapper objectMapper) {
+        this(objectMapper, null);
+    }
+
+    public AppealEventDeserializer(ObjectMapper objectMapper, Timer timer) {
+        this.reader = objectMapper.readerFor(AppealEvent.class);
+        this.timer = timer;
+    }
+
+    @Override
+    public AppealEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public AppealEvent deserialize(String topic, Headers headers, byte[] data) {
+        return data == null ? null : deserialize(topic, headers, ByteBuffer.wrap(data));
+    }
+
+    // Этот вариант вызывает KafkaConsumer: буфер указывает в данные fetch'а, копии не делаем
+    @Override
+    public AppealEvent deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            return switch (PayloadFormat.from(headers)) {
+                case BINARY -> ModerationBinaryCodec.decodeAppeal(data);
+                case JSON -> data.hasArray()
+                        ? reader.readValue(data.array(), data.arrayOffset() + data.position(), data.remaining())
+                        : reader.readValue(new ByteBufferInputStream(data.duplicate()));
+            };
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Failed to deserialize AppealEvent from topic " + topic, e);
+        } finally {
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
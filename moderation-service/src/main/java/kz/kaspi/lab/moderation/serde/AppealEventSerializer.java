@@ -0,0 +1,56 @@
+package kz.kaspi.lab.moderation.serde;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+// Пишет AppealEvent для повторной публикации (retry-топики, DLT, replay). Если в заголовках уже есть
+// content-type (скопированы из исходной записи), формат сохраняется, иначе берётся defaultFormat
+public class AppealEventSerializer implements Serializer<AppealEvent> {
+
+    private final ObjectWriter writer;
+    private final PayloadFormat defaultFormat;
+
+    public AppealEventSerializer(ObjectMapper objectMapper, PayloadFormat defaultFormat) {
+        this.writer = objectMapper.writerFor(AppealEvent.class);
+        this.defaultFormat = defaultFormat;
+    }
+
+    @Override
+    public byte[] serialize(String topic, AppealEvent data) {
+        return serialize(data, defaultFormat);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, AppealEvent data) {
+        if (headers == null) {
+            return serialize(topic, data);
+        }
+        PayloadFormat format = headers.lastHeader(PayloadFormat.CONTENT_TYPE_HEADER) != null
+                ? PayloadFormat.from(headers) : defaultFormat;
+        byte[] payload = serialize(data, format);
+        if (payload != null) {
+            format.writeTo(headers);
+        }
+        return payload;
+    }
+
+    private byte[] serialize(AppealEvent data, PayloadFormat format) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return switch (format) {
+                case BINARY -> ModerationBinaryCodec.encode(data);
+                case JSON -> writer.writeValueAsBytes(data);
+            };
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Failed to serialize AppealEvent for appealId="
+                    + data.getAppealId(), e);
+        }
+    }
+}
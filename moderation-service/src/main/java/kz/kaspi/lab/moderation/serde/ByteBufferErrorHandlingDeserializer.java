@@ -0,0 +1,30 @@
+package kz.kaspi.lab.moderation.serde;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+import java.nio.ByteBuffer;
+
+// ErrorHandlingDeserializer переопределяет только byte[]-вариант, и KafkaConsumer копирует ради него
+// каждую запись из буфера fetch'а. Здесь удачный путь идёт через ByteBuffer без копии, а битая запись
+// повторно разбирается штатной логикой, которая кладёт исключение в заголовок для error handler'а
+public class ByteBufferErrorHandlingDeserializer<T> extends ErrorHandlingDeserializer<T> {
+
+    private final Deserializer<T> delegate;
+
+    public ByteBufferErrorHandlingDeserializer(Deserializer<T> delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        try {
+            return delegate.deserialize(topic, headers, data);
+        } catch (Exception e) {
+            return deserialize(topic, headers, Utils.toNullableArray(data));
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package kz.kaspi.lab.moderation.serde;
+
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Компактный бинарный формат: байт версии, затем поля в фиксированном порядке.
+// Строки — varint(длина UTF-8 + 1) и байты (0 = null), время — zigzag varlong секунд UTC + varint нано,
+// enum — ordinal + 1. Новые поля добавляются только в конец с повышением версии
+public final class ModerationBinaryCodec {
+
+    private static final byte APPEAL_V1 = 1;
+    private static final byte RESULT_V1 = 1;
+    // v2: + appealHash в конце
+    private static final byte RESULT_V2 = 2;
+    private static final ModerationDecision[] DECISIONS = ModerationDecision.values();
+
+    // Буфер на поток: сериализатор вызывается из потока отправки продюсера, копируется только результат
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    private ModerationBinaryCodec() {
+    }
+
+    public static byte[] encode(AppealEvent appeal) {
+        Writer out = WRITERS.get().reset();
+        out.writeByte(APPEAL_V1);
+        writeAppeal(out, appeal);
+        return out.toByteArray();
+    }
+
+    public static byte[] encode(ModerationResult result) {
+        Writer out = WRITERS.get().reset();
+        out.writeByte(RESULT_V2);
+        out.writeString(result.getAppealId());
+        out.writeString(result.getClientId());
+        out.writeVarInt(result.getDecision() == null ? 0 : result.getDecision().ordinal() + 1);
+        out.writeString(result.getReason());
+        out.writeString(result.getRiskCategory());
+        out.writeDateTime(result.getProcessedAt());
+        if (result.getOriginalAppeal() == null) {
+            out.writeByte((byte) 0);
+        } else {
+            out.writeByte((byte) 1);
+            writeAppeal(out, result.getOriginalAppeal());
+        }
+        out.writeString(result.getAppealHash());
+        return out.toByteArray();
+    }
+
+    // Читает с текущей позиции, не сдвигая её у переданного буфера
+    public static AppealEvent decodeAppeal(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            checkVersion(in.get(), APPEAL_V1);
+            return readAppeal(in);
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Truncated binary AppealEvent", e);
+        }
+    }
+
+    public static ModerationResult decodeResult(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            byte version = in.get();
+            if (version != RESULT_V1 && version != RESULT_V2) {
+                throw new SerializationException("Unsupported binary payload version: " + version);
+            }
+            ModerationResult result = new ModerationResult();
+            result.setAppealId(readString(in));
+            result.setClientId(readString(in));
+            int decision = readVarInt(in);
+            result.setDecision(decision == 0 ? null : DECISIONS[decision - 1]);
+            result.setReason(readString(in));
+            result.setRiskCategory(readString(in));
+            result.setProcessedAt(readDateTime(in));
+            if (in.get() != 0) {
+                result.setOriginalAppeal(readAppeal(in));
+            }
+            if (version >= RESULT_V2) {
+                result.setAppealHash(readString(in));
+            }
+            return result;
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Malformed binary ModerationResult", e);
+        }
+    }
+
+    private static void writeAppeal(Writer out, AppealEvent appeal) {
+        out.writeString(appeal.getAppealId());
+        out.writeString(appeal.getClientId());
+        out.writeString(appeal.getMessage());
+        out.writeDateTime(appeal.getTimestamp());
+        out.writeString(appeal.getCategory());
+        out.writeString(appeal.getPriority());
+    }
+
+    private static AppealEvent readAppeal(ByteBuffer in) {
+        AppealEvent appeal = new AppealEvent();
+        appeal.setAppealId(readString(in));
+        appeal.setClientId(readString(in));
+        appeal.setMessage(readString(in));
+        appeal.setTimestamp(readDateTime(in));
+        appeal.setCategory(readString(in));
+        appeal.setPriority(readString(in));
+        return appeal;
+    }
+
+    private static void checkVersion(byte version, byte expected) {
+        if (version != expected) {
+            throw new SerializationException("Unsupported binary payload version: " + version);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        long raw = readVarLong(in);
+        long seconds = (raw >>> 1) ^ -(raw & 1);
+        return LocalDateTime.ofEpochSecond(seconds, readVarInt(in), ZoneOffset.UTC);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Varint is too long");
+    }
+
+    private static final class Writer {
+
+        private static final int INITIAL_SIZE = 512;
+        private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+        private byte[] buffer = new byte[INITIAL_SIZE];
+        private int position;
+
+        Writer reset() {
+            // Не держим в ThreadLocal буфер, раздутый одним большим сообщением
+            if (buffer.length > MAX_RETAINED_SIZE) {
+                buffer = new byte[INITIAL_SIZE];
+            }
+            position = 0;
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xffffffffL);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeDateTime(LocalDateTime value) {
+            if (value == null) {
+                writeByte((byte) 0);
+                return;
+            }
+            writeByte((byte) 1);
+            long seconds = value.toEpochSecond(ZoneOffset.UTC);
+            writeVarLong((seconds << 1) ^ (seconds >> 63));
+            writeVarInt(value.getNano());
+        }
+
+        // UTF-8 кодируется прямо в буфер, без промежуточного byte[] от String.getBytes
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            int length = utf8Length(value);
+            writeVarInt(length + 1);
+            ensure(length);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xc0 | (c >>> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xf0 | (codePoint >>> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Одиночный суррогат — как String.getBytes(UTF_8): заменяем на '?'
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xe0 | (c >>> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private static int utf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    length++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package kz.kaspi.lab.moderation.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.ByteBufferInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Обратная сторона ModerationResultSerializer: формат — по заголовку content-type (JSON по умолчанию).
+// Нужен replay, чтобы сверить новые решения с уже опубликованными
+public class ModerationResultDeserializer implements Deserializer<ModerationResult> {
+
+    private final ObjectReader reader;
+
+    public ModerationResultDeserializer(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(ModerationResult.class);
+    }
+
+    @Override
+    public ModerationResult deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public ModerationResult deserialize(String topic, Headers headers, byte[] data) {
+        return data == null ? null : deserialize(topic, headers, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public ModerationResult deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return switch (PayloadFormat.from(headers)) {
+                case BINARY -> ModerationBinaryCodec.decodeResult(data);
+                case JSON -> data.hasArray()
+                        ? reader.readValue(data.array(), data.arrayOffset() + data.position(), data.remaining())
+                        : reader.readValue(new ByteBufferInputStream(data.duplicate()));
+            };
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Failed to deserialize ModerationResult from topic " + topic, e);
+        }
+    }
+}
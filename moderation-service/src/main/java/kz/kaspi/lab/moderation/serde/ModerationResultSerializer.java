@@ -0,0 +1,72 @@
+package kz.kaspi.lab.moderation.serde;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Timer;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Пишет ModerationResult сразу в byte[] и проставляет content-type, чтобы потребители знали формат
+public class ModerationResultSerializer implements Serializer<ModerationResult> {
+
+    private final ObjectWriter writer;
+    // Свой JSON-маппер для отдельных топиков: общий транзакционный продюсер пишет оба выходных топика,
+    // а проекции у них разные
+    private final Map<String, ObjectWriter> topicWriters = new HashMap<>();
+    private final PayloadFormat format;
+    // null — без метрик (тесты, бенчмарки)
+    private final Timer timer;
+
+    public ModerationResultSerializer(ObjectMapper objectMapper, PayloadFormat format) {
+        this(objectMapper, format, null);
+    }
+
+    public ModerationResultSerializer(ObjectMapper objectMapper, PayloadFormat format, Timer timer) {
+        this(objectMapper, Map.of(), format, timer);
+    }
+
+    public ModerationResultSerializer(ObjectMapper objectMapper, Map<String, ObjectMapper> topicMappers,
+                                      PayloadFormat format, Timer timer) {
+        this.writer = objectMapper.writerFor(ModerationResult.class);
+        topicMappers.forEach((topic, mapper) -> topicWriters.put(topic, mapper.writerFor(ModerationResult.class)));
+        this.format = format;
+        this.timer = timer;
+    }
+
+    @Override
+    public byte[] serialize(String topic, ModerationResult data) {
+        if (data == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            return switch (format) {
+                case BINARY -> ModerationBinaryCodec.encode(data);
+                case JSON -> topicWriters.getOrDefault(topic, writer).writeValueAsBytes(data);
+            };
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Failed to serialize ModerationResult for appealId="
+                    + data.getAppealId(), e);
+        } finally {
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, ModerationResult data) {
+        byte[] payload = serialize(topic, data);
+        if (payload != null && headers != null) {
+            format.writeTo(headers);
+        }
+        return payload;
+    }
+}
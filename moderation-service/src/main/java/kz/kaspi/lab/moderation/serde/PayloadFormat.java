@@ -0,0 +1,54 @@
+package kz.kaspi.lab.moderation.serde;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Формат тела сообщения; передаётся в заголовке content-type. Без заголовка считаем, что это JSON
+public enum PayloadFormat {
+    JSON("application/json"),
+    BINARY("application/x-moderation-binary");
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+
+    private final String contentType;
+    private final byte[] headerValue;
+
+    PayloadFormat(String contentType) {
+        this.contentType = contentType;
+        this.headerValue = contentType.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public static PayloadFormat of(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "json" -> JSON;
+            case "binary" -> BINARY;
+            default -> throw new IllegalArgumentException("Unknown payload format: " + name);
+        };
+    }
+
+    static PayloadFormat from(Headers headers) {
+        Header header = headers == null ? null : headers.lastHeader(CONTENT_TYPE_HEADER);
+        if (header == null) {
+            return JSON;
+        }
+        for (PayloadFormat format : values()) {
+            if (Arrays.equals(format.headerValue, header.value())) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content-type: "
+                + new String(header.value(), StandardCharsets.US_ASCII));
+    }
+
+    void writeTo(Headers headers) {
+        headers.remove(CONTENT_TYPE_HEADER);
+        headers.add(CONTENT_TYPE_HEADER, headerValue);
+    }
+}
@@ -0,0 +1,8 @@
+package kz.kaspi.lab.moderation.service;
+
+import kz.kaspi.lab.moderation.model.ModerationResult;
+
+// Результат модерации и признак жалобы для счётчиков активности. Сам результат в счётчиках ещё не учтён:
+// это делает ModerationService.recordActivity после публикации и отметки в хранилище идемпотентности
+public record ModerationOutcome(ModerationResult result, boolean complaint) {
+}
@@ -1,38 +1,115 @@
 package kz.kaspi.lab.moderation.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kz.kaspi.lab.moderation.activity.ClientActivity;
+import kz.kaspi.lab.moderation.activity.ClientActivityStore;
 import kz.kaspi.lab.moderation.client.EnrichmentClient;
+import kz.kaspi.lab.moderation.metrics.StageTimers;
 import kz.kaspi.lab.moderation.model.AppealEvent;
 import kz.kaspi.lab.moderation.model.EnrichmentData;
 import kz.kaspi.lab.moderation.model.ModerationResult;
 import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
-import lombok.RequiredArgsConstructor;
+import kz.kaspi.lab.moderation.rules.CompiledRule;
+import kz.kaspi.lab.moderation.rules.RuleEngine;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ModerationService {
 
-    private final EnrichmentClient enrichmentClient;
+    // Одна строка key=value на обращение вместо нескольких INFO по этапам (они — на DEBUG).
+    // Отдельный логгер, чтобы сводку можно было включать и направлять независимо
+    private static final Logger SUMMARY = LoggerFactory.getLogger("kz.kaspi.lab.moderation.summary");
 
-    private static final Set<String> COMPLAINT_KEYWORDS = Set.of(
-            "problem", "issue", "complaint", "не работает", "ошибка", "неправильно"
-    );
+    private final EnrichmentClient enrichmentClient;
+    private final RuleEngine ruleEngine;
+    private final ClientActivityStore activityStore;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer enrichmentTimer;
+    private final Timer rulesTimer;
+    private final Timer endToEndTimer;
+    // Набор правил ограничен файлом правил, поэтому и число счётчиков ограничено
+    private final ConcurrentMap<DecisionKey, Counter> decisionCounters = new ConcurrentHashMap<>();
+
+    // Доля APPROVED-обращений, попадающих в сводку; остальные решения пишутся всегда
+    private final double summarySampleRate;
+
+    public ModerationService(EnrichmentClient enrichmentClient, RuleEngine ruleEngine,
+                             ClientActivityStore activityStore, MeterRegistry meterRegistry,
+                             @Value("${moderation.logging.summary.sample-rate:1.0}") double summarySampleRate) {
+        this.enrichmentClient = enrichmentClient;
+        this.ruleEngine = ruleEngine;
+        this.activityStore = activityStore;
+        this.meterRegistry = meterRegistry;
+        this.summarySampleRate = summarySampleRate;
+        this.enrichmentTimer = StageTimers.of(meterRegistry, StageTimers.ENRICHMENT);
+        this.rulesTimer = StageTimers.of(meterRegistry, StageTimers.RULES);
+        this.endToEndTimer = Timer.builder("moderation.appeal.latency")
+                .description("Time from appeal timestamp to moderation result (processedAt)")
+                .register(meterRegistry);
+    }
 
-    public ModerationResult moderateAppeal(AppealEvent appeal) {
-        log.info("Starting moderation for appealId={}, clientId={}",
-                appeal.getAppealId(), appeal.getClientId());
+    public ModerationOutcome moderateAppeal(AppealEvent appeal) {
+        if (log.isDebugEnabled()) {
+            log.debug("Starting moderation for appealId={}, clientId={}",
+                    appeal.getAppealId(), appeal.getClientId());
+        }
 
         // 1. Обогащение данных
+        long start = System.nanoTime();
         EnrichmentData enrichment = enrichmentClient.getEnrichment(appeal.getClientId());
 
-        // 2. Применение бизнес-правил
-        ModerationDecision decision = applyBusinessRules(appeal, enrichment);
-        String reason = buildReason(decision, appeal, enrichment);
+        return moderate(appeal, enrichment, System.nanoTime() - start);
+    }
+
+    public Mono<ModerationOutcome> moderateAppealAsync(AppealEvent appeal) {
+        if (log.isDebugEnabled()) {
+            log.debug("Starting async moderation for appealId={}, clientId={}",
+                    appeal.getAppealId(), appeal.getClientId());
+        }
+
+        // 1. Обогащение данных без блокировки потока
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return enrichmentClient.getEnrichmentAsync(appeal.getClientId())
+                    .map(enrichment -> moderate(appeal, enrichment, System.nanoTime() - start));
+        });
+    }
+
+    // Учитывает обращение в счётчиках клиента. Вызывается один раз на appealId — после публикации результата
+    // и отметки в хранилище идемпотентности, чтобы повторы и повторная доставка не завышали счётчики
+    public void recordActivity(AppealEvent appeal, boolean complaint) {
+        activityStore.record(appeal.getClientId(), complaint);
+    }
+
+    private ModerationOutcome moderate(AppealEvent appeal, EnrichmentData enrichment, long enrichmentNanos) {
+        enrichmentTimer.record(enrichmentNanos, TimeUnit.NANOSECONDS);
+
+        // 2. Применение бизнес-правил: решение и причина — из одного сработавшего правила.
+        // Текст сканируется на ключевые слова один раз; счётчики клиента — без этого обращения
+        long start = System.nanoTime();
+        String complaintKeyword = ruleEngine.complaintKeyword(appeal);
+        ClientActivity activity = activityStore.get(appeal.getClientId());
+        CompiledRule rule = ruleEngine.evaluate(appeal, enrichment, activity, complaintKeyword);
+        ModerationDecision decision = rule.decision();
+        String reason = rule.reason(appeal, enrichment, activity, complaintKeyword);
+        long rulesNanos = System.nanoTime() - start;
+        rulesTimer.record(rulesNanos, TimeUnit.NANOSECONDS);
 
         // 3. Формирование результата
         ModerationResult result = ModerationResult.builder()
@@ -45,81 +122,51 @@ public class ModerationService {
                 .originalAppeal(appeal)
                 .build();
 
-        log.info("Moderation completed for appealId={}: decision={}, reason={}",
-                appeal.getAppealId(), decision, reason);
-
-        return result;
-    }
-
-    private ModerationDecision applyBusinessRules(AppealEvent appeal, EnrichmentData enrichment) {
-        // Правило 1: Критический фрод-риск → REJECTED
-        if (enrichment.getFraudScore() > 0.8) {
-            log.warn("High fraud score detected: {}", enrichment.getFraudScore());
-            return ModerationDecision.REJECTED;
-        }
-
-        // Правило 2: VIP клиент → APPROVED (приоритет)
-        if (Boolean.TRUE.equals(enrichment.getIsVIP())) {
-            log.info("VIP client detected, auto-approving");
-            return ModerationDecision.APPROVED;
+        recordDecision(rule);
+        long endToEndMillis = -1;
+        if (appeal.getTimestamp() != null) {
+            // Время обращения — локальное время источника, как и processedAt
+            Duration endToEnd = Duration.between(appeal.getTimestamp(), result.getProcessedAt());
+            if (!endToEnd.isNegative()) {
+                endToEndTimer.record(endToEnd);
+                endToEndMillis = endToEnd.toMillis();
+            }
         }
 
-        // Правило 3: Urgent priority → APPROVED
-        if ("URGENT".equals(appeal.getPriority())) {
-            log.info("Urgent priority appeal, auto-approving");
-            return ModerationDecision.APPROVED;
+        if (log.isDebugEnabled()) {
+            log.debug("Moderation completed for appealId={}: decision={}, rule={}, reason={}",
+                    appeal.getAppealId(), decision, rule.name(), reason);
         }
+        logSummary(result, rule, enrichmentNanos, rulesNanos, endToEndMillis);
 
-        // Правило 4: Низкий рейтинг + жалоба → REVIEW_REQUIRED
-        if (enrichment.getSupportRating() < 2.5 && isComplaint(appeal.getMessage())) {
-            log.info("Low rating client with complaint, requires manual review");
-            return ModerationDecision.REVIEW_REQUIRED;
-        }
+        return new ModerationOutcome(result, RuleEngine.isComplaint(appeal, complaintKeyword));
+    }
 
-        // Правило 5: Множественные жалобы в истории → REVIEW_REQUIRED
-        if (enrichment.getPreviousComplaints() > 2) {
-            log.info("Multiple previous complaints detected: {}", enrichment.getPreviousComplaints());
-            return ModerationDecision.REVIEW_REQUIRED;
+    private void logSummary(ModerationResult result, CompiledRule rule,
+                            long enrichmentNanos, long rulesNanos, long endToEndMillis) {
+        if (!SUMMARY.isInfoEnabled()) {
+            return;
         }
-
-        // Правило 6: Высокий/критический риск → REVIEW_REQUIRED
-        if ("HIGH".equals(enrichment.getRiskCategory()) ||
-                "CRITICAL".equals(enrichment.getRiskCategory())) {
-            log.info("High risk category detected: {}", enrichment.getRiskCategory());
-            return ModerationDecision.REVIEW_REQUIRED;
+        if (result.getDecision() == ModerationDecision.APPROVED && summarySampleRate < 1.0
+                && ThreadLocalRandom.current().nextDouble() >= summarySampleRate) {
+            return;
         }
-
-        // По умолчанию: APPROVED
-        return ModerationDecision.APPROVED;
+        // Кодирование и запись в stdout — в потоке async-аппендера (logback-spring.xml)
+        SUMMARY.info("appealId={} clientId={} decision={} rule={} risk={} enrichmentUs={} rulesUs={} e2eMs={}",
+                result.getAppealId(), result.getClientId(), result.getDecision(), rule.name(),
+                result.getRiskCategory(), enrichmentNanos / 1000, rulesNanos / 1000, endToEndMillis);
     }
 
-    private boolean isComplaint(String message) {
-        if (message == null) return false;
-        String lowerMessage = message.toLowerCase();
-        return COMPLAINT_KEYWORDS.stream().anyMatch(lowerMessage::contains);
+    private void recordDecision(CompiledRule rule) {
+        decisionCounters.computeIfAbsent(new DecisionKey(rule.name(), rule.decision()),
+                key -> Counter.builder("moderation.decisions")
+                        .description("Moderation decisions by the rule that produced them")
+                        .tag("rule", key.rule())
+                        .tag("decision", key.decision().name())
+                        .register(meterRegistry))
+                .increment();
     }
 
-    private String buildReason(ModerationDecision decision, AppealEvent appeal, EnrichmentData enrichment) {
-        return switch (decision) {
-            case APPROVED -> {
-                if (Boolean.TRUE.equals(enrichment.getIsVIP())) {
-                    yield "VIP client - priority handling";
-                } else if ("URGENT".equals(appeal.getPriority())) {
-                    yield "Urgent priority appeal";
-                } else {
-                    yield "Standard processing - all checks passed";
-                }
-            }
-            case REJECTED -> String.format("High fraud risk (score: %.2f)", enrichment.getFraudScore());
-            case REVIEW_REQUIRED -> {
-                if (enrichment.getSupportRating() < 2.5) {
-                    yield String.format("Low rating (%.1f) with complaint", enrichment.getSupportRating());
-                } else if (enrichment.getPreviousComplaints() > 2) {
-                    yield String.format("Multiple previous complaints (%d)", enrichment.getPreviousComplaints());
-                } else {
-                    yield String.format("High risk category: %s", enrichment.getRiskCategory());
-                }
-            }
-        };
+    private record DecisionKey(String rule, ModerationDecision decision) {
     }
-}
\ No newline at end of file
+}
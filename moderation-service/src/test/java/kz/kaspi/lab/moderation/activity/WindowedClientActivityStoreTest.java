@@ -0,0 +1,119 @@
+package kz.kaspi.lab.moderation.activity;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowedClientActivityStoreTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    @TempDir
+    Path directory;
+
+    // Середина суток от эпохи, чтобы сдвиги на часы не переходили границу дня без нужды
+    private final AtomicLong now = new AtomicLong(20_000 * 24 * HOUR + HOUR / 2);
+
+    @Test
+    void countsAppealsBeforeTheCurrentOne() {
+        try (WindowedClientActivityStore store = open(1000)) {
+            assertEquals(ClientActivity.NONE, store.record("c1", true));
+            assertEquals(new ClientActivity(1, 1, 1, 1), store.record("c1", false));
+            assertEquals(new ClientActivity(1, 1, 2, 2), store.record("c1", true));
+            assertEquals(ClientActivity.NONE, store.record("c2", true));
+        }
+    }
+
+    @Test
+    void windowsSlideWithTime() {
+        try (WindowedClientActivityStore store = open(1000)) {
+            store.record("c1", true);
+            store.record("c1", true);
+
+            now.addAndGet(HOUR);
+            assertEquals(new ClientActivity(2, 2, 0, 2), store.get("c1"));
+            store.record("c1", false);
+
+            now.addAndGet(23 * HOUR);
+            // Первые две жалобы вышли из суточного окна, но остались в недельном
+            assertEquals(new ClientActivity(0, 2, 0, 1), store.get("c1"));
+
+            now.addAndGet(7 * 24 * HOUR);
+            assertEquals(ClientActivity.NONE, store.record("c1", true));
+            assertEquals(new ClientActivity(1, 1, 1, 1), store.get("c1"));
+        }
+    }
+
+    @Test
+    void snapshotSurvivesRestart() {
+        try (WindowedClientActivityStore store = open(1000)) {
+            for (int i = 0; i < 100; i++) {
+                store.record("client-" + i, i % 2 == 0);
+            }
+            store.record("client-0", true);
+        }
+        assertTrue(Files.exists(directory.resolve("activity.snapshot")));
+
+        now.addAndGet(HOUR);
+        try (WindowedClientActivityStore store = open(1000)) {
+            assertEquals(100, store.size());
+            assertEquals(new ClientActivity(2, 2, 0, 2), store.get("client-0"));
+            assertEquals(new ClientActivity(0, 0, 0, 1), store.get("client-1"));
+        }
+    }
+
+    @Test
+    void idleClientsAreNotRestored() {
+        try (WindowedClientActivityStore store = open(1000)) {
+            store.record("old", true);
+        }
+
+        now.addAndGet(8 * 24 * HOUR);
+        try (WindowedClientActivityStore store = open(1000)) {
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void evictsLeastRecentClientsWhenFull() {
+        try (WindowedClientActivityStore store = open(1600)) {
+            for (int i = 0; i < 1000; i++) {
+                store.record("old-" + i, true);
+            }
+            now.addAndGet(HOUR);
+            for (int i = 0; i < 10_000; i++) {
+                store.record("new-" + i, true);
+            }
+            assertTrue(store.size() <= 1600, "size " + store.size());
+
+            now.addAndGet(HOUR);
+            // Свежих клиентов вытеснение бережёт: последние записанные на месте
+            assertEquals(new ClientActivity(1, 1, 0, 1), store.get("new-9999"));
+        }
+    }
+
+    @Test
+    void maintenancePurgesIdleClients() {
+        try (WindowedClientActivityStore store = open(1000)) {
+            store.record("idle", false);
+            now.addAndGet(8 * 24 * HOUR);
+            store.record("active", false);
+
+            store.maintain();
+
+            assertEquals(1, store.size());
+        }
+    }
+
+    private WindowedClientActivityStore open(int maxClients) {
+        return new WindowedClientActivityStore(maxClients, Duration.ofDays(7), directory.resolve("activity.snapshot"),
+                Duration.ofHours(1), now::get);
+    }
+}
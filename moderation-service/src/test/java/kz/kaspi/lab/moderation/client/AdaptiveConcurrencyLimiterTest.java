@@ -0,0 +1,75 @@
+package kz.kaspi.lab.moderation.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    private final AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(4, 2, 8, Duration.ofMillis(100), 0.5);
+
+    @Test
+    void rejectsAboveLimit() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onIgnore();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(4, limiter.getInFlight());
+    }
+
+    @Test
+    void growsAdditivelyWhileSaturatedAndFast() {
+        // Каждый быстрый ответ при полной загрузке — +1/limit, т.е. примерно +1 за limit ответов
+        for (int i = 0; i < 5; i++) {
+            fillToLimit();
+            limiter.onSuccess(FAST);
+            releaseAll();
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenUnderused() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(FAST);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void shrinksMultiplicativelyOnDropOrSlowResponse() {
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(SLOW);
+        assertEquals(2, limiter.getLimit());
+
+        // Не ниже min-limit
+        assertTrue(limiter.tryAcquire());
+        limiter.onDropped();
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private void fillToLimit() {
+        while (limiter.tryAcquire()) {
+            // занимаем все слоты
+        }
+    }
+
+    private void releaseAll() {
+        while (limiter.getInFlight() > 0) {
+            limiter.onIgnore();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package kz.kaspi.lab.moderation.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.retry.AppealRetryRouter;
+import kz.kaspi.lab.moderation.retry.RetryRoutingAcknowledger;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedAppealConsumerTest {
+
+    private final Map<String, List<String>> processedByClient = new ConcurrentHashMap<>();
+    private final CountDownLatch slowClientBlocked = new CountDownLatch(1);
+    private final CountDownLatch acks = new CountDownLatch(5);
+    private final AtomicBoolean fastClientWaited = new AtomicBoolean();
+
+    // Обращения клиента "slow" ждут, пока не обработается клиент "fast" из той же партиции
+    private final AppealProcessor processor = new AppealProcessor(null, null, null, null, new SimpleMeterRegistry()) {
+        @Override
+        public void process(AppealEvent appeal, int partition) {
+            if ("slow".equals(appeal.getClientId()) && !await(slowClientBlocked)) {
+                fastClientWaited.set(true);
+            }
+            if ("fail".equals(appeal.getAppealId())) {
+                throw new IllegalStateException("boom");
+            }
+            processedByClient.computeIfAbsent(appeal.getClientId(), k -> new CopyOnWriteArrayList<>())
+                    .add(appeal.getAppealId());
+            if ("fast".equals(appeal.getClientId())) {
+                slowClientBlocked.countDown();
+            }
+        }
+    };
+
+    private final MockProducer<String, byte[]> retryProducer =
+            new MockProducer<>(true, null, new StringSerializer(), new ByteArraySerializer()) {
+                // KafkaTemplate закрывает продюсер после каждой отправки
+                @Override
+                public void close() {
+                }
+
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+
+    private final RetryRoutingAcknowledger retryRouting = new RetryRoutingAcknowledger(new AppealRetryRouter(
+            new KafkaTemplate<>(new MockProducerFactory<>(() -> retryProducer)), new KafkaConfig().objectMapper(),
+            new SimpleMeterRegistry(), "appeals-topic", "moderation-group", List.of(Duration.ofSeconds(5)),
+            "segmented"));
+
+    private final KeyedAppealConsumer consumer = new KeyedAppealConsumer(processor, retryRouting, 100, true, 0);
+
+    @AfterEach
+    void tearDown() {
+        consumer.shutdown();
+        retryRouting.shutdown();
+    }
+
+    @Test
+    void keepsOrderPerClientAndDoesNotBlockOtherClients() throws Exception {
+        consume(0, "slow", "s1");
+        consume(1, "slow", "fail");
+        consume(2, "slow", "s2");
+        consume(3, "fast", "f1");
+        consume(4, "slow", "s3");
+
+        assertTrue(acks.await(10, TimeUnit.SECONDS), "every record is acknowledged, including the failed one");
+        assertEquals(List.of("s1", "s2", "s3"), processedByClient.get("slow"));
+        assertEquals(List.of("f1"), processedByClient.get("fast"));
+        assertFalse(fastClientWaited.get(), "fast client must not queue behind the slow one");
+        assertEquals(1, retryProducer.history().size());
+        assertEquals("appeals-topic-retry-0", retryProducer.history().get(0).topic());
+    }
+
+    private void consume(long offset, String clientId, String appealId) throws InterruptedException {
+        AppealEvent appeal = AppealEvent.builder().appealId(appealId).clientId(clientId).build();
+        Acknowledgment acknowledgment = acks::countDown;
+        consumer.consumeAppeal(new ConsumerRecord<>("appeals-topic", 0, offset, null, appeal), acknowledgment);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
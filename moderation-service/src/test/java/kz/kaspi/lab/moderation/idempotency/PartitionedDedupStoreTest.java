@@ -0,0 +1,110 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EmbeddedKafka(partitions = 2, topics = "appeals-topic")
+class PartitionedDedupStoreTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition("appeals-topic", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("appeals-topic", 1);
+    private static final TopicPartition LOW_0 = new TopicPartition("appeals-topic-low", 0);
+    private static final TopicPartition RETRY_0 = new TopicPartition("appeals-topic-retry-0", 0);
+
+    @Test
+    void newOwnerRestoresMarksFromChangelog(EmbeddedKafkaBroker broker) {
+        MockConsumer<String, String> consumer = new MockConsumer<>("earliest");
+        try (PartitionedDedupStore first = open(broker)) {
+            first.onPartitionsAssigned(consumer, List.of(PARTITION_0, PARTITION_1));
+            first.markAsProcessed(0, "appeal-0");
+            first.markAsProcessed(1, "appeal-1");
+            assertTrue(first.isProcessed(0, "appeal-0"));
+        }
+
+        // Партиция 1 переехала на другой экземпляр: он видит только её отметки
+        try (PartitionedDedupStore second = open(broker)) {
+            second.onPartitionsAssigned(consumer, List.of(PARTITION_1));
+            assertTrue(second.isProcessed(1, "appeal-1"));
+            assertFalse(second.isProcessed(1, "appeal-2"));
+            assertFalse(second.isProcessed(0, "appeal-0"), "partition 0 is not owned, its state is not loaded");
+        }
+    }
+
+    @Test
+    void revokedPartitionIsDroppedUnlessReassigned(EmbeddedKafkaBroker broker) {
+        MockConsumer<String, String> consumer = new MockConsumer<>("earliest");
+        try (PartitionedDedupStore store = open(broker)) {
+            store.onPartitionsAssigned(consumer, List.of(PARTITION_0, PARTITION_1));
+            store.markAsProcessed(0, "kept");
+            store.markAsProcessed(1, "dropped");
+
+            // Eager-ребаланс: отзываются все партиции, возвращается только 0
+            store.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION_0, PARTITION_1));
+            store.onPartitionsAssigned(consumer, List.of(PARTITION_0));
+
+            assertTrue(store.isProcessed(0, "kept"));
+            assertFalse(store.isProcessed(1, "dropped"));
+        }
+    }
+
+    @Test
+    void laneAndRetryPartitionsHoldStateOfSourcePartition(EmbeddedKafkaBroker broker) throws Exception {
+        MockConsumer<String, String> appeals = new MockConsumer<>("earliest");
+        MockConsumer<String, String> lane = new MockConsumer<>("earliest");
+        MockConsumer<String, String> retry = new MockConsumer<>("earliest");
+        try (PartitionedDedupStore owner = open(broker); PartitionedDedupStore other = open(broker)) {
+            owner.onPartitionsAssigned(appeals, List.of(PARTITION_0));
+            owner.markAsProcessed(0, "appeal-0");
+
+            // Второй экземпляр не владеет партицией 0 appeals-topic, но читает партицию 0 топика приоритета:
+            // запись оттуда видится уже обработанной
+            other.onPartitionsAssigned(lane, List.of(LOW_0));
+            assertTrue(other.isProcessed(0, "appeal-0"));
+
+            // Новые отметки владельца приходят через changelog
+            owner.markAsProcessed(0, "appeal-1");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!other.isProcessed(0, "appeal-1") && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(other.isProcessed(0, "appeal-1"));
+
+            // Состояние держится, пока назначена хоть одна партиция с этим номером
+            other.onPartitionsAssigned(retry, List.of(RETRY_0));
+            other.onPartitionsLost(lane, List.of(LOW_0));
+            assertTrue(other.isProcessed(0, "appeal-0"));
+            other.onPartitionsLost(retry, List.of(RETRY_0));
+            assertFalse(other.isProcessed(0, "appeal-0"));
+        }
+    }
+
+    private static PartitionedDedupStore open(EmbeddedKafkaBroker broker) {
+        String brokers = broker.getBrokersAsString();
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers),
+                new StringSerializer(), new ByteArraySerializer()));
+        return new PartitionedDedupStore(template, new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+                brokers)), Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers), "appeals-topic",
+                List.of("appeals-topic-low", "appeals-topic-retry-0"), "appeals-topic-dedup-changelog", Duration.ofDays(7), Duration.ofSeconds(30), Duration.ofMinutes(1),
+                true);
+    }
+}
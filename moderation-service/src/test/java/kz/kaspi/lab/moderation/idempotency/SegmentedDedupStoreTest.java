@@ -0,0 +1,100 @@
+package kz.kaspi.lab.moderation.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedDedupStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void marksSurviveRestart() {
+        try (SegmentedDedupStore store = open(Duration.ofDays(7), 1024)) {
+            for (int i = 0; i < 1000; i++) {
+                store.markAsProcessed("appeal-" + i);
+            }
+            assertTrue(store.isProcessed("appeal-42"));
+            assertFalse(store.isProcessed("appeal-1000"));
+        }
+
+        try (SegmentedDedupStore store = open(Duration.ofDays(7), 1024)) {
+            assertEquals(1000, store.size());
+            assertTrue(store.isProcessed("appeal-0"));
+            assertTrue(store.isProcessed("appeal-999"));
+            assertFalse(store.isProcessed("appeal-1000"));
+        }
+    }
+
+    @Test
+    void expiredMarksAreNotLoaded() throws InterruptedException {
+        try (SegmentedDedupStore store = open(Duration.ofMillis(50), 1024)) {
+            store.markAsProcessed("old");
+        }
+        Thread.sleep(100);
+
+        try (SegmentedDedupStore store = open(Duration.ofMillis(50), 1024)) {
+            assertFalse(store.isProcessed("old"));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void compactionMergesNeighboursInsteadOfOneGrowingFile() throws IOException {
+        try (SegmentedDedupStore store = open(Duration.ofDays(7), 1024)) {
+            for (int i = 0; i < 1000; i++) {
+                store.markAsProcessed("appeal-" + i);
+            }
+        }
+        assertTrue(segmentSizes().size() > 8, "segments " + segmentSizes());
+
+        try (SegmentedDedupStore store = open(Duration.ofDays(7), 1024)) {
+            store.maintain();
+        }
+        List<Long> sizes = segmentSizes();
+        long total = sizes.stream().mapToLong(Long::longValue).sum();
+        // 4 закрытых сегмента + пустой активный, ни один не собрал всё
+        assertTrue(sizes.size() <= 5, "segments " + sizes);
+        assertTrue(sizes.stream().allMatch(size -> size < total / 2), "segments " + sizes);
+
+        try (SegmentedDedupStore store = open(Duration.ofDays(7), 1024)) {
+            assertEquals(1000, store.size());
+            assertTrue(store.isProcessed("appeal-0"));
+            assertTrue(store.isProcessed("appeal-999"));
+        }
+    }
+
+    @Test
+    void rejectsMarksAfterClose() {
+        SegmentedDedupStore store = open(Duration.ofDays(7), 1024);
+        store.markAsProcessed("before");
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> store.markAsProcessed("after"));
+    }
+
+    private List<Long> segmentSizes() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg"))
+                    .map(path -> path.toFile().length())
+                    .toList();
+        }
+    }
+
+    private SegmentedDedupStore open(Duration retention, long segmentMaxBytes) {
+        return new SegmentedDedupStore(directory, retention, segmentMaxBytes, Duration.ofHours(1), 4,
+                Duration.ofMinutes(1), false, true);
+    }
+}
@@ -0,0 +1,127 @@
+package kz.kaspi.lab.moderation.priority;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.consumer.AppealProcessor;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.AppealPriority;
+import kz.kaspi.lab.moderation.retry.AppealRetryRouter;
+import kz.kaspi.lab.moderation.retry.RetryRoutingAcknowledger;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityLaneConsumerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch lowReleased = new CountDownLatch(1);
+    private final CountDownLatch lowStarted = new CountDownLatch(1);
+
+    // Обращения LOW висят, пока тест их не отпустит
+    private final AppealProcessor processor = new AppealProcessor(null, null, null, null, new SimpleMeterRegistry()) {
+        @Override
+        public void process(AppealEvent appeal, int partition) {
+            if ("LOW".equals(appeal.getPriority())) {
+                lowStarted.countDown();
+                try {
+                    lowReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    };
+
+    private final MockProducer<String, byte[]> retryProducer =
+            new MockProducer<>(true, null, new StringSerializer(), new ByteArraySerializer()) {
+                // KafkaTemplate закрывает продюсер после каждой отправки
+                @Override
+                public void close() {
+                }
+
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+
+    private final PriorityLaneConsumer consumer = new PriorityLaneConsumer(processor,
+            new RetryRoutingAcknowledger(new AppealRetryRouter(
+                    new KafkaTemplate<>(new MockProducerFactory<>(() -> retryProducer)),
+                    new KafkaConfig().objectMapper(), meterRegistry, "appeals-topic", "moderation-group",
+                    List.of(Duration.ofSeconds(5)), "segmented")),
+            containerFactory(), meterRegistry, "appeals-topic", List.of(2, 1, 1, 1),
+            List.of(Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(2)),
+            false);
+
+    @AfterEach
+    void tearDown() {
+        lowReleased.countDown();
+        consumer.shutdown();
+    }
+
+    @Test
+    void urgentLaneIsNotBlockedByBusyLowLane() throws Exception {
+        CountDownLatch lowAck = new CountDownLatch(1);
+        consumer.consume(consumer.lane(AppealPriority.LOW), record("LOW", System.currentTimeMillis()),
+                lowAck::countDown);
+        assertTrue(lowStarted.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch urgentAck = new CountDownLatch(1);
+        consumer.consume(consumer.lane(AppealPriority.URGENT), record("URGENT", System.currentTimeMillis()),
+                urgentAck::countDown);
+
+        assertTrue(urgentAck.await(5, TimeUnit.SECONDS), "URGENT is acknowledged while the LOW slot is busy");
+        assertEquals(1, lowAck.getCount());
+        lowReleased.countDown();
+        assertTrue(lowAck.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void countsSloViolationsPerPriority() throws Exception {
+        CountDownLatch acks = new CountDownLatch(2);
+        long now = System.currentTimeMillis();
+        consumer.consume(consumer.lane(AppealPriority.URGENT), record("URGENT", now - 10_000), acks::countDown);
+        consumer.consume(consumer.lane(AppealPriority.NORMAL), record("NORMAL", now - 10_000), acks::countDown);
+        assertTrue(acks.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1.0, meterRegistry.get("moderation.priority.slo.violations")
+                .tag("priority", "URGENT").counter().count());
+        assertEquals(0.0, meterRegistry.get("moderation.priority.slo.violations")
+                .tag("priority", "NORMAL").counter().count());
+        assertEquals(1, meterRegistry.get("moderation.priority.latency")
+                .tag("priority", "NORMAL").timer().count());
+    }
+
+    private static ConsumerRecord<String, AppealEvent> record(String priority, long timestamp) {
+        AppealEvent appeal = AppealEvent.builder().appealId(priority + "-1").clientId("client-1")
+                .priority(priority).build();
+        return new ConsumerRecord<>("appeals-topic-" + priority.toLowerCase(), 0, 0, timestamp,
+                TimestampType.CREATE_TIME, 0, 0, "client-1", appeal, new RecordHeaders(), Optional.empty());
+    }
+
+    private static ConcurrentKafkaListenerContainerFactory<String, AppealEvent> containerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, AppealEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(Map.of()));
+        return factory;
+    }
+}
@@ -0,0 +1,102 @@
+package kz.kaspi.lab.moderation.producer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import kz.kaspi.lab.moderation.serde.ModerationResultSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultProjectionTest {
+
+    private final ObjectMapper objectMapper = new KafkaConfig().objectMapper();
+
+    private final AppealEvent appeal = appeal("Перевод не работает");
+
+    private final ModerationResult result = ModerationResult.builder()
+            .appealId("appeal-1")
+            .clientId("client-1")
+            .decision(ModerationDecision.APPROVED)
+            .reason("Default rule")
+            .riskCategory("LOW")
+            .processedAt(LocalDateTime.of(2026, 2, 8, 15, 0, 1))
+            .originalAppeal(appeal)
+            .build();
+
+    @Test
+    void referenceKeepsOnlyIdDecisionAndHash() throws Exception {
+        String json = ResultProjection.REFERENCE.jsonMapper(objectMapper)
+                .writeValueAsString(ResultProjection.REFERENCE.apply(result));
+
+        assertEquals("{\"appealId\":\"appeal-1\",\"decision\":\"APPROVED\",\"appealHash\":\""
+                + ResultProjection.appealHash(appeal) + "\"}", json);
+    }
+
+    @Test
+    void slimDropsOriginalAppeal() {
+        ModerationResult slim = ResultProjection.SLIM.apply(result);
+
+        assertNull(slim.getOriginalAppeal());
+        assertEquals(result.getReason(), slim.getReason());
+        assertNotNull(slim.getAppealHash());
+        // Исходный результат не меняется
+        assertNotNull(result.getOriginalAppeal());
+    }
+
+    @Test
+    void fullKeepsWireFormatIncludingNulls() throws Exception {
+        ModerationResult withoutRisk = result.toBuilder().riskCategory(null).build();
+
+        assertSame(withoutRisk, ResultProjection.FULL.apply(withoutRisk));
+        String json = ResultProjection.FULL.jsonMapper(objectMapper).writeValueAsString(withoutRisk);
+        assertTrue(json.contains("\"riskCategory\":null"), json);
+        assertFalse(json.contains("appealHash"), json);
+    }
+
+    @Test
+    void sharedSerializerKeepsProjectionPerTopic() {
+        // Как общий транзакционный продюсер: review-topic — full, approved-topic — reference
+        ModerationResultSerializer serializer = new ModerationResultSerializer(
+                ResultProjection.FULL.jsonMapper(objectMapper),
+                Map.of("approved-topic", ResultProjection.REFERENCE.jsonMapper(objectMapper)), PayloadFormat.JSON, null);
+        ModerationResult withoutRisk = result.toBuilder().riskCategory(null).build();
+
+        String approved = new String(serializer.serialize("approved-topic", ResultProjection.REFERENCE.apply(result)),
+                StandardCharsets.UTF_8);
+        String review = new String(serializer.serialize("review-topic", withoutRisk), StandardCharsets.UTF_8);
+
+        assertFalse(approved.contains("null"), approved);
+        assertTrue(review.contains("\"riskCategory\":null"), review);
+    }
+
+    @Test
+    void hashDependsOnContent() {
+        assertEquals(ResultProjection.appealHash(appeal), ResultProjection.appealHash(appeal("Перевод не работает")));
+        assertNotEquals(ResultProjection.appealHash(appeal), ResultProjection.appealHash(appeal("Перевод не работает!")));
+    }
+
+    private static AppealEvent appeal(String message) {
+        return AppealEvent.builder()
+                .appealId("appeal-1")
+                .clientId("client-1")
+                .message(message)
+                .timestamp(LocalDateTime.of(2026, 2, 8, 15, 0))
+                .category("COMPLAINT")
+                .priority("HIGH")
+                .build();
+    }
+}
@@ -0,0 +1,183 @@
+package kz.kaspi.lab.moderation.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.client.AdaptiveConcurrencyLimiter;
+import kz.kaspi.lab.moderation.client.CircuitBreaker;
+import kz.kaspi.lab.moderation.client.EnrichmentClient;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.EnrichmentData;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import kz.kaspi.lab.moderation.rules.ComplaintDetector;
+import kz.kaspi.lab.moderation.rules.RuleEngine;
+import kz.kaspi.lab.moderation.serde.ModerationResultSerializer;
+import kz.kaspi.lab.moderation.serde.PayloadFormat;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@EmbeddedKafka(partitions = 1, topics = {"appeals-topic", "approved-topic", "review-topic"})
+class AppealReplayTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void writesDiffsAgainstPublishedDecisions(EmbeddedKafkaBroker broker) throws Exception {
+        String brokers = broker.getBrokersAsString();
+        Instant from = Instant.now().minusSeconds(60);
+        KafkaTemplate<String, byte[]> appeals = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers),
+                new StringSerializer(), new ByteArraySerializer()));
+        KafkaTemplate<String, ModerationResult> results = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers),
+                new StringSerializer(), new ModerationResultSerializer(objectMapper, PayloadFormat.BINARY)));
+
+        // Жалобы за час до from: только прогревают окна активности, их решения не сравниваются
+        for (int i = 1; i <= 3; i++) {
+            send(appeals, appeal("a9-" + i, "c9", "COMPLAINT"), from.minus(Duration.ofHours(1)));
+        }
+        publish(results, "review-topic", "a9-1", ModerationDecision.REVIEW_REQUIRED);
+        send(appeals, appeal("a1", "c1", "QUESTION"));
+        publish(results, "approved-topic", "a1", ModerationDecision.APPROVED);
+        // Правила теперь пропускают — расхождение REVIEW_REQUIRED -> APPROVED
+        send(appeals, appeal("a2", "c2", "QUESTION"));
+        publish(results, "review-topic", "a2", ModerationDecision.REVIEW_REQUIRED);
+        // Результат не найден — только счётчик
+        send(appeals, appeal("a3", "c3", "QUESTION"));
+        appeals.send("appeals-topic", "broken", "{not json".getBytes()).get();
+        // Четвёртая жалоба за неделю — срабатывает multiple-recent-complaints
+        send(appeals, appeal("a9-4", "c9", "COMPLAINT"));
+        publish(results, "approved-topic", "a9-4", ModerationDecision.APPROVED);
+
+        RecordingSink sink = new RecordingSink();
+        AppealReplay replay = new AppealReplay(new ReplayRequest(from, null, null, null, null),
+                new ReplayOptions("appeals-topic", List.of("approved-topic", "review-topic"), 4, 2, 2, 100, 100),
+                Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 3),
+                objectMapper, ruleEngine(), enrichmentClient(), sink);
+        replay.run();
+
+        Map<String, Object> status = replay.status();
+        assertEquals(AppealReplay.State.COMPLETED, status.get("state"), () -> String.valueOf(status.get("error")));
+        assertEquals(3L, status.get("warmedUp"));
+        assertEquals(5L, status.get("records"));
+        assertEquals(5L, status.get("total"));
+        assertEquals(1L, status.get("unchanged"));
+        assertEquals(2L, status.get("changed"));
+        assertEquals(1L, status.get("missingOriginal"));
+        assertEquals(1L, status.get("skipped"));
+
+        assertEquals(2, sink.diffs.size());
+        DecisionDiff approved = sink.diffs.get(0);
+        assertEquals("a2", approved.appealId());
+        assertEquals(ModerationDecision.REVIEW_REQUIRED, approved.originalDecision());
+        assertEquals(ModerationDecision.APPROVED, approved.decision());
+        DecisionDiff review = sink.diffs.get(1);
+        assertEquals("a9-4", review.appealId());
+        assertEquals(ModerationDecision.REVIEW_REQUIRED, review.decision());
+        assertEquals("multiple-recent-complaints", review.rule());
+        assertEquals("Multiple complaints in the last 7 days (3)", review.reason());
+    }
+
+    private void send(KafkaTemplate<String, byte[]> template, AppealEvent appeal) throws Exception {
+        template.send("appeals-topic", appeal.getClientId(), objectMapper.writeValueAsBytes(appeal)).get();
+    }
+
+    private void send(KafkaTemplate<String, byte[]> template, AppealEvent appeal, Instant timestamp) throws Exception {
+        template.send(new ProducerRecord<>("appeals-topic", null, timestamp.toEpochMilli(), appeal.getClientId(),
+                objectMapper.writeValueAsBytes(appeal))).get();
+    }
+
+    private static void publish(KafkaTemplate<String, ModerationResult> template, String topic, String appealId,
+                                ModerationDecision decision) throws Exception {
+        template.send(topic, appealId, ModerationResult.builder().appealId(appealId).decision(decision).build()).get();
+    }
+
+    private static AppealEvent appeal(String appealId, String clientId, String category) {
+        return AppealEvent.builder()
+                .appealId(appealId)
+                .clientId(clientId)
+                .message("Вопрос по переводу")
+                .timestamp(LocalDateTime.now())
+                .category(category)
+                .priority("NORMAL")
+                .build();
+    }
+
+    private static RuleEngine ruleEngine() {
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        return new RuleEngine(resourceLoader, new ComplaintDetector(resourceLoader, "classpath:complaint-keywords.txt"),
+                "classpath:moderation-rules.yaml");
+    }
+
+    // Пакетный запрос без сети: у всех клиентов «чистый» профиль
+    private static EnrichmentClient enrichmentClient() {
+        return new EnrichmentClient(WebClient.builder(), new SimpleMeterRegistry(),
+                new AdaptiveConcurrencyLimiter(1, 1, 1, Duration.ofSeconds(1), 0.9),
+                new CircuitBreaker(0.5, 1, 1, Duration.ofSeconds(1), 1), Retry.backoff(0, Duration.ZERO),
+                "http://localhost:0", 1000,
+                false, 1, Duration.ofMillis(1), false, 1, Duration.ofMinutes(1), Duration.ofMinutes(1)) {
+            @Override
+            public Mono<Map<String, EnrichmentData>> getEnrichmentBatch(Collection<String> clientIds) {
+                Map<String, EnrichmentData> batch = new HashMap<>();
+                for (String clientId : clientIds) {
+                    batch.put(clientId, EnrichmentData.builder()
+                            .clientId(clientId)
+                            .fraudScore(0.1)
+                            .supportRating(4.5)
+                            .isVIP(false)
+                            .previousComplaints(0)
+                            .riskCategory("LOW")
+                            .build());
+                }
+                return Mono.just(batch);
+            }
+        };
+    }
+
+    private static final class RecordingSink implements DiffSink {
+
+        private final List<DecisionDiff> diffs = new ArrayList<>();
+
+        @Override
+        public void write(DecisionDiff diff) {
+            diffs.add(diff);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public String target() {
+            return "memory";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package kz.kaspi.lab.moderation.retry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.idempotency.SourcePartition;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.KafkaUtils;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AppealRetryRouterTest {
+
+    private final MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, null, new StringSerializer(), new ByteArraySerializer()) {
+                // KafkaTemplate закрывает продюсер после каждой отправки
+                @Override
+                public void close() {
+                }
+
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+
+    private final AppealRetryRouter router = new AppealRetryRouter(
+            new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)), new KafkaConfig().objectMapper(),
+            new SimpleMeterRegistry(), "appeals-topic", "moderation-group",
+            List.of(Duration.ofSeconds(5), Duration.ofSeconds(30)), "segmented");
+
+    private final AppealEvent appeal = AppealEvent.builder().appealId("appeal-1").clientId("client-1").build();
+
+    @Test
+    void walksRetryTiersThenDeadLetterTopic() {
+        assertEquals("appeals-topic-retry-0", router.nextTopic("appeals-topic"));
+        assertEquals("appeals-topic-retry-1", router.nextTopic("appeals-topic-retry-0"));
+        assertEquals("appeals-topic-dlt", router.nextTopic("appeals-topic-retry-1"));
+        assertEquals(Duration.ofSeconds(30), router.delay("appeals-topic-retry-1"));
+    }
+
+    @Test
+    void keepsOriginalCoordinatesAcrossTiers() {
+        router.route(record("appeals-topic", 7, appeal), new CompletionException(new IllegalStateException("down")))
+                .join();
+        ProducerRecord<String, byte[]> first = producer.history().get(0);
+        assertEquals("appeals-topic-retry-0", first.topic());
+        assertEquals("client-1", first.key());
+        assertEquals("java.lang.IllegalStateException", header(first.headers(), KafkaHeaders.DLT_EXCEPTION_FQCN));
+        assertEquals("down", header(first.headers(), KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+
+        // Повторная ошибка на уровне retry-0: координаты исходной записи не перезаписываются
+        ConsumerRecord<String, AppealEvent> retried = record("appeals-topic-retry-0", 3, appeal);
+        first.headers().forEach(h -> retried.headers().add(h));
+        router.route(retried, new IllegalArgumentException("still down")).join();
+
+        ProducerRecord<String, byte[]> second = producer.history().get(1);
+        assertEquals("appeals-topic-retry-1", second.topic());
+        assertEquals("appeals-topic", header(second.headers(), KafkaHeaders.DLT_ORIGINAL_TOPIC));
+        assertEquals(7L, ByteBuffer.wrap(second.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET).value())
+                .getLong());
+        assertEquals("still down", header(second.headers(), KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+        assertEquals(1, count(second.headers(), KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    @Test
+    void sendsUndeserializablePayloadStraightToDeadLetterTopic() {
+        byte[] payload = "{not json".getBytes(StandardCharsets.UTF_8);
+        ConsumerRecord<String, AppealEvent> poison = record("appeals-topic", 1, null);
+        poison.headers().add(KafkaUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, new byte[]{1, 2, 3});
+
+        router.route(poison, new DeserializationException("bad json", payload, false, null)).join();
+
+        ProducerRecord<String, byte[]> dead = producer.history().get(0);
+        assertEquals("appeals-topic-dlt", dead.topic());
+        assertArrayEquals(payload, dead.value());
+        assertNull(dead.headers().lastHeader(KafkaUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+    }
+
+    @Test
+    void keepsRecordUnacknowledgedUntilRoutingSucceeds() throws Exception {
+        MockProducer<String, byte[]> manual = new MockProducer<>(false, null, new StringSerializer(),
+                new ByteArraySerializer()) {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        RetryRoutingAcknowledger acknowledger = new RetryRoutingAcknowledger(new AppealRetryRouter(
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> manual)), new KafkaConfig().objectMapper(),
+                new SimpleMeterRegistry(), "appeals-topic", "moderation-group", List.of(Duration.ofSeconds(5)),
+                "segmented"));
+        AtomicInteger acks = new AtomicInteger();
+        try {
+            CompletableFuture<Void> settled = acknowledger.routeAndAcknowledge(record("appeals-topic", 4, appeal),
+                    new IllegalStateException("down"), acks::incrementAndGet);
+
+            manual.errorNext(new TimeoutException("broker unavailable"));
+            assertEquals(0, acks.get(), "a record that was not routed must not be acknowledged");
+
+            // Повтор публикации — после паузы
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (manual.history().size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            manual.completeNext();
+            settled.get(5, TimeUnit.SECONDS);
+            assertEquals(1, acks.get());
+            assertEquals("appeals-topic-retry-0", manual.history().get(1).topic());
+        } finally {
+            acknowledger.shutdown();
+        }
+    }
+
+    @Test
+    void partitionedStoreKeepsSourcePartitionOnRetryTiers() {
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (String topic : List.of("appeals-topic-retry-0", "appeals-topic-dlt")) {
+            for (int i = 0; i < 8; i++) {
+                partitions.add(new PartitionInfo(topic, i, Node.noNode(), new Node[0], new Node[0]));
+            }
+        }
+        MockProducer<String, byte[]> partitioned = new MockProducer<>(new Cluster("test", List.of(), partitions,
+                Set.of(), Set.of()), true, null, new StringSerializer(), new ByteArraySerializer()) {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        AppealRetryRouter copartitioned = new AppealRetryRouter(
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> partitioned)), new KafkaConfig().objectMapper(),
+                new SimpleMeterRegistry(), "appeals-topic", "moderation-group", List.of(Duration.ofSeconds(5)),
+                "partitioned");
+
+        // Запись топика приоритета: партиция appeals-topic — в заголовке
+        ConsumerRecord<String, AppealEvent> fromLane = record("appeals-topic-low", 9, appeal);
+        SourcePartition.set(fromLane.headers(), 5);
+        copartitioned.route(fromLane, new IllegalStateException("down")).join();
+
+        assertEquals("appeals-topic-retry-0", partitioned.history().get(0).topic());
+        assertEquals(5, partitioned.history().get(0).partition());
+    }
+
+    private static ConsumerRecord<String, AppealEvent> record(String topic, long offset, AppealEvent value) {
+        return new ConsumerRecord<>(topic, 0, offset, 0L, TimestampType.CREATE_TIME, 0, 0, "client-1", value,
+                new RecordHeaders(), Optional.empty());
+    }
+
+    private static String header(Headers headers, String key) {
+        return new String(headers.lastHeader(key).value(), StandardCharsets.UTF_8);
+    }
+
+    private static long count(Headers headers, String key) {
+        return StreamSupport.stream(headers.headers(key).spliterator(), false).count();
+    }
+}
@@ -0,0 +1,40 @@
+package kz.kaspi.lab.moderation.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class KeywordMatcherTest {
+
+    private final KeywordMatcher matcher = KeywordMatcher.build(
+            List.of("problem", "issue", "не работает", "ошибка", "қате", "he", "she", "hers"));
+
+    @Test
+    void matchesCaseInsensitivelyAcrossScripts() {
+        assertEquals("problem", find("Big PROBLEM with payment"));
+        assertEquals("не работает", find("Перевод НЕ РАБОТАЕТ"));
+        assertEquals("қате", find("Төлемде ҚАТЕ бар"));
+    }
+
+    @Test
+    void followsFailureLinks() {
+        assertEquals("she", find("ushers"));
+        assertEquals("he", find("ahe"));
+        assertEquals("ошибка", find("ошошибка"));
+    }
+
+    @Test
+    void returnsNothingWithoutMatch() {
+        assertNull(find("Спасибо за помощь"));
+        assertNull(find(""));
+        assertNull(find(null));
+    }
+
+    private String find(String text) {
+        int index = matcher.find(text);
+        return index >= 0 ? matcher.keyword(index) : null;
+    }
+}
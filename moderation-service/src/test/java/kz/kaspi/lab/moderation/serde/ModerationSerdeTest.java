@@ -0,0 +1,81 @@
+package kz.kaspi.lab.moderation.serde;
+
+import kz.kaspi.lab.moderation.config.KafkaConfig;
+import kz.kaspi.lab.moderation.model.AppealEvent;
+import kz.kaspi.lab.moderation.model.ModerationResult;
+import kz.kaspi.lab.moderation.model.ModerationResult.ModerationDecision;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModerationSerdeTest {
+
+    private final AppealEventDeserializer deserializer = new AppealEventDeserializer(new KafkaConfig().objectMapper());
+
+    private final AppealEvent appeal = AppealEvent.builder()
+            .appealId("appeal-1")
+            .clientId("client-1")
+            .message("Перевод не работает 😞")
+            .timestamp(LocalDateTime.of(2026, 2, 8, 15, 0))
+            .category("COMPLAINT")
+            .priority(null)
+            .build();
+
+    @Test
+    void readsJsonWithoutContentTypeHeader() {
+        byte[] json = """
+                {"appealId":"appeal-1","clientId":"client-1","message":"Перевод не работает 😞",\
+                "timestamp":"2026-02-08T15:00:00","category":"COMPLAINT"}""".getBytes(StandardCharsets.UTF_8);
+
+        // Смещение в буфере — как у записи внутри fetch'а
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 8).position(4).slice();
+        buffer.put(json).flip();
+
+        assertEquals(appeal, deserializer.deserialize("appeals", new RecordHeaders(), buffer));
+    }
+
+    @Test
+    void readsBinaryByContentType() {
+        RecordHeaders headers = new RecordHeaders();
+        PayloadFormat.BINARY.writeTo(headers);
+
+        assertEquals(appeal, deserializer.deserialize("appeals", headers, ModerationBinaryCodec.encode(appeal)));
+    }
+
+    @Test
+    void binaryResultRoundTripsAndSetsHeader() {
+        ModerationResult result = ModerationResult.builder()
+                .appealId("appeal-1")
+                .clientId("client-1")
+                .decision(ModerationDecision.REVIEW_REQUIRED)
+                .reason("VIP client with complaint (keyword: не работает)")
+                .processedAt(LocalDateTime.of(2026, 2, 8, 15, 0, 1, 500))
+                .originalAppeal(appeal)
+                .build();
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] payload = new ModerationResultSerializer(new KafkaConfig().objectMapper(), PayloadFormat.BINARY)
+                .serialize("review", headers, result);
+
+        assertEquals(PayloadFormat.BINARY, PayloadFormat.from(headers));
+        assertEquals(result, ModerationBinaryCodec.decodeResult(ByteBuffer.wrap(payload)));
+    }
+
+    @Test
+    void rejectsTruncatedBinary() {
+        RecordHeaders headers = new RecordHeaders();
+        PayloadFormat.BINARY.writeTo(headers);
+        byte[] payload = ModerationBinaryCodec.encode(appeal);
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 3);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("appeals", headers, truncated));
+    }
+}